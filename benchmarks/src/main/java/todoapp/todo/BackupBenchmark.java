@@ -0,0 +1,92 @@
+package todoapp.todo;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import todoapp.exceptions.BackupFailedException;
+import todoapp.exceptions.EmptyFieldException;
+
+/**
+ * This class provide the benchmarks of the backups, on lists of listSize
+ * ToDos with tagsPerToDo tags each: the JSON encoding and decoding alone, in
+ * memory, and the whole backup and restore through a file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+@State(Scope.Thread)
+public class BackupBenchmark {
+
+	@Param({ "1000", "100000" })
+	int listSize;
+
+	@Param({ "0", "4", "16" })
+	int tagsPerToDo;
+
+	private List<ToDo> todos;
+	private String json;
+	private Path directory;
+	private String backup;
+
+	@Setup(Level.Trial)
+	public void setUp() throws EmptyFieldException, IOException, BackupFailedException {
+		ToDoList list = BenchmarkData.list(this.listSize, this.tagsPerToDo, BenchmarkData.tags());
+		this.todos = list.snapshot();
+		StringWriter out = new StringWriter();
+		new JsonBackupWriter(out).write(this.todos);
+		this.json = out.toString();
+
+		this.directory = Files.createTempDirectory("backup-benchmark");
+		this.backup = this.directory.resolve("backup.bak").toString();
+		Backup.backupData(this.todos, this.backup);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(Path.of(this.backup));
+		Files.deleteIfExists(this.directory);
+	}
+
+	@Benchmark
+	public void encode() throws IOException {
+		new JsonBackupWriter(Writer.nullWriter()).write(this.todos);
+	}
+
+	@Benchmark
+	public ToDoList decode() throws IOException {
+		return new JsonBackupReader(new StringReader(this.json)).read(null);
+	}
+
+	@Benchmark
+	public void backupData() throws BackupFailedException {
+		Backup.backupData(this.todos, this.backup);
+	}
+
+	@Benchmark
+	public ToDoList restoreData() throws BackupFailedException {
+		return Backup.restoreData(this.backup, null);
+	}
+
+}	// class BackupBenchmark
@@ -0,0 +1,70 @@
+package todoapp.todo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import todoapp.exceptions.EmptyFieldException;
+import todoapp.todo.Tag.Color;
+
+/**
+ * This class provide the data shared by the benchmarks: a pool of tags and
+ * ToDos with a given number of tags, all built the same way at every run so
+ * that the results can be compared.
+ */
+final class BenchmarkData {
+
+	/**
+	 * The number of distinct tags, and so the most tags a ToDo can have.
+	 */
+	static final int TAG_POOL = 64;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * RETURN the pool of tags, with every color.
+	 * @return a new array of TAG_POOL tags.
+	 */
+	static Tag[] tags() throws EmptyFieldException {
+		Color[] colors = Color.values();
+		Tag[] res = new Tag[TAG_POOL];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = new Tag("tag-" + i, colors[i % colors.length]);
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN the i-th ToDo of a list.
+	 * @param i: the position of the ToDo.
+	 * @param tagsPerToDo: the number of its tags. REQUIRED between 0 and
+	 * TAG_POOL.
+	 * @param tags: the pool of tags. REQUIRED not null.
+	 * @return a new ToDo with tagsPerToDo tags of the pool, starting from the
+	 * i-th one.
+	 */
+	static ToDo todo(int i, int tagsPerToDo, Tag[] tags) throws EmptyFieldException {
+		List<Tag> own = new ArrayList<Tag>(tagsPerToDo);
+		for (int t = 0; t < tagsPerToDo; t++) {
+			own.add(tags[(i + t) % tags.length]);
+		}
+		return new ToDo("ToDo " + i, "Description of the ToDo number " + i, own);
+	}
+
+	/**
+	 * RETURN a list of ToDos built by todo().
+	 * @param size: the number of ToDos. REQUIRED not negative.
+	 * @param tagsPerToDo: the number of tags of each ToDo. REQUIRED between 0
+	 * and TAG_POOL.
+	 * @param tags: the pool of tags. REQUIRED not null.
+	 * @return the new list.
+	 */
+	static ToDoList list(int size, int tagsPerToDo, Tag[] tags) throws EmptyFieldException {
+		ToDoList res = new ToDoList(size);
+		for (int i = 0; i < size; i++) {
+			res.addToDo(todo(i, tagsPerToDo, tags));
+		}
+		return res;
+	}
+
+}	// class BenchmarkData
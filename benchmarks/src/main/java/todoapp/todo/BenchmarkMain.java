@@ -0,0 +1,28 @@
+package todoapp.todo;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class provide the entry point of the benchmarks: it runs JMH with the
+ * options of the command line, as org.openjdk.jmh.Main does, always adding
+ * the GC profiler, so that every result comes with its allocation rate
+ * (gc.alloc.rate.norm, in bytes per operation).
+ */
+public final class BenchmarkMain {
+
+	private BenchmarkMain() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+}	// class BenchmarkMain
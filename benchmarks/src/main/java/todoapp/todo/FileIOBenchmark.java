@@ -0,0 +1,89 @@
+package todoapp.todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class provide the benchmarks of the writes and the reads of FileIO,
+ * with files from 1 KB to 1 GB of ASCII text in lines of 64 characters. The
+ * files live in a temporary directory deleted at the end of the trial. The
+ * 1 GB data need a large heap, given to the fork, and a few GB of disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms6g", "-Xmx6g" })
+@State(Scope.Thread)
+public class FileIOBenchmark {
+
+	@Param({ "1024", "1048576", "67108864", "1073741824" })
+	int size;
+
+	private Path directory;
+	private String data;
+	private FileIO plain;
+	private FileIO atomic;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		char[] chars = new char[this.size];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = i % 64 == 63 ? '\n' : (char) ('a' + i % 26);
+		}
+		this.data = new String(chars);
+
+		this.directory = Files.createTempDirectory("fileio-benchmark");
+		this.plain = new FileIO(this.directory.resolve("plain.txt").toString());
+		this.plain.create();
+		this.plain.save(this.data);
+		this.atomic = new FileIO(this.directory.resolve("atomic.txt").toString());
+		this.atomic.create();
+		this.atomic.saveAtomically(this.data);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		for (String name : new String[] { "plain.txt", "atomic.txt" }) {
+			Files.deleteIfExists(this.directory.resolve(name));
+		}
+		Files.deleteIfExists(this.directory);
+	}
+
+	@Benchmark
+	public boolean save() throws IOException {
+		return this.plain.save(this.data);
+	}
+
+	@Benchmark
+	public boolean saveAtomically() throws IOException {
+		return this.atomic.saveAtomically(this.data);
+	}
+
+	@Benchmark
+	public String load() throws IOException {
+		return this.plain.load();
+	}
+
+	@Benchmark
+	public String loadVerified() throws IOException {
+		return this.atomic.load();
+	}
+
+}	// class FileIOBenchmark
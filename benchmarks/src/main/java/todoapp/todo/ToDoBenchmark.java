@@ -0,0 +1,79 @@
+package todoapp.todo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import todoapp.exceptions.EmptyFieldException;
+
+/**
+ * This class provide the benchmarks of the copies and of the hash codes of
+ * ToDo and Tag, on ToDos with a growing number of tags. The hash code of a
+ * ToDo and of a Tag is cached after the first call, so it is measured on a
+ * fresh copy: the copy constructors don't copy the cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ToDoBenchmark {
+
+	@Param({ "0", "1", "4", "16", "64" })
+	int tagsPerToDo;
+
+	private ToDo todo;
+	private Tag tag;
+	private Tag extra;
+
+	@Setup(Level.Trial)
+	public void setUp() throws EmptyFieldException {
+		Tag[] tags = BenchmarkData.tags();
+		this.todo = BenchmarkData.todo(0, this.tagsPerToDo, tags);
+		this.tag = tags[0];
+		this.extra = new Tag("extra", Tag.Color.ORANGE);
+	}
+
+	@Benchmark
+	public ToDo toDoCopyConstructor() {
+		return new ToDo(this.todo);
+	}
+
+	@Benchmark
+	public int toDoHashCode() {
+		return new ToDo(this.todo).hashCode();
+	}
+
+	@Benchmark
+	public boolean toDoEquals() {
+		return new ToDo(this.todo).equals(this.todo);
+	}
+
+	@Benchmark
+	public ToDo toDoWithTag() {
+		return this.todo.withTag(this.extra);
+	}
+
+	@Benchmark
+	public Tag tagCopyConstructor() {
+		return new Tag(this.tag);
+	}
+
+	@Benchmark
+	public int tagHashCode() {
+		return new Tag(this.tag).hashCode();
+	}
+
+}	// class ToDoBenchmark
@@ -0,0 +1,135 @@
+package todoapp.todo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import todoapp.exceptions.EmptyFieldException;
+
+/**
+ * This class provide the benchmarks of the operations of ToDoList, on lists
+ * of listSize ToDos with tagsPerToDo tags each. Every operation that changes
+ * the list is paired with the one that undoes it, so that the list keeps its
+ * size during the whole measurement; the ToDo touched moves along the list
+ * at every operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ToDoListBenchmark {
+
+	@Param({ "1000", "100000" })
+	int listSize;
+
+	@Param({ "0", "4", "16" })
+	int tagsPerToDo;
+
+	private ToDoList list;
+	private long[] ids;
+	private ToDo[] todos;
+	private ToDo spare;
+	private Tag extra;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws EmptyFieldException {
+		Tag[] tags = BenchmarkData.tags();
+		this.list = BenchmarkData.list(this.listSize, this.tagsPerToDo, tags);
+		this.todos = this.list.snapshot().toArray(new ToDo[0]);
+		this.ids = new long[this.todos.length];
+		for (int i = 0; i < this.ids.length; i++) {
+			this.ids[i] = this.todos[i].getId();
+		}
+		this.spare = BenchmarkData.todo(this.listSize, this.tagsPerToDo, tags);
+		this.extra = new Tag("extra", Tag.Color.ORANGE);
+		this.next = 0;
+	}
+
+	/**
+	 * RETURN the position of the next ToDo to touch.
+	 */
+	private int nextIndex() {
+		int res = this.next;
+		this.next = res + 1 == this.ids.length ? 0 : res + 1;
+		return res;
+	}
+
+	/**
+	 * RETURN the identifier of the next ToDo to touch.
+	 */
+	private long nextId() {
+		return this.ids[this.nextIndex()];
+	}
+
+	@Benchmark
+	public boolean addToDoThenRemoveToDo() {
+		this.list.addToDo(this.spare);
+		return this.list.removeToDo(this.spare.getId());
+	}
+
+	@Benchmark
+	public boolean removeToDoThenAddToDo() {
+		ToDo todo = this.list.get(this.nextId());
+		this.list.removeToDo(todo);
+		return this.list.addToDo(todo);
+	}
+
+	@Benchmark
+	public boolean contains() {
+		return this.list.contains(this.todos[this.nextIndex()]);
+	}
+
+	@Benchmark
+	public boolean containsId() {
+		return this.list.contains(this.nextId());
+	}
+
+	@Benchmark
+	public ToDo modifyToDoTitle() throws EmptyFieldException {
+		long id = this.nextId();
+		ToDo todo = this.list.get(id);
+		return this.list.modifyToDoTitle(id, todo.getTitle().startsWith("Modified") ? "ToDo" : "Modified");
+	}
+
+	@Benchmark
+	public ToDo modifyToDoDescription() {
+		long id = this.nextId();
+		ToDo todo = this.list.get(id);
+		return this.list.modifyToDoDescription(id, todo.getDescription() == null ? "Modified" : null);
+	}
+
+	@Benchmark
+	public ToDo addToDoTagThenDeleteToDoTag() {
+		long id = this.nextId();
+		this.list.addToDoTag(id, this.extra);
+		return this.list.deleteToDoTag(id, this.extra);
+	}
+
+	@Benchmark
+	public void getData(Blackhole bh) {
+		for (ToDo todo : this.list.getData()) {
+			bh.consume(todo);
+		}
+	}
+
+	@Benchmark
+	public Object snapshot() {
+		return this.list.snapshot();
+	}
+
+}	// class ToDoListBenchmark
@@ -0,0 +1,36 @@
+package todoapp.exceptions;
+
+public class VersionConflictException extends Exception {
+
+    private long expectedVersion;
+    private long actualVersion;
+
+    public VersionConflictException(long expectedVersion, long actualVersion) {
+        super();
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public VersionConflictException(String msg, long expectedVersion, long actualVersion) {
+        super(msg);
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    /**
+     * Get the version the caller expected to modify.
+     * @return the expected version.
+     */
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    /**
+     * Get the version found when the modification was tried.
+     * @return the actual version.
+     */
+    public long getActualVersion() {
+        return actualVersion;
+    }
+
+}
@@ -1,71 +1,95 @@
 package todoapp.todo;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
 import todoapp.exceptions.BackupFailedException;
 
 class Backup {
 
+    static final String BACKUP_FILE = "myBackup.bak";
+
     /**
      * Save the data into the file myBackup.bak.
      * @param currentToDoList valid instance of class ToDoList.
      * @throws BackupFailedException when the backup of the ToDoList fail.
      */
     static void backupData(ToDoList currentToDoList) throws BackupFailedException {
+        backupData(currentToDoList, BACKUP_FILE);
+    }
+
+    /**
+     * Save the data into the file specified, as a JSON document written by
+     * JsonBackupWriter while the ToDos are read: the document is never held
+     * in memory. The file is replaced atomically, so a crash while it is
+     * written leaves the previous backup intact.
+     * @param currentToDoList valid instance of class ToDoList.
+     * @param pathName the path of the backup file.
+     * @throws BackupFailedException when the backup of the ToDoList fail.
+     */
+    static void backupData(ToDoList currentToDoList, String pathName) throws BackupFailedException {
 
         if (currentToDoList == null) {
             throw new IllegalArgumentException("The ToDoList have to be at least empty.");
         }
 
-        StringBuilder dataReadyToBackup = new StringBuilder("{\n");
-        int listLength = currentToDoList.size();
-        for (int i = 0; i < listLength; i++) {
-            //dataReadyToBackup.append(dataReadyToBackup + encodeToDoToJSON(currentToDoList.getToDoData(i)));
+        backupData(currentToDoList.getData(), pathName);
+    }
+
+    /**
+     * Save the ToDos passed into the file specified, as backupData(ToDoList, String)
+     * does. It lets a backup be written from a snapshot, e.g. while the list
+     * keeps changing in another thread.
+     * @param todos the ToDos to save, not changing while they are written.
+     * @param pathName the path of the backup file.
+     * @throws BackupFailedException when the backup of the ToDos fail.
+     */
+    static void backupData(Collection<ToDo> todos, String pathName) throws BackupFailedException {
+
+        if (todos == null) {
+            throw new IllegalArgumentException("The ToDos have to be at least empty.");
         }
-        dataReadyToBackup.append("\n}");
 
-        FileIO fileHandler = new FileIO("myBackup.bak");
+        FileIO fileHandler = new FileIO(pathName);
 
         try {
-            fileHandler.create();
-            fileHandler.save(dataReadyToBackup.toString());
+            fileHandler.writeAtomically(out -> new JsonBackupWriter(out).write(todos));
         } catch (IOException ioe) {
             throw new BackupFailedException(ioe.getMessage(), ioe);
         }
-        
+
     }
 
     /**
-     * RETURN a JSON object formatted as String containing the attributes of a ToDo.
-     * @param instanceData is a string array containing the information about the ToDo. Requires to have at least 3 elements.
-     * @return the encoded string.
+     * RETURN the ToDoList saved in the file myBackup.bak.
+     * @return the restored ToDoList.
+     * @throws BackupFailedException when the file can't be read or is not a valid backup.
      */
-    private static String encodeToDoToJSON(String[] instanceData) {
-
-        if (instanceData == null || instanceData.length < 3) {
-            throw new IllegalArgumentException("The ToDos' string representation must have at least 3 elements.");
-        }
-
-        return "{\n" + "\t\"title\":\"" + instanceData[0] + "\",\n"
-                            + "\t\"description\":\"" + instanceData[1] + "\",\n"
-                            + "\t\"date\":\"" + instanceData[2] + "\",\n"
-                            + encodeTags(instanceData) + "}";
+    static ToDoList restoreData() throws BackupFailedException {
+        return restoreData(BACKUP_FILE, null);
     }
 
     /**
-     * RETURN a JSON array formatted as String containing the tags of a ToDo.
-     * @param todo valid instance of class ToDo.
-     * @return the encoded string.
+     * RETURN the ToDoList saved in the file specified. The file is parsed by
+     * JsonBackupReader while it is read, and every ToDo keeps its identifier
+     * and creation date.
+     * @param pathName the path of the backup file.
+     * @param progress the callback told about the progress of the restore, or null.
+     * @return the restored ToDoList.
+     * @throws BackupFailedException when the file can't be read or is not a valid backup.
      */
-    private static String encodeTags(String[] instanceData) {
+    static ToDoList restoreData(String pathName, JsonBackupReader.Progress progress) throws BackupFailedException {
 
-        if (instanceData == null) {
-            throw new IllegalArgumentException("The ToDos' string representation must be at least empty.");
+        if (pathName == null) {
+            throw new IllegalArgumentException("The path of the backup is required.");
         }
 
-        String encodedTags = "\t\"tags\": [ ";
-        for (int i = 3; i < instanceData.length; i++) {
-            encodedTags = encodedTags + "\"" + instanceData[i] + "\" ";
+        FileIO fileHandler = new FileIO(pathName);
+
+        try (Reader in = fileHandler.newReader()) {
+            return new JsonBackupReader(in).read(progress);
+        } catch (IOException ioe) {
+            throw new BackupFailedException(ioe.getMessage(), ioe);
         }
-        return encodedTags + "]\n";
     }
 }
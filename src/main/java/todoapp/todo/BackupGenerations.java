@@ -0,0 +1,270 @@
+package todoapp.todo;
+
+import todoapp.exceptions.BackupFailedException;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class provide the backups of the ToDos kept as generations in a
+ * directory: every backup is a new file named by the time it was written,
+ * backup-yyyyMMddTHHmmss.SSSZ-K.bak, in UTC and with K counting the backups
+ * written in the same millisecond, and the generations beyond the newest
+ * ones retained are deleted in background, after the backup. The backups
+ * can be compressed with gzip while they are written, with .gz added to
+ * their name: a JSON backup of ToDos gets several times smaller.
+ * Every file is written atomically by FileIO, so a crash leaves at most a
+ * temporary file, never a partial generation. restore() reads the newest
+ * generation that is a valid backup.
+ */
+final class BackupGenerations implements AutoCloseable {
+
+	static final int DEFAULT_RETAINED = 10;
+	private static final DateTimeFormatter TIMESTAMP =
+			DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS'Z'").withZone(ZoneOffset.UTC);
+	private static final Pattern FILE_NAME = Pattern.compile("backup-(\\d{8}T\\d{6}\\.\\d{3}Z)-(\\d+)\\.bak(\\.gz)?");
+	private static final Comparator<Path> OLDEST_FIRST = Comparator
+			.comparing((Path p) -> name(p).group(1))
+			.thenComparingLong(p -> Long.parseLong(name(p).group(2)));
+
+	/**
+	 * The object BackupGenerations implementation is done with:
+	 * - the directory, the number of generations retained and whether they
+	 * are compressed
+	 * - the clock naming the generations, the timestamp of the newest one,
+	 * read from the directory when this is created and null if there is
+	 * none, and the counter of the ones written in its millisecond, guarded
+	 * by this: the timestamps never go back, even if the clock does or is
+	 * behind the generations of a previous instance, so the names always
+	 * sort in the order the generations were written
+	 * - the background thread deleting the old generations
+	 *
+	 * INVARIANT: retained > 0.
+	 */
+	private final Path directory;
+	private final int retained;
+	private final boolean compressed;
+	private final Clock clock;
+	private String lastTimestamp;
+	private int counter;
+	private final ExecutorService pruner;
+
+	/**
+	 * Constructor that creates the generations of backups in the directory
+	 * specified, created if it doesn't exist. The new generations are named
+	 * after the ones already in the directory.
+	 * @param directory: the directory of the backups. REQUIRED not null.
+	 * @param retained: the number of generations to keep. REQUIRED positive.
+	 * @param compressed: true to compress the backups with gzip.
+	 * @throws NullPointerException when directory is null.
+	 * @throws IllegalArgumentException when retained is not positive.
+	 * @throws BackupFailedException when the directory can't be created or
+	 * read.
+	 */
+	BackupGenerations(Path directory, int retained, boolean compressed) throws BackupFailedException {
+		this(directory, retained, compressed, Clock.systemUTC());
+	}
+
+	/**
+	 * Constructor that creates the generations of backups named by the time
+	 * of the clock specified.
+	 * @param clock: the clock. REQUIRED not null.
+	 * @throws NullPointerException when directory or clock is null.
+	 * @see #BackupGenerations(Path, int, boolean)
+	 */
+	BackupGenerations(Path directory, int retained, boolean compressed, Clock clock) throws BackupFailedException {
+		if (directory == null || clock == null) {
+			throw new NullPointerException();
+		} else if (retained <= 0) {
+			throw new IllegalArgumentException("At least one generation has to be retained.");
+		}
+
+		this.directory = directory;
+		this.retained = retained;
+		this.compressed = compressed;
+		this.clock = clock;
+		this.lastTimestamp = null;
+		this.counter = 0;
+		this.pruner = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "backup-pruning");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			Files.createDirectories(directory);
+			List<Path> generations = generations(directory);
+			if (!generations.isEmpty()) {
+				Matcher newest = name(generations.get(generations.size() - 1));
+				this.lastTimestamp = newest.group(1);
+				this.counter = Integer.parseInt(newest.group(2)) + 1;
+			}
+		} catch (IOException ioe) {
+			this.pruner.shutdown();
+			throw new BackupFailedException(ioe.getMessage(), ioe);
+		}
+	}
+
+	/**
+	 * Write the ToDos passed as a new generation, and start the pruning of
+	 * the old ones. The generations are written one at a time.
+	 * @param todos: the ToDos to save, not changing while they are written.
+	 * REQUIRED not null.
+	 * @return the file of the new generation.
+	 * @throws NullPointerException when todos is null.
+	 * @throws BackupFailedException when the backup fails: the older
+	 * generations are left as they were.
+	 */
+	synchronized Path backup(Collection<ToDo> todos) throws BackupFailedException {
+		if (todos == null) {
+			throw new NullPointerException();
+		}
+
+		String timestamp = TIMESTAMP.format(this.clock.instant());
+		if (this.lastTimestamp == null || timestamp.compareTo(this.lastTimestamp) > 0) {
+			this.lastTimestamp = timestamp;
+			this.counter = 0;
+		}
+		String name;
+		do {
+			name = "backup-" + this.lastTimestamp + "-" + this.counter++ + ".bak";
+		} while (Files.exists(this.directory.resolve(name)) || Files.exists(this.directory.resolve(name + ".gz")));
+		Path file = this.directory.resolve(this.compressed ? name + ".gz" : name);
+
+		try {
+			new FileIO(file.toString()).writeAtomically(out -> new JsonBackupWriter(out).write(todos),
+					this.compressed);
+		} catch (IOException ioe) {
+			throw new BackupFailedException(ioe.getMessage(), ioe);
+		}
+		try {
+			this.prune();
+		} catch (RejectedExecutionException ree) {
+			// Closed: the generation is kept until the next pruning.
+		}
+		return file;
+	}
+
+	/**
+	 * Start the pruning of the old generations in background.
+	 * @return the future of the pruning, done once the generations beyond
+	 * the retained ones are deleted.
+	 * @throws RejectedExecutionException when this is closed.
+	 */
+	Future<?> prune() {
+		return this.pruner.submit(() -> {
+			List<Path> generations = generations(this.directory);
+			for (Path old : generations.subList(0, Math.max(0, generations.size() - this.retained))) {
+				Files.deleteIfExists(old);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * RETURN the ToDoList restored from the newest generation that is a
+	 * valid backup: a generation that can't be read is skipped for the one
+	 * before.
+	 * @return the restored list.
+	 * @throws BackupFailedException when there is no generation or none is
+	 * valid; then the error is the one of the newest generation.
+	 */
+	ToDoList restore() throws BackupFailedException {
+		return restore(this.directory);
+	}
+
+	/**
+	 * RETURN the ToDoList restored from the newest valid generation of the
+	 * directory specified, as restore() does.
+	 * @param directory: the directory of the backups. REQUIRED not null.
+	 * @throws NullPointerException when directory is null.
+	 * @see #restore()
+	 */
+	static ToDoList restore(Path directory) throws BackupFailedException {
+		if (directory == null) {
+			throw new NullPointerException();
+		}
+
+		List<Path> generations;
+		try {
+			generations = generations(directory);
+		} catch (IOException ioe) {
+			throw new BackupFailedException(ioe.getMessage(), ioe);
+		}
+		BackupFailedException error = null;
+		for (int i = generations.size() - 1; i >= 0; i--) {
+			try {
+				return Backup.restoreData(generations.get(i).toString(), null);
+			} catch (BackupFailedException bfe) {
+				if (error == null) {
+					error = bfe;
+				}
+			}
+		}
+		throw error != null ? error : new BackupFailedException("No backup in " + directory + ".");
+	}
+
+	/**
+	 * @return the files of the generations, from the oldest to the newest.
+	 * @throws IOException when the directory can't be read.
+	 */
+	List<Path> getGenerations() throws IOException {
+		return generations(this.directory);
+	}
+
+	/**
+	 * MODIFY this by waiting for the pruning running, if any, and stopping
+	 * the background thread. The backups written by this are no longer pruned.
+	 */
+	@Override
+	public void close() {
+		this.pruner.shutdown();
+		try {
+			this.pruner.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * RETURN the files of the generations of the directory, from the oldest
+	 * to the newest, or an empty list if it doesn't exist.
+	 */
+	private static List<Path> generations(Path directory) throws IOException {
+		List<Path> res = new ArrayList<Path>();
+		if (!Files.isDirectory(directory)) {
+			return res;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				if (name(file).matches()) {
+					res.add(file);
+				}
+			}
+		}
+		res.sort(OLDEST_FIRST);
+		return res;
+	}
+
+	private static Matcher name(Path file) {
+		Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+		m.matches();
+		return m;
+	}
+
+}	// class BackupGenerations
@@ -0,0 +1,367 @@
+package todoapp.todo;
+
+import todoapp.exceptions.BackupFailedException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class provide the backups of a ToDoStore done in background, when it
+ * changed: the changes only mark the store as changed, and the backup is
+ * written once the store has been quiet for a while, so that a burst of
+ * changes causes a single backup. A store that never stays quiet is backed
+ * up anyway once its first change not backed up is old enough.
+ * A ToDoList tells the scheduler about its changes by itself; any other
+ * store needs a call to markChanged() after every change.
+ * The backup is written from a snapshot of the store, taken by the snapshot
+ * executor: for a ToDoList it has to run the tasks in the thread that
+ * modifies the list, e.g. the event thread of the UI, for a store that can
+ * be shared, as ConcurrentToDoList, it can run them in place. Taking the
+ * snapshot only copies the references to the ToDos; the file is written by
+ * the background thread of the scheduler, so the thread modifying the store
+ * never waits for the disk.
+ * The backup either replaces a single file, or is written as a new
+ * generation of BackupGenerations.
+ */
+final class BackupScheduler implements ToDoListListener, AutoCloseable {
+
+	/**
+	 * What the scheduler is doing.
+	 */
+	enum Status {
+		/**
+		 * Every change is backed up.
+		 */
+		IDLE,
+		/**
+		 * There are changes waiting for the store to be quiet.
+		 */
+		PENDING,
+		/**
+		 * A backup is being written.
+		 */
+		RUNNING
+	}
+
+	/**
+	 * Where the backups are written.
+	 */
+	private interface Target {
+
+		void write(List<ToDo> todos) throws BackupFailedException;
+	}
+
+	/**
+	 * The object BackupScheduler implementation is done with:
+	 * - the store, the executor of its snapshots, and where the backups are
+	 * written
+	 * - the quiet period and the maximum delay of a backup, in nanoseconds
+	 * - the background thread, that waits for the quiet period and writes
+	 * the backups
+	 * - the time of the first and of the last change not backed up yet, the
+	 * first being -1 when there is none, and whether the timer is set
+	 * - the number of backups running, the time of the last one succeeded,
+	 * the error of the last one if it failed, and the number of backups done
+	 * - whether the scheduler is closed
+	 * All the mutable fields are guarded by this.
+	 *
+	 * INVARIANT: timerSet if firstChange != -1 and not closed.
+	 */
+	private final ToDoStore store;
+	private final Executor snapshotExecutor;
+	private final Target target;
+	private final long quietNanos;
+	private final long maxDelayNanos;
+	private final ScheduledExecutorService worker;
+	private long firstChange;
+	private long lastChange;
+	private boolean timerSet;
+	private int running;
+	private Instant lastSuccess;
+	private BackupFailedException lastError;
+	private long backups;
+	private boolean closed;
+
+	/**
+	 * Constructor that creates a scheduler backing up the store specified,
+	 * already started. If the store is a ToDoList, the scheduler follows its
+	 * changes.
+	 * @param store: the store to back up. REQUIRED not null.
+	 * @param snapshotExecutor: the executor taking the snapshots of the store,
+	 * in the thread modifying it if the store can't be shared. REQUIRED not
+	 * null.
+	 * @param pathName: the path of the backup file. REQUIRED not null.
+	 * @param quietPeriod: how long the store has to be quiet before a backup.
+	 * REQUIRED not null and not negative.
+	 * @param maxDelay: the longest time a change waits for its backup.
+	 * REQUIRED not null and not shorter than quietPeriod.
+	 * @throws NullPointerException when an argument is null.
+	 * @throws IllegalArgumentException when quietPeriod is negative or maxDelay
+	 * is shorter than quietPeriod.
+	 */
+	BackupScheduler(ToDoStore store, Executor snapshotExecutor, String pathName, Duration quietPeriod,
+			Duration maxDelay) {
+
+		this(store, snapshotExecutor, pathName == null ? null : todos -> Backup.backupData(todos, pathName),
+				quietPeriod, maxDelay);
+	}
+
+	/**
+	 * Constructor that creates a scheduler backing up the store specified as
+	 * new generations of the backups generations, already started.
+	 * @param generations: the generations of the backups. REQUIRED not null.
+	 * @throws NullPointerException when an argument is null.
+	 * @throws IllegalArgumentException when quietPeriod is negative or maxDelay
+	 * is shorter than quietPeriod.
+	 * @see #BackupScheduler(ToDoStore, Executor, String, Duration, Duration)
+	 */
+	BackupScheduler(ToDoStore store, Executor snapshotExecutor, BackupGenerations generations,
+			Duration quietPeriod, Duration maxDelay) {
+
+		this(store, snapshotExecutor, generations == null ? null : generations::backup, quietPeriod, maxDelay);
+	}
+
+	private BackupScheduler(ToDoStore store, Executor snapshotExecutor, Target target, Duration quietPeriod,
+			Duration maxDelay) {
+
+		if (store == null || snapshotExecutor == null || target == null || quietPeriod == null
+				|| maxDelay == null) {
+			throw new NullPointerException();
+		} else if (quietPeriod.isNegative() || maxDelay.compareTo(quietPeriod) < 0) {
+			throw new IllegalArgumentException("The delays must be 0 <= quietPeriod <= maxDelay.");
+		}
+
+		this.store = store;
+		this.snapshotExecutor = snapshotExecutor;
+		this.target = target;
+		this.quietNanos = quietPeriod.toNanos();
+		this.maxDelayNanos = maxDelay.toNanos();
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread t = new Thread(r, "backup-scheduler");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		this.worker = executor;
+		this.firstChange = -1;
+		this.timerSet = false;
+		this.running = 0;
+		this.lastSuccess = null;
+		this.lastError = null;
+		this.backups = 0;
+		this.closed = false;
+
+		if (store instanceof ToDoList) {
+			((ToDoList) store).addListener(this);
+		}
+	}
+
+	/**
+	 * Mark the store as changed.
+	 */
+	@Override
+	public void changed(ToDoList list, List<Mutation> mutations) {
+		this.markChanged();
+	}
+
+	/**
+	 * MODIFY this by marking the store as changed: a backup will follow once
+	 * the store is quiet. It only takes the time of the change, and sets a
+	 * timer if none is set.
+	 */
+	synchronized void markChanged() {
+		if (this.closed) {
+			return;
+		}
+		long now = System.nanoTime();
+		this.lastChange = now;
+		if (this.firstChange == -1) {
+			this.firstChange = now;
+		}
+		if (!this.timerSet) {
+			this.timerSet = true;
+			this.worker.schedule(this::onTimer, this.quietNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Called by the timer: if the store was quiet for the quiet period, or the
+	 * first change waited for the maximum delay, start a backup, otherwise set
+	 * the timer again for the rest of the period.
+	 */
+	private void onTimer() {
+		synchronized (this) {
+			if (this.closed) {
+				return;
+			}
+			long now = System.nanoTime();
+			long wait = Math.min(this.lastChange + this.quietNanos, this.firstChange + this.maxDelayNanos) - now;
+			if (wait > 0) {
+				this.worker.schedule(this::onTimer, wait, TimeUnit.NANOSECONDS);
+				return;
+			}
+			this.timerSet = false;
+			this.firstChange = -1;
+			this.running++;
+		}
+		this.startBackup();
+	}
+
+	/**
+	 * Take the snapshot of the store with the snapshot executor, then write
+	 * it with the background thread.
+	 */
+	private void startBackup() {
+		try {
+			this.snapshotExecutor.execute(() -> {
+				List<ToDo> todos = this.store.snapshot();
+				try {
+					this.worker.execute(() -> this.write(todos));
+				} catch (RejectedExecutionException ree) {
+					this.abandoned();
+				}
+			});
+		} catch (RuntimeException e) {
+			this.finished(new BackupFailedException("The snapshot of the store can't be taken.", e));
+		}
+	}
+
+	/**
+	 * Write the backup of a snapshot.
+	 */
+	private void write(List<ToDo> todos) {
+		try {
+			this.target.write(todos);
+			this.finished(null);
+		} catch (BackupFailedException | RuntimeException e) {
+			this.finished(e instanceof BackupFailedException ? (BackupFailedException) e
+					: new BackupFailedException(e.getMessage(), e));
+		}
+	}
+
+	/**
+	 * MODIFY this by recording the end of a backup.
+	 * @param error: the error of the backup, or null if it succeeded.
+	 */
+	private synchronized void finished(BackupFailedException error) {
+		this.running--;
+		this.lastError = error;
+		if (error == null) {
+			this.lastSuccess = Instant.now();
+			this.backups++;
+		}
+		this.notifyAll();
+	}
+
+	/**
+	 * MODIFY this by recording a backup not written because the scheduler
+	 * was closed, that so wrote its own.
+	 */
+	private synchronized void abandoned() {
+		this.running--;
+		this.notifyAll();
+	}
+
+	/**
+	 * @return what the scheduler is doing.
+	 */
+	synchronized Status getStatus() {
+		if (this.running > 0) {
+			return Status.RUNNING;
+		}
+		return this.firstChange == -1 ? Status.IDLE : Status.PENDING;
+	}
+
+	/**
+	 * @return the time the last successful backup ended, or null if there
+	 * was none.
+	 */
+	synchronized Instant getLastSuccess() {
+		return this.lastSuccess;
+	}
+
+	/**
+	 * @return the error of the last backup, or null if it succeeded or there
+	 * was none.
+	 */
+	synchronized BackupFailedException getLastError() {
+		return this.lastError;
+	}
+
+	/**
+	 * @return the number of successful backups.
+	 */
+	synchronized long getBackupCount() {
+		return this.backups;
+	}
+
+	/**
+	 * Wait until no backup is pending or running, or the timeout expires.
+	 * @param timeout: the longest time to wait. REQUIRED not null.
+	 * @return true if no backup is pending or running, false if the timeout
+	 * expired.
+	 * @throws InterruptedException when the thread is interrupted while it
+	 * waits.
+	 */
+	synchronized boolean awaitIdle(Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (this.getStatus() != Status.IDLE) {
+			long left = deadline - System.nanoTime();
+			if (left <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+		}
+		return true;
+	}
+
+	/**
+	 * MODIFY this by stopping the scheduler: the store is no longer followed
+	 * and, if it changed since the last backup or a backup is running, a last
+	 * backup is written now,
+	 * from a snapshot taken in the calling thread. It waits for the backup
+	 * running, if any.
+	 * It has to be called by a thread that can take the snapshot of the store.
+	 * @throws BackupFailedException when the last backup fails.
+	 */
+	@Override
+	public void close() throws BackupFailedException {
+		boolean changed;
+		synchronized (this) {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			changed = this.firstChange != -1 || this.running > 0;
+			this.firstChange = -1;
+			this.timerSet = false;
+		}
+		if (this.store instanceof ToDoList) {
+			((ToDoList) this.store).removeListener(this);
+		}
+
+		this.worker.shutdown();
+		try {
+			this.worker.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		if (changed) {
+			synchronized (this) {
+				this.running++;
+			}
+			this.write(this.store.snapshot());
+			BackupFailedException error = this.getLastError();
+			if (error != null) {
+				throw error;
+			}
+		}
+	}
+
+}	// class BackupScheduler
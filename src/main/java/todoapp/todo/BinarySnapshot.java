@@ -0,0 +1,569 @@
+package todoapp.todo;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import todoapp.exceptions.EmptyFieldException;
+import todoapp.todo.Tag.Color;
+
+/**
+ * This class provide the compact binary snapshot of a list of ToDo, much
+ * smaller and faster to load than the JSON backup. The file is:
+ * - the header: the magic bytes "TDSN" and the version, as a short
+ * - the tag dictionary: the number of tags, then for each tag its color
+ * ordinal and its text
+ * - the number of ToDos, then a record for each ToDo
+ * A record starts with the length of the rest of the record, so it can be
+ * skipped, and holds the identifier, the creation as seconds from the epoch
+ * in UTC and nanoseconds, the number of tags and their positions in the
+ * dictionary, the title and the description, which comes last.
+ * Numbers are varints (seconds in zig-zag), strings are their UTF-8 length
+ * followed by the bytes; the description length is written plus one, so that
+ * 0 means null.
+ * The file can end with the trailer of FileIO, with the length and the
+ * CRC32C of the rest of the file, verified before the ToDos are read.
+ * The file is written through a FileChannel from a large direct buffer to
+ * a temporary file, forced to the disk and moved over the old one, and read
+ * through a memory mapping, in windows for files over 1 GB.
+ * readLazy() reads the ToDos without their descriptions: each one keeps
+ * only where its description is in the mapping, and reads it the first time
+ * it is needed, through a small cache of the ones read last. The heap holds
+ * only titles, tags and creation dates, and the descriptions stay in the
+ * cache of the OS.
+ */
+final class BinarySnapshot {
+
+	static final byte[] MAGIC = { 'T', 'D', 'S', 'N' };
+	static final short VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final long MAX_WINDOW = 1L << 30;
+	private static final TagRegistry REGISTRY = TagRegistry.getInstance();
+	static final int DEFAULT_DESCRIPTION_CACHE = 256;
+
+	private BinarySnapshot() {
+	}
+
+	/**
+	 * Write the snapshot of the ToDos passed, replacing the file atomically.
+	 * @param todos: the ToDos. REQUIRED not null and not changing while it is
+	 * written.
+	 * @param path: the file. REQUIRED not null.
+	 * @throws NullPointerException when todos or path is null.
+	 * @throws IOException when the file can't be written.
+	 */
+	static void write(Collection<ToDo> todos, Path path) throws IOException {
+		write(todos, path, false);
+	}
+
+	/**
+	 * Write the snapshot of the ToDos passed, replacing the file, followed
+	 * by the trailer with its checksum if checksum is true. The snapshot is
+	 * written to the temporary file path.tmp, forced to the disk and moved
+	 * over the file, so a mapping of the old file, as the one of readLazy(),
+	 * keeps its content, and the file is left as it was if the write fails.
+	 * @param todos: the ToDos. REQUIRED not null and not changing while it is
+	 * written.
+	 * @param path: the file. REQUIRED not null.
+	 * @param checksum: true to append the trailer.
+	 * @throws NullPointerException when todos or path is null.
+	 * @throws IOException when the file can't be written.
+	 */
+	static void write(Collection<ToDo> todos, Path path, boolean checksum) throws IOException {
+		if (todos == null || path == null) {
+			throw new NullPointerException();
+		}
+
+		int[] localIds = new int[REGISTRY.size()];
+		Arrays.fill(localIds, -1);
+		List<Tag> dictionary = new ArrayList<Tag>();
+		for (ToDo todo : todos) {
+			for (int i = 0; i < todo.getTagCount(); i++) {
+				int tagId = todo.getTagId(i);
+				if (localIds[tagId] < 0) {
+					localIds[tagId] = dictionary.size();
+					dictionary.add(REGISTRY.get(tagId));
+				}
+			}
+		}
+
+		Path target = path.toAbsolutePath();
+		Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				writeTo(channel, todos, dictionary, localIds, checksum);
+				channel.force(true);
+			}
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+		FileIO.syncDirectory(target.getParent());
+	}
+
+	/**
+	 * Write the snapshot to the channel.
+	 */
+	private static void writeTo(FileChannel channel, Collection<ToDo> todos, List<Tag> dictionary, int[] localIds,
+			boolean checksum) throws IOException {
+
+		Output out = new Output(channel, checksum ? new CRC32C() : null);
+		out.bytes(MAGIC);
+		out.ensure(Short.BYTES);
+		out.buf.putShort(VERSION);
+
+		out.varint(dictionary.size());
+		for (Tag tag : dictionary) {
+			out.varint(tag.getColor().ordinal());
+			byte[] text = tag.getText().getBytes(StandardCharsets.UTF_8);
+			out.varint(text.length);
+			out.bytes(text);
+		}
+
+		out.varint(todos.size());
+		int written = 0;
+		for (ToDo todo : todos) {
+			writeRecord(out, todo, localIds);
+			written++;
+		}
+		if (written != todos.size()) {
+			throw new IOException("The ToDos changed while the snapshot was written.");
+		}
+		out.flush();
+		if (checksum) {
+			ByteBuffer trailer = ByteBuffer.allocate(FileIO.TRAILER_SIZE);
+			trailer.putLong(channel.position()).putInt((int) out.crc.getValue()).put(FileIO.TRAILER_MAGIC).flip();
+			while (trailer.hasRemaining()) {
+				channel.write(trailer);
+			}
+		}
+	}
+
+	/**
+	 * Write the record of a ToDo.
+	 */
+	private static void writeRecord(Output out, ToDo todo, int[] localIds) throws IOException {
+		byte[] title = todo.getTitle().getBytes(StandardCharsets.UTF_8);
+		byte[] description = todo.getDescription() == null ? null
+				: todo.getDescription().getBytes(StandardCharsets.UTF_8);
+		long seconds = Varint.zigZag(todo.getCreation().toEpochSecond(ZoneOffset.UTC));
+		int nanos = todo.getCreation().getNano();
+		long descriptionLength = description == null ? 0 : description.length + 1L;
+
+		long length = Varint.size(todo.getId()) + Varint.size(seconds) + Varint.size(nanos)
+				+ Varint.size(todo.getTagCount()) + Varint.size(title.length) + title.length
+				+ Varint.size(descriptionLength) + (description == null ? 0 : description.length);
+		for (int i = 0; i < todo.getTagCount(); i++) {
+			length += Varint.size(localIds[todo.getTagId(i)]);
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("The ToDo " + todo.getId() + " is too big for a snapshot.");
+		}
+
+		out.varint(length);
+		out.varint(todo.getId());
+		out.varint(seconds);
+		out.varint(nanos);
+		out.varint(todo.getTagCount());
+		for (int i = 0; i < todo.getTagCount(); i++) {
+			out.varint(localIds[todo.getTagId(i)]);
+		}
+		out.varint(title.length);
+		out.bytes(title);
+		out.varint(descriptionLength);
+		if (description != null) {
+			out.bytes(description);
+		}
+	}
+
+	/**
+	 * RETURN a new list with the ToDos of a snapshot, which keep their
+	 * identifiers and creation dates.
+	 * @param path: the file. REQUIRED not null.
+	 * @return the list.
+	 * @throws NullPointerException when path is null.
+	 * @throws IOException when the file can't be read or is not a valid
+	 * snapshot.
+	 */
+	static ToDoList read(Path path) throws IOException {
+		if (path == null) {
+			throw new NullPointerException();
+		}
+
+		List<ToDo> todos = read(path, null);
+		ToDoList list = new ToDoList(todos.size());
+		for (ToDo todo : todos) {
+			if (!list.addToDo(todo)) {
+				throw new IOException("Corrupted snapshot: duplicated ToDo " + todo.getId() + ".");
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * RETURN the ToDos of a snapshot, in the order they were written, as
+	 * read() does but without building a list: e.g. to read many snapshots
+	 * in parallel and merge them.
+	 * @param path: the file. REQUIRED not null.
+	 * @return a new List with the ToDos.
+	 * @throws NullPointerException when path is null.
+	 * @throws IOException when the file can't be read or is not a valid
+	 * snapshot.
+	 */
+	static List<ToDo> readToDos(Path path) throws IOException {
+		if (path == null) {
+			throw new NullPointerException();
+		}
+
+		return read(path, null);
+	}
+
+	/**
+	 * RETURN a new list with the ToDos of a snapshot, as read() does, whose
+	 * descriptions are read from the file only when they are needed. The
+	 * file stays mapped as long as the ToDos are used, even once it is
+	 * deleted or replaced by a move, as write() does: the ToDos read can be
+	 * written back to the same file. It MUST NOT be written in place by
+	 * anything else.
+	 * @param path: the file. REQUIRED not null.
+	 * @param cacheSize: the number of descriptions kept once they are read.
+	 * REQUIRED not negative.
+	 * @return the list.
+	 * @throws NullPointerException when path is null.
+	 * @throws IllegalArgumentException when cacheSize is negative.
+	 * @throws IOException when the file can't be read or is not a valid
+	 * snapshot.
+	 */
+	static ToDoList readLazy(Path path, int cacheSize) throws IOException {
+		if (path == null) {
+			throw new NullPointerException();
+		} else if (cacheSize < 0) {
+			throw new IllegalArgumentException("The size of the cache can't be negative.");
+		}
+
+		List<ToDo> todos = read(path, new Descriptions(cacheSize));
+		ToDoList list = new ToDoList(todos.size());
+		for (ToDo todo : todos) {
+			if (!list.addToDo(todo)) {
+				throw new IOException("Corrupted snapshot: duplicated ToDo " + todo.getId() + ".");
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * RETURN the ToDos of a snapshot, with lazy descriptions read from
+	 * descriptions if it is not null.
+	 */
+	private static List<ToDo> read(Path path, Descriptions descriptions) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer trailer = FileIO.readTrailer(channel);
+			long size = trailer == null ? channel.size() : trailer.getLong(0);
+			if (trailer != null && checksum(channel, size) != trailer.getInt(Long.BYTES)) {
+				throw new IOException("Corrupted snapshot: the checksum doesn't match.");
+			}
+			Input in = new Input(channel, size);
+			in.ensure(MAGIC.length + Short.BYTES);
+			byte[] magic = new byte[MAGIC.length];
+			in.buf.get(magic);
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IOException("Not a ToDo snapshot.");
+			}
+			short version = in.buf.getShort();
+			if (version != VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + ".");
+			}
+
+			Tag[] dictionary = new Tag[in.varintInt()];
+			Color[] colors = Color.values();
+			for (int i = 0; i < dictionary.length; i++) {
+				int color = in.varintInt();
+				String text = in.string(in.varintInt());
+				if (color >= colors.length || text.isEmpty()) {
+					throw new IOException("Corrupted snapshot: invalid tag " + i + ".");
+				}
+				dictionary[i] = REGISTRY.intern(text, colors[color]);
+			}
+
+			int count = in.varintInt();
+			List<ToDo> todos = new ArrayList<ToDo>(Math.min(count, (int) Math.min(size, Integer.MAX_VALUE)));
+			List<Tag> tags = new ArrayList<Tag>();
+			for (int i = 0; i < count; i++) {
+				int length = in.varintInt();
+				in.ensure(length);
+				int start = in.buf.position();
+				ToDo todo = readRecord(in, dictionary, tags, descriptions);
+				if (in.buf.position() - start != length) {
+					throw new IOException("Corrupted snapshot: invalid record " + i + ".");
+				}
+				todos.add(todo);
+			}
+			if (in.position() != size) {
+				throw new IOException("Corrupted snapshot: unexpected data after the records.");
+			}
+			return todos;
+		} catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+			throw new IOException("Corrupted snapshot.", e);
+		}
+	}
+
+	/**
+	 * RETURN the CRC32C of the first size bytes of the channel, mapped in
+	 * windows.
+	 */
+	private static int checksum(FileChannel channel, long size) throws IOException {
+		CRC32C crc = new CRC32C();
+		for (long position = 0; position < size; position += MAX_WINDOW) {
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAX_WINDOW)));
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * RETURN the ToDo of a record, whose bytes are all in the window.
+	 */
+	private static ToDo readRecord(Input in, Tag[] dictionary, List<Tag> tags, Descriptions descriptions)
+			throws IOException {
+		long id = in.varint();
+		long seconds = Varint.unZigZag(in.varint());
+		int nanos = in.varintInt();
+		LocalDateTime creation = LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+
+		int tagCount = in.varintInt();
+		tags.clear();
+		for (int i = 0; i < tagCount; i++) {
+			int local = in.varintInt();
+			if (local >= dictionary.length) {
+				throw new IOException("Corrupted snapshot: invalid tag of the ToDo " + id + ".");
+			}
+			tags.add(dictionary[local]);
+		}
+
+		String title = in.string(in.varintInt());
+		int descriptionLength = in.varintInt();
+		try {
+			if (descriptions != null && descriptionLength > 0) {
+				ToDo.LazyDescription description = descriptions.add(in.buf, in.buf.position(), descriptionLength - 1);
+				in.buf.position(in.buf.position() + descriptionLength - 1);
+				return ToDo.lazy(id, title, description, creation, tags);
+			}
+			String description = descriptionLength == 0 ? null : in.string(descriptionLength - 1);
+			return new ToDo(id, title, description, creation, tags);
+		} catch (EmptyFieldException efe) {
+			throw new IOException("Corrupted snapshot: empty title of the ToDo " + id + ".", efe);
+		}
+	}
+
+	/**
+	 * The windows of a snapshot mapped in memory holding the lazy
+	 * descriptions of its ToDos, and the cache of the descriptions read last,
+	 * guarded by this.
+	 */
+	private static final class Descriptions {
+		private final List<ByteBuffer> windows;
+		private final Map<MappedDescription, String> cache;
+
+		private Descriptions(int cacheSize) {
+			this.windows = new ArrayList<ByteBuffer>();
+			this.cache = new LinkedHashMap<MappedDescription, String>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<MappedDescription, String> eldest) {
+					return this.size() > cacheSize;
+				}
+			};
+		}
+
+		/**
+		 * RETURN the lazy description at a position of a window, which must
+		 * be the last one added or a new one.
+		 */
+		private MappedDescription add(ByteBuffer window, int position, int length) {
+			int last = this.windows.size() - 1;
+			if (last < 0 || this.windows.get(last) != window) {
+				this.windows.add(window);
+				last++;
+			}
+			return new MappedDescription(this, last, position, length);
+		}
+
+		private synchronized String resolve(MappedDescription description) {
+			String res = this.cache.get(description);
+			if (res == null) {
+				byte[] bytes = new byte[description.length];
+				ByteBuffer window = this.windows.get(description.window).duplicate();
+				window.position(description.position);
+				window.get(bytes);
+				res = new String(bytes, StandardCharsets.UTF_8);
+				this.cache.put(description, res);
+			}
+			return res;
+		}
+	}
+
+	/**
+	 * The description of a ToDo left in the mapping of the snapshot: only
+	 * its window, its position and its length in bytes.
+	 */
+	private static final class MappedDescription implements ToDo.LazyDescription {
+		private final Descriptions source;
+		private final int window;
+		private final int position;
+		private final int length;
+
+		private MappedDescription(Descriptions source, int window, int position, int length) {
+			this.source = source;
+			this.window = window;
+			this.position = position;
+			this.length = length;
+		}
+
+		@Override
+		public String resolve() {
+			return this.source.resolve(this);
+		}
+	}
+
+	/**
+	 * The direct buffer the snapshot is written to, drained to the channel
+	 * every time it is full, and the checksum of the bytes drained, if any.
+	 */
+	private static final class Output {
+		private final FileChannel channel;
+		private final ByteBuffer buf;
+		private final CRC32C crc;
+
+		private Output(FileChannel channel, CRC32C crc) {
+			this.channel = channel;
+			this.buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			this.crc = crc;
+		}
+
+		/**
+		 * Make room for n bytes, draining the buffer if needed.
+		 * @param n: the bytes needed. REQUIRED at most BUFFER_SIZE.
+		 */
+		private void ensure(int n) throws IOException {
+			if (this.buf.remaining() < n) {
+				this.flush();
+			}
+		}
+
+		private void varint(long value) throws IOException {
+			this.ensure(Varint.MAX_SIZE);
+			Varint.put(this.buf, value);
+		}
+
+		/**
+		 * Write bytes of any length, in pieces as long as the room left.
+		 */
+		private void bytes(byte[] bytes) throws IOException {
+			int offset = 0;
+			while (offset < bytes.length) {
+				if (!this.buf.hasRemaining()) {
+					this.flush();
+				}
+				int n = Math.min(this.buf.remaining(), bytes.length - offset);
+				this.buf.put(bytes, offset, n);
+				offset += n;
+			}
+		}
+
+		private void flush() throws IOException {
+			this.buf.flip();
+			if (this.crc != null) {
+				this.crc.update(this.buf.duplicate());
+			}
+			while (this.buf.hasRemaining()) {
+				this.channel.write(this.buf);
+			}
+			this.buf.clear();
+		}
+	}
+
+	/**
+	 * The window of the file mapped in memory, moved forward when the next
+	 * item doesn't fit in what is left of it.
+	 */
+	private static final class Input {
+		private final FileChannel channel;
+		private final long size;
+		private long base;
+		private MappedByteBuffer buf;
+		private byte[] scratch;
+
+		private Input(FileChannel channel, long size) throws IOException {
+			this.channel = channel;
+			this.size = size;
+			this.base = 0;
+			this.buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(this.size, MAX_WINDOW));
+			this.scratch = new byte[256];
+		}
+
+		/**
+		 * RETURN the position in the file.
+		 */
+		private long position() {
+			return this.base + this.buf.position();
+		}
+
+		/**
+		 * Make sure the next n bytes are in the window, mapping a new window
+		 * from the current position if needed.
+		 */
+		private void ensure(long n) throws IOException {
+			if (this.buf.remaining() >= n) {
+				return;
+			}
+			long position = this.position();
+			if (position + n > this.size) {
+				throw new EOFException("Truncated snapshot.");
+			}
+			this.base = position;
+			this.buf = this.channel.map(FileChannel.MapMode.READ_ONLY, position,
+					Math.min(this.size - position, Math.max(MAX_WINDOW, n)));
+		}
+
+		private long varint() throws IOException {
+			this.ensure(Math.min(Varint.MAX_SIZE, Math.max(1, this.size - this.position())));
+			return Varint.get(this.buf);
+		}
+
+		private int varintInt() throws IOException {
+			this.ensure(Math.min(Varint.MAX_SIZE, Math.max(1, this.size - this.position())));
+			return Varint.getInt(this.buf);
+		}
+
+		/**
+		 * RETURN the string of the next length bytes.
+		 */
+		private String string(int length) throws IOException {
+			this.ensure(length);
+			if (this.scratch.length < length) {
+				this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+			}
+			this.buf.get(this.scratch, 0, length);
+			return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+
+}	// class BinarySnapshot
@@ -0,0 +1,570 @@
+package todoapp.todo;
+
+import todoapp.exceptions.EmptyFieldException;
+import todoapp.exceptions.VersionConflictException;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * This class provide a ToDoStore that can be shared between threads, so that
+ * a backup or an import can run while the user is editing.
+ * Reads never lock: since a ToDo is immutable, a reader always sees a whole
+ * ToDo, before or after a change. Every change of a ToDo is atomic: it is
+ * computed from the stored ToDo while the other writers of the same ToDo
+ * wait, and writers of different ToDos don't wait for each other.
+ * compareAndModify() doesn't even wait for the writers of the same ToDo: it
+ * replaces the stored version with a compare-and-set, and fails if another
+ * change came first.
+ * Iterators and streams are weakly consistent: they never throw
+ * ConcurrentModificationException and see each ToDo at most once, but they
+ * may or may not see the changes done while they run. snapshot() is the way
+ * to get a consistent copy.
+ * The queries of ToDoList are not provided: a snapshot can be loaded in a
+ * ToDoList to run them.
+ * INVARIANT: the list doesn't contain duplicates.
+ */
+class ConcurrentToDoList implements ToDoStore {
+
+	/**
+	 * The object ConcurrentToDoList implementation is done with:
+	 * - a ConcurrentHashMap from the identifier of each ToDo to an immutable
+	 * Versioned pair of the ToDo and its version; its locking per bin keeps
+	 * the writers of different ToDos apart
+	 * - a ReadWriteLock taken shared by every writer and exclusive by
+	 * snapshot(), that so waits only for the changes already started
+	 * - a read-only view of the ToDos
+	 *
+	 * INVARIANT: every ToDo is stored under its own identifier.
+	 */
+	private final ConcurrentHashMap<Long, Versioned> loadedToDos;
+	private final ReadWriteLock snapshotLock;
+	private final Collection<ToDo> readOnlyView;
+
+	/**
+     * Constructor that creates a new empty list.
+     */
+	public ConcurrentToDoList() {
+		this(0);
+	}
+
+	/**
+     * Constructor that creates a new empty list, sized to hold the number of
+	 * ToDo specified without growing.
+     * @param expectedSize: the number of ToDo expected. REQUIRED not negative.
+	 * @throws IllegalArgumentException when expectedSize is negative.
+     */
+	public ConcurrentToDoList(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException();
+		}
+
+		this.loadedToDos = new ConcurrentHashMap<Long, Versioned>(expectedSize);
+		this.snapshotLock = new ReentrantReadWriteLock();
+		this.readOnlyView = new ToDoView();
+	}
+
+	/**
+     * Constructor that creates a new list with the ToDos of a snapshot of the
+	 * store specified.
+     * @param store: the store to copy. REQUIRED not null.
+	 * @throws NullPointerException when store is null.
+     */
+	public ConcurrentToDoList(ToDoStore store) {
+		this(Objects.requireNonNull(store).snapshot());
+	}
+
+	/**
+     * Constructor that creates a new list with the ToDos of the collection
+	 * specified. If more ToDos have the same identifier only the first is
+	 * added.
+     * @param todoColl: the ToDos to add. REQUIRED not null.
+	 * @throws NullPointerException when todoColl or one of its ToDos is null.
+     */
+	public ConcurrentToDoList(Collection<ToDo> todoColl) {
+		this(Objects.requireNonNull(todoColl).size());
+		for (ToDo todo : todoColl) {
+			this.addToDo(todo);
+		}
+	}
+
+	/**
+     * Check whether the ToDo passed is present in the list or not.
+     * @param todo: the ToDo instance to search in the list. REQUIRED to be not
+	 * null.
+     * @return true if the ToDo is in with the same content, false otherwise.
+     * @throws NullPointerException when todo is null.
+     */
+	public boolean contains(ToDo todo) {
+
+		if (todo == null) {
+			throw new NullPointerException();
+		}
+
+		Versioned stored = this.loadedToDos.get(todo.getId());
+		return stored != null && stored.todo.equals(todo);
+	}
+
+	/**
+     * Check whether a ToDo with the identifier passed is present in the list
+	 * or not.
+     * @param id: the identifier of the ToDo to search in the list.
+     * @return true if the ToDo is in, false otherwise.
+     */
+	public boolean contains(long id) {
+		return this.loadedToDos.containsKey(id);
+	}
+
+	/**
+     * Get the ToDo with the identifier passed.
+     * @param id: the identifier of the ToDo to search in the list.
+     * @return the ToDo if it is in the list, null otherwise.
+     */
+	public ToDo get(long id) {
+		Versioned stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return null;
+		}
+		return stored.todo;
+	}
+
+	/**
+     * MODIFY this by adding a new ToDo to the list (if todo not already exists)
+     * @param newToDo: the ToDo instance to add to the list. REQUIRED to be not
+	 * null.
+     * @return true if the ToDo is added, false if todo was already present in
+	 * the list.
+     * @throws NullPointerException when todo is null. In this case nothing is
+	 * modified.
+     */
+	public boolean addToDo(ToDo newToDo) {
+
+		if (newToDo == null) {
+			throw new NullPointerException();
+		}
+
+		Lock lock = this.snapshotLock.readLock();
+		lock.lock();
+		try {
+			return this.loadedToDos.putIfAbsent(newToDo.getId(), new Versioned(newToDo, 0)) == null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+     * MODIFY this by deleting the ToDo specified from the list (if the stored
+	 * ToDo is still equal to todo).
+     * @param todo: instance of ToDo that has to be removed from the list.
+	 * REQUIRED to be not null.
+	 * @return true if todo is correctly removed, false if todo wasn't
+	 * present in the list.
+	 * @throws NullPointerException if todo is null. In this case nothing is
+	 * modified.
+     */
+	public boolean removeToDo(ToDo todo) {
+
+		if (todo == null) {
+			throw new NullPointerException();
+		}
+
+		boolean[] removed = new boolean[1];
+		Lock lock = this.snapshotLock.readLock();
+		lock.lock();
+		try {
+			this.loadedToDos.computeIfPresent(todo.getId(), (key, stored) -> {
+				removed[0] = stored.todo.equals(todo);
+				return removed[0] ? null : stored;
+			});
+		} finally {
+			lock.unlock();
+		}
+		return removed[0];
+	}
+
+	/**
+     * MODIFY this by deleting the ToDo with the identifier specified from the
+	 * list (if it exists in the list).
+     * @param id: the identifier of the ToDo that has to be removed.
+	 * @return true if the ToDo is correctly removed, false if it wasn't
+	 * present in the list.
+     */
+	public boolean removeToDo(long id) {
+		Lock lock = this.snapshotLock.readLock();
+		lock.lock();
+		try {
+			return this.loadedToDos.remove(id) != null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+     * MODIFY this by changing the title of the ToDo specified (if the stored
+	 * ToDo is still equal to todo). The ToDo passed wouldn't be modified.
+     * @param todo: instance of ToDo that has to be modified in the list.
+	 * REQUIRED to be not null.
+     * @param newTitle: the new title. REQUIRED to be not null and not empty.
+	 * @return the modified ToDo, or null if todo is not present in the list.
+	 * @throws NullPointerException when newTitle or todo is null. In this case
+	 * nothing is modified.
+     * @throws EmptyFieldException when newTitle is empty. In this case nothing
+	 * is modified.
+     */
+	public ToDo modifyToDoTitle(ToDo todo, String newTitle) throws EmptyFieldException {
+
+		if (newTitle == null || todo == null) {
+			throw new NullPointerException();
+		} else if (newTitle.isEmpty()) {
+			throw new EmptyFieldException("A ToDo title can't be empty.", "newTitle", "A non-empty string.");
+		}
+
+		return this.update(todo.getId(), todo, stored -> stored.withTitle(newTitle));
+	}
+
+	/**
+     * MODIFY this by changing the title of the ToDo with the identifier
+	 * specified (if it exists in the list).
+     * @param id: the identifier of the ToDo that has to be modified.
+     * @param newTitle: the new title. REQUIRED to be not null and not empty.
+	 * @return the modified ToDo, or null if no ToDo with that identifier is
+	 * present in the list.
+	 * @throws NullPointerException when newTitle is null. In this case
+	 * nothing is modified.
+     * @throws EmptyFieldException when newTitle is empty. In this case nothing
+	 * is modified.
+     */
+	public ToDo modifyToDoTitle(long id, String newTitle) throws EmptyFieldException {
+
+		if (newTitle == null) {
+			throw new NullPointerException();
+		} else if (newTitle.isEmpty()) {
+			throw new EmptyFieldException("A ToDo title can't be empty.", "newTitle", "A non-empty string.");
+		}
+
+		return this.update(id, null, stored -> stored.withTitle(newTitle));
+	}
+
+	/**
+     * MODIFY this by changing the description of the ToDo specified (if the
+	 * stored ToDo is still equal to todo). The ToDo passed wouldn't be
+	 * modified.
+     * @param todo: instance of ToDo that has to be modified in the list.
+	 * REQUIRED to be not null.
+     * @param newDescription: the new description.
+	 * @return the modified ToDo, or null if todo is not present in the list.
+	 * @throws NullPointerException when todo is null. In this case nothing
+	 * is modified.
+     */
+	public ToDo modifyToDoDescription(ToDo todo, String newDescription) {
+
+		if (todo == null) {
+			throw new NullPointerException();
+		}
+
+		return this.update(todo.getId(), todo, stored -> stored.withDescription(newDescription));
+	}
+
+	/**
+     * MODIFY this by changing the description of the ToDo with the identifier
+	 * specified (if it exists in the list).
+     * @param id: the identifier of the ToDo that has to be modified.
+     * @param newDescription: the new description.
+	 * @return the modified ToDo, or null if no ToDo with that identifier is
+	 * present in the list.
+     */
+	public ToDo modifyToDoDescription(long id, String newDescription) {
+		return this.update(id, null, stored -> stored.withDescription(newDescription));
+	}
+
+	/**
+	 * MODIFY this by adding a new Tag to the ToDo specified (if the stored
+	 * ToDo is still equal to todo). If the ToDo already has that Tag, nothing
+	 * will be modified. The ToDo passed wouldn't be modified in any case.
+     * @param todo: instance of ToDo that has to be modified in the list.
+	 * REQUIRED to be not null.
+	 * @param newTag: the tag to add. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if todo is not present in
+	 * the list.
+	 * @throws NullPointerException when todo or newTag is null. In this case
+	 * nothing is modified.
+     */
+	public ToDo addToDoTag(ToDo todo, Tag newTag) {
+
+		if (todo == null || newTag == null) {
+			throw new NullPointerException();
+		}
+
+		return this.update(todo.getId(), todo, stored -> stored.withTag(newTag));
+	}
+
+	/**
+	 * MODIFY this by adding a new Tag to the ToDo with the identifier
+	 * specified (if it exists in the list). If the ToDo already has that Tag,
+	 * nothing will be modified.
+     * @param id: the identifier of the ToDo that has to be modified.
+	 * @param newTag: the tag to add. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if no ToDo with that
+	 * identifier is present in the list.
+	 * @throws NullPointerException when newTag is null. In this case nothing
+	 * is modified.
+     */
+	public ToDo addToDoTag(long id, Tag newTag) {
+
+		if (newTag == null) {
+			throw new NullPointerException();
+		}
+
+		return this.update(id, null, stored -> stored.withTag(newTag));
+	}
+
+	/**
+	 * MODIFY this by deleting a Tag from the ToDo specified (if the stored
+	 * ToDo is still equal to todo). If the ToDo doesn't have that Tag, nothing
+	 * will be modified. The ToDo passed wouldn't be modified in any case.
+     * @param todo: instance of ToDo that has to be modified in the list.
+	 * REQUIRED to be not null.
+	 * @param tag: the tag to delete. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if todo is not present in
+	 * the list.
+	 * @throws NullPointerException when todo or tag is null. In this case
+	 * nothing is modified.
+     */
+	public ToDo deleteToDoTag(ToDo todo, Tag tag) {
+
+		if (todo == null || tag == null) {
+			throw new NullPointerException();
+		}
+
+		return this.update(todo.getId(), todo, stored -> stored.withoutTag(tag));
+	}
+
+	/**
+	 * MODIFY this by deleting a Tag from the ToDo with the identifier
+	 * specified (if it exists in the list). If the ToDo doesn't have that Tag,
+	 * nothing will be modified.
+     * @param id: the identifier of the ToDo that has to be modified.
+	 * @param tag: the tag to delete. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if no ToDo with that
+	 * identifier is present in the list.
+	 * @throws NullPointerException when tag is null. In this case nothing is
+	 * modified.
+     */
+	public ToDo deleteToDoTag(long id, Tag tag) {
+
+		if (tag == null) {
+			throw new NullPointerException();
+		}
+
+		return this.update(id, null, stored -> stored.withoutTag(tag));
+	}
+
+	/**
+     * Get the version of the ToDo with the identifier passed.
+     * @param id: the identifier of the ToDo to search in the list.
+     * @return the version of the ToDo, or -1 if it is not in the list.
+     */
+	public long getVersion(long id) {
+		Versioned stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return -1;
+		}
+		return stored.version;
+	}
+
+	/**
+	 * MODIFY this by replacing the ToDo with the identifier specified with the
+	 * result of a mutation, only if its version is still the expected one.
+	 * The mutation runs without holding any lock of the ToDo, and its result
+	 * is stored with a single compare-and-set.
+     * @param id: the identifier of the ToDo that has to be modified.
+	 * @param expectedVersion: the version the mutation was prepared for.
+	 * @param mutation: the change. REQUIRED not null, without side effects,
+	 * and returning a ToDo with the same identifier and creation.
+	 * @return the ToDo after the operation, or null if no ToDo with that
+	 * identifier is present in the list.
+	 * @throws NullPointerException when mutation is null or returns null.
+	 * @throws IllegalArgumentException when the mutation changes the
+	 * identifier or the creation of the ToDo.
+	 * @throws VersionConflictException when the version of the ToDo is not
+	 * expectedVersion. In these cases nothing is modified.
+     */
+	public ToDo compareAndModify(long id, long expectedVersion, UnaryOperator<ToDo> mutation)
+			throws VersionConflictException {
+
+		if (mutation == null) {
+			throw new NullPointerException();
+		}
+
+		Lock lock = this.snapshotLock.readLock();
+		lock.lock();
+		try {
+			Versioned stored = this.loadedToDos.get(id);
+			if (stored == null) {
+				return null;
+			} else if (stored.version != expectedVersion) {
+				throw new VersionConflictException("The ToDo was modified by someone else.", expectedVersion,
+						stored.version);
+			}
+
+			ToDo newTodo = ToDoList.checkMutation(stored.todo, mutation.apply(stored.todo));
+			if (newTodo != stored.todo
+					&& !this.loadedToDos.replace(id, stored, new Versioned(newTodo, stored.version + 1))) {
+				Versioned current = this.loadedToDos.get(id);
+				if (current == null) {
+					return null;
+				}
+				throw new VersionConflictException("The ToDo was modified by someone else.", expectedVersion,
+						current.version);
+			}
+			return newTodo;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+     * Get all the ToDos of the list, as a read-only and weakly consistent
+	 * view.
+     * @return a Collection with all the ToDo.
+     */
+	public Collection<ToDo> getData() {
+		return this.readOnlyView;
+	}
+
+	/**
+	 * Get a copy of all the ToDos of the list, taken while no change is in
+	 * progress. The changes started later wait for the copy to end.
+	 * @return a new List with all the ToDo.
+	 */
+	public List<ToDo> snapshot() {
+		Lock lock = this.snapshotLock.writeLock();
+		lock.lock();
+		try {
+			List<ToDo> res = new ArrayList<ToDo>(this.loadedToDos.size());
+			for (Versioned stored : this.loadedToDos.values()) {
+				res.add(stored.todo);
+			}
+			return res;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+    /**
+     * Get the number of ToDo contained in the list. While other threads are
+	 * changing the list the result is only an estimate.
+     * @return number of ToDo.
+     */
+	public int size() {
+		return this.loadedToDos.size();
+	}
+
+	/**
+	 * @return a read-only and weakly consistent iterator over the ToDos.
+	 */
+	public Iterator<ToDo> iterator() {
+		return this.readOnlyView.iterator();
+	}
+
+	/**
+	 * @return a sequential and weakly consistent Stream over the ToDos.
+	 */
+	public Stream<ToDo> stream() {
+		return this.loadedToDos.values().stream().map(stored -> stored.todo);
+	}
+
+	/**
+	 * @return a parallel and weakly consistent Stream over the ToDos.
+	 */
+	public Stream<ToDo> parallelStream() {
+		return this.loadedToDos.values().parallelStream().map(stored -> stored.todo);
+	}
+
+	/**
+	 * MODIFY this by replacing atomically the ToDo with the identifier
+	 * specified with the result of a change, counting a new version if the
+	 * ToDo changed.
+	 * @param id: the identifier of the ToDo to change.
+	 * @param expected: the ToDo that has to be stored to change it, or null to
+	 * change whatever ToDo is stored.
+	 * @param change: the change to apply to the stored ToDo. REQUIRED not
+	 * null, without side effects and not returning null.
+	 * @return the ToDo after the change, or null if no ToDo was changed.
+	 */
+	private ToDo update(long id, ToDo expected, UnaryOperator<ToDo> change) {
+		ToDo[] res = new ToDo[1];
+		Lock lock = this.snapshotLock.readLock();
+		lock.lock();
+		try {
+			this.loadedToDos.computeIfPresent(id, (key, stored) -> {
+				if (expected != null && !stored.todo.equals(expected)) {
+					return stored;
+				}
+				res[0] = change.apply(stored.todo);
+				return res[0] == stored.todo ? stored : new Versioned(res[0], stored.version + 1);
+			});
+		} finally {
+			lock.unlock();
+		}
+		return res[0];
+	}
+
+	/**
+	 * A stored ToDo with its version. The pair is immutable and replaced as a
+	 * whole, so a reader never sees a ToDo with the version of another one.
+	 * It keeps the identity equality of Object, which the compare-and-set of
+	 * compareAndModify() relies on.
+	 */
+	private static final class Versioned {
+		private final ToDo todo;
+		private final long version;
+
+		private Versioned(ToDo todo, long version) {
+			this.todo = todo;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * Read-only and weakly consistent view over the ToDos.
+	 */
+	private final class ToDoView extends AbstractCollection<ToDo> {
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof ToDo && ConcurrentToDoList.this.contains((ToDo) o);
+		}
+
+		@Override
+		public int size() {
+			return ConcurrentToDoList.this.loadedToDos.size();
+		}
+
+		@Override
+		public Iterator<ToDo> iterator() {
+			Iterator<Versioned> it = ConcurrentToDoList.this.loadedToDos.values().iterator();
+			return new Iterator<ToDo>() {
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public ToDo next() {
+					return it.next().todo;
+				}
+			};
+		}
+	}
+
+}	// class ConcurrentToDoList
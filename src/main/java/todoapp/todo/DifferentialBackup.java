@@ -0,0 +1,333 @@
+package todoapp.todo;
+
+import todoapp.exceptions.BackupFailedException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class provide the differential backups of a ToDoList: it follows the
+ * changes of the list, and a backup writes only the ToDos added, modified or
+ * removed since the last successful one, as a delta linked to a full backup.
+ * The files live in a directory:
+ * - full-N.bak: the full backup N, written by JsonBackupWriter
+ * - delta-N-K.bak: the K-th delta of the chain of the full backup N
+ * A full backup is written instead of a delta when there is none yet, when
+ * the chain has fullEvery deltas, or when more than half of the list changed
+ * so that the delta would not be smaller. Once a full backup is written, the
+ * older chains are deleted. restore() reads the newest full backup and
+ * applies its deltas in order.
+ * A backup is done in two steps: prepare(), in the thread modifying the
+ * list, collects what to write, which costs only a copy of the references
+ * to the ToDos changed, and write(), in any thread, writes it. The changes
+ * are forgotten only when their backup succeeded, so a failed backup is
+ * retried with the following one.
+ */
+final class DifferentialBackup implements ToDoListListener {
+
+	static final int DEFAULT_FULL_EVERY = 16;
+	private static final Pattern FILE_NAME = Pattern.compile("full-(\\d+)\\.bak|delta-(\\d+)-(\\d+)\\.bak");
+
+	/**
+	 * The object DifferentialBackup implementation is done with:
+	 * - the list, the directory and the number of deltas of a chain
+	 * - a ConcurrentHashMap from the identifier of each ToDo changed since
+	 * the last backup to the number of the last change, so that a backup
+	 * forgets only the changes it wrote, even if it ends in another thread
+	 * - the counter of the changes, used by the thread of the list only
+	 * - the number of the current full backup, -1 until this wrote one, the
+	 * number of its deltas, the number of the next full backup and the last
+	 * change held by the last backup written, guarded by this
+	 *
+	 * INVARIANT: if base != -1, full-base.bak and its deltas 1..sequence hold
+	 * the list without the changes in changes.
+	 */
+	private final ToDoList list;
+	private final Path directory;
+	private final int fullEvery;
+	private final ConcurrentHashMap<Long, Long> changes;
+	private long changeCount;
+	private long base;
+	private int sequence;
+	private long nextBase;
+	private long writtenUpTo;
+
+	/**
+	 * Constructor that creates the differential backups of a list in the
+	 * directory specified, created if it doesn't exist, and starts following
+	 * the changes of the list. The first backup is a full one.
+	 * @param list: the list. REQUIRED not null.
+	 * @param directory: the directory of the backups. REQUIRED not null.
+	 * @param fullEvery: the number of deltas after which a full backup is
+	 * written. REQUIRED positive.
+	 * @throws NullPointerException when list or directory is null.
+	 * @throws IllegalArgumentException when fullEvery is not positive.
+	 * @throws BackupFailedException when the directory can't be created or
+	 * read.
+	 */
+	DifferentialBackup(ToDoList list, Path directory, int fullEvery) throws BackupFailedException {
+		if (list == null || directory == null) {
+			throw new NullPointerException();
+		} else if (fullEvery <= 0) {
+			throw new IllegalArgumentException("A chain needs at least one delta.");
+		}
+
+		this.list = list;
+		this.directory = directory;
+		this.fullEvery = fullEvery;
+		this.changes = new ConcurrentHashMap<Long, Long>();
+		this.changeCount = 0;
+		this.base = -1;
+		this.sequence = 0;
+		this.writtenUpTo = -1;
+		try {
+			Files.createDirectories(directory);
+			this.nextBase = newestFull(directory) + 1;
+		} catch (IOException ioe) {
+			throw new BackupFailedException(ioe.getMessage(), ioe);
+		}
+		list.addListener(this);
+	}
+
+	/**
+	 * Record the ToDos changed.
+	 */
+	@Override
+	public void changed(ToDoList changedList, List<Mutation> mutations) {
+		long count = ++this.changeCount;
+		for (Mutation m : mutations) {
+			this.changes.put(m.getId(), count);
+		}
+	}
+
+	/**
+	 * @return the number of ToDos changed since the last successful backup.
+	 */
+	int getChangedCount() {
+		return this.changes.size();
+	}
+
+	/**
+	 * MODIFY this by stopping following the changes of the list.
+	 */
+	void stop() {
+		this.list.removeListener(this);
+	}
+
+	/**
+	 * Write the next backup now: prepare() then write().
+	 * @throws BackupFailedException when the backup fails.
+	 */
+	void backup() throws BackupFailedException {
+		this.write(this.prepare());
+	}
+
+	/**
+	 * RETURN what the next backup has to write: the whole list, or the ToDos
+	 * changed since the last successful backup. It has to be called by the
+	 * thread modifying the list.
+	 * @return the plan of the backup, to pass to write().
+	 */
+	Plan prepare() {
+		boolean full;
+		long planBase;
+		synchronized (this) {
+			full = this.base == -1 || this.sequence >= this.fullEvery || this.changes.size() > this.list.size() / 2;
+			planBase = this.base;
+		}
+		if (full) {
+			return new Plan(true, planBase, this.changeCount, this.list.snapshot(), Collections.<Long>emptyList(),
+					Collections.<Long, Long>emptyMap());
+		}
+
+		List<ToDo> changed = new ArrayList<ToDo>();
+		List<Long> removed = new ArrayList<Long>();
+		Map<Long, Long> written = new HashMap<Long, Long>(this.changes);
+		for (Long id : written.keySet()) {
+			ToDo todo = this.list.get(id);
+			if (todo != null) {
+				changed.add(todo);
+			} else {
+				removed.add(id);
+			}
+		}
+		return new Plan(false, planBase, this.changeCount, changed, removed, written);
+	}
+
+	/**
+	 * Write a backup prepared by prepare(), atomically, and forget the changes
+	 * it holds. A full backup deletes the older chains. The backups are
+	 * written one at a time, and a plan older than the last one written is
+	 * refused, so that plans written out of order never put older versions
+	 * of the ToDos after newer ones: its changes are kept for the next plan.
+	 * @param plan: the plan. REQUIRED not null and prepared by this.
+	 * @throws NullPointerException when plan is null.
+	 * @throws BackupFailedException when the backup fails, when plan was
+	 * prepared before the last plan written, or when plan is a delta of
+	 * another chain than the current one: then a new plan is needed.
+	 */
+	synchronized void write(Plan plan) throws BackupFailedException {
+		if (plan == null) {
+			throw new NullPointerException();
+		} else if (plan.upTo < this.writtenUpTo) {
+			throw new BackupFailedException("The backup was prepared before the last one written.");
+		} else if (!plan.full && plan.base != this.base) {
+			throw new BackupFailedException("The delta doesn't follow the current full backup.");
+		}
+
+		try {
+			if (plan.full) {
+				long number = this.nextBase;
+				new FileIO(fullFile(this.directory, number).toString())
+						.writeAtomically(out -> new JsonBackupWriter(out).write(plan.todos));
+				this.base = number;
+				this.sequence = 0;
+				this.nextBase = number + 1;
+				this.writtenUpTo = plan.upTo;
+				this.changes.entrySet().removeIf(e -> e.getValue() <= plan.upTo);
+				deleteOlder(this.directory, number);
+			} else {
+				int next = this.sequence + 1;
+				String baseName = fullFile(this.directory, this.base).getFileName().toString();
+				new FileIO(deltaFile(this.directory, this.base, next).toString())
+						.writeAtomically(out -> new JsonBackupWriter(out).writeDelta(baseName, next, plan.todos,
+								plan.removed));
+				this.sequence = next;
+				this.writtenUpTo = plan.upTo;
+				for (Map.Entry<Long, Long> e : plan.written.entrySet()) {
+					this.changes.remove(e.getKey(), e.getValue());
+				}
+			}
+		} catch (IOException ioe) {
+			throw new BackupFailedException(ioe.getMessage(), ioe);
+		}
+	}
+
+	/**
+	 * RETURN the list restored from the newest full backup of the directory
+	 * and from its deltas, applied in order.
+	 * @param directory: the directory of the backups. REQUIRED not null.
+	 * @return the restored list.
+	 * @throws NullPointerException when directory is null.
+	 * @throws BackupFailedException when there is no full backup or a file
+	 * can't be read or is not valid.
+	 */
+	static ToDoList restore(Path directory) throws BackupFailedException {
+		if (directory == null) {
+			throw new NullPointerException();
+		}
+
+		try {
+			long number = newestFull(directory);
+			if (number == 0) {
+				throw new BackupFailedException("No full backup in " + directory + ".");
+			}
+			Path full = fullFile(directory, number);
+			ToDoList res;
+			try (Reader in = new FileIO(full.toString()).newReader()) {
+				res = new JsonBackupReader(in).read(null);
+			}
+			for (int k = 1; Files.exists(deltaFile(directory, number, k)); k++) {
+				try (Reader in = new FileIO(deltaFile(directory, number, k).toString()).newReader()) {
+					new JsonBackupReader(in).readDelta(res, full.getFileName().toString(), k);
+				}
+			}
+			return res;
+		} catch (IOException ioe) {
+			throw new BackupFailedException(ioe.getMessage(), ioe);
+		}
+	}
+
+	/**
+	 * RETURN the number of the newest full backup of the directory, 0 if
+	 * there is none.
+	 */
+	private static long newestFull(Path directory) throws IOException {
+		long res = 0;
+		if (!Files.isDirectory(directory)) {
+			return res;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+				if (m.matches() && m.group(1) != null) {
+					res = Math.max(res, Long.parseLong(m.group(1)));
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Delete the full backups and the deltas of the chains before the one
+	 * specified.
+	 */
+	private static void deleteOlder(Path directory, long number) throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+				if (m.matches() && Long.parseLong(m.group(1) != null ? m.group(1) : m.group(2)) < number) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	static Path fullFile(Path directory, long number) {
+		return directory.resolve("full-" + number + ".bak");
+	}
+
+	static Path deltaFile(Path directory, long number, int sequence) {
+		return directory.resolve("delta-" + number + "-" + sequence + ".bak");
+	}
+
+	/**
+	 * This class provide what a backup has to write, collected by prepare(),
+	 * with the full backup and the last change it was prepared against.
+	 */
+	static final class Plan {
+
+		private final boolean full;
+		private final long base;
+		private final long upTo;
+		private final List<ToDo> todos;
+		private final List<Long> removed;
+		private final Map<Long, Long> written;
+
+		private Plan(boolean full, long base, long upTo, List<ToDo> todos, List<Long> removed,
+				Map<Long, Long> written) {
+			this.full = full;
+			this.base = base;
+			this.upTo = upTo;
+			this.todos = todos;
+			this.removed = removed;
+			this.written = written;
+		}
+
+		/**
+		 * @return true if the backup is a full one, false if it is a delta.
+		 */
+		boolean isFull() {
+			return this.full;
+		}
+
+		/**
+		 * @return the number of ToDos the backup writes or removes.
+		 */
+		int size() {
+			return this.todos.size() + this.removed.size();
+		}
+	}
+
+}	// class DifferentialBackup
@@ -1,14 +1,64 @@
 package todoapp.todo;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileWriter;
-import java.util.Scanner;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 
 class FileIO {
 
+    /**
+     * The trailer that saveAtomically() and writeAtomically() append to the
+     * data: the length of the data as a long, their CRC32C as an int and the
+     * magic bytes "TDCK".
+     */
+    static final byte[] TRAILER_MAGIC = { 'T', 'D', 'C', 'K' };
+    static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES + TRAILER_MAGIC.length;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int GZIP_MAGIC = 0x8b1f;
+
     private File file;
 
+    /**
+     * The content written by writeAtomically().
+     */
+    interface Content {
+
+        /**
+         * Write the content.
+         * @param out: the Writer of the temporary file. It MUST NOT be closed.
+         * @throws IOException when the content can't be written.
+         */
+        void writeTo(Writer out) throws IOException;
+    }
+
     public FileIO(String pathName) {
         file = new File(pathName);
     }
@@ -67,33 +117,486 @@ class FileIO {
     }
 
     /**
-     * Read the data from the file if it exists.
+     * Write data to the file if it exists, atomically: either the whole data
+     * replace the content of the file, or the file is left as it was, even if
+     * the system crashes while it is written. The data are followed by a
+     * trailer with their checksum, that load() and newReader() verify.
+     * @param data: data to save.
+     * @return true if the data was correctly saved, false if the file doesn't exist.
+     * @throws IOException when an error occur while writing the data, in this case the file is left as it was.
+     */
+    public boolean saveAtomically(String data) throws IOException {
+        if (!this.alreadyExist()) {
+            return false;
+        }
+        this.writeAtomically(out -> out.write(data));
+        return true;
+    }
+
+    /**
+     * Replace the content of the file, creating it if it doesn't exist, with
+     * the UTF-8 text written by content, atomically: the text is written to a
+     * temporary file in the same directory, followed by the trailer with its
+     * checksum, forced to the disk and moved over the file, and then the
+     * directory is forced too. Either the whole text is the new content of
+     * the file, or the file is left as it was, even if the system crashes.
+     * @param content: the content to write. REQUIRED not null.
+     * @throws IOException when an error occur while writing the content, in this case the file is left as it was.
+     */
+    public void writeAtomically(Content content) throws IOException {
+        this.writeAtomically(content, false);
+    }
+
+    /**
+     * Replace the content of the file as writeAtomically(Content) does,
+     * compressing the text with gzip while it is written if compressed is
+     * true: the text is never held in memory, neither plain nor compressed.
+     * The trailer follows the compressed data, and newReader(), load() and
+     * lines() recognize a compressed file by itself.
+     * @param content: the content to write. REQUIRED not null.
+     * @param compressed: true to compress the text with gzip.
+     * @throws IOException when an error occur while writing the content, in this case the file is left as it was.
+     */
+    public void writeAtomically(Content content, boolean compressed) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path directory = target.getParent();
+        Path tmp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+
+        try {
+            copyPermissions(target, tmp);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                CRC32C crc = new CRC32C();
+                OutputStream data = new CheckedOutputStream(new UnclosedOutputStream(Channels.newOutputStream(channel)),
+                        crc);
+                if (compressed) {
+                    data = new GZIPOutputStream(data, BUFFER_SIZE);
+                }
+                Writer out = new BufferedWriter(new OutputStreamWriter(data, StandardCharsets.UTF_8), BUFFER_SIZE);
+                content.writeTo(out);
+                out.close();
+
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+                trailer.putLong(channel.position()).putInt((int) crc.getValue()).put(TRAILER_MAGIC).flip();
+                while (trailer.hasRemaining()) {
+                    channel.write(trailer);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("An error occurred while writing the file", e);
+        }
+        syncDirectory(directory);
+    }
+
+    /**
+     * Give to the temporary file the POSIX permissions of the file it will
+     * replace: the temporary file is created readable by its owner only, and
+     * the move would carry that over the file. Nothing is done when the file
+     * doesn't exist yet or the file system has no POSIX permissions.
+     */
+    private static void copyPermissions(Path target, Path tmp) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (view == null || !Files.exists(target)) {
+            return;
+        }
+        Files.setPosixFilePermissions(tmp, view.readAttributes().permissions());
+    }
+
+    /**
+     * Force the entries of a directory to the disk, so that a file created,
+     * moved or deleted in it stays so after a crash. Where directories can't
+     * be opened, as on Windows, nothing is done: there the move itself is
+     * durable.
+     * @param directory: the directory. REQUIRED not null.
+     * @throws IOException when the directory can't be forced.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException ioe) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Open a buffered Writer that replaces the content of the file with UTF-8
+     * text, creating the file if it doesn't exist.
+     * @return the Writer, which has to be closed by the caller.
+     * @throws IOException when an error occur while opening the file.
+     */
+    public Writer newWriter() throws IOException {
+        try {
+            return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException ioe) {
+            throw new IOException("An error occurred while opening the file", ioe);
+        }
+    }
+
+    /**
+     * Open a Reader of the UTF-8 text of the file. Malformed UTF-8 makes the
+     * reads fail instead of being replaced. If the file was written
+     * atomically, the Reader stops before the trailer and, when it reaches
+     * the end, fails if the checksum doesn't match.
+     * @return the Reader, which has to be closed by the caller.
+     * @throws IOException when the file doesn't exist or can't be opened.
+     */
+    public Reader newReader() throws IOException {
+        return this.newReader(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Open a Reader of the text of the file in the charset specified.
+     * Malformed text makes the reads fail instead of being replaced. If the
+     * file was written atomically, the Reader stops before the trailer and,
+     * when it reaches the end, fails if the checksum doesn't match.
+     * @param charset: the charset of the text. REQUIRED not null.
+     * @return the Reader, which has to be closed by the caller.
+     * @throws IOException when the file doesn't exist or can't be opened.
+     */
+    public Reader newReader(Charset charset) throws IOException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            ByteBuffer trailer = readTrailer(channel);
+            InputStream in = Channels.newInputStream(channel);
+            if (trailer != null) {
+                in = new VerifyingInputStream(in, trailer.getLong(0), trailer.getInt(Long.BYTES));
+            }
+            return new InputStreamReader(uncompressed(in), charset.newDecoder());
+        } catch (IOException ioe) {
+            if (channel != null) {
+                channel.close();
+            }
+            throw new IOException("An error occurred while opening the file", ioe);
+        }
+    }
+
+    /**
+     * RETURN the stream of the data uncompressed, if they start with the
+     * magic bytes of gzip, the stream itself otherwise. gzip checks the CRC32
+     * and the length of the data when it reaches their end.
+     */
+    private static InputStream uncompressed(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int magic = buffered.read() | buffered.read() << 8;
+        buffered.reset();
+        return magic == GZIP_MAGIC ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+    }
+
+    /**
+     * RETURN the trailer at the end of the channel, if the file was written
+     * atomically or has one anyway, as a BinarySnapshot with checksum, and
+     * leave the channel at its start.
+     * @return a buffer with the trailer, or null if there is none.
+     */
+    static ByteBuffer readTrailer(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < TRAILER_SIZE) {
+            return null;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        while (trailer.hasRemaining()) {
+            if (channel.read(trailer, size - TRAILER_SIZE + trailer.position()) < 0) {
+                return null;
+            }
+        }
+        for (int i = 0; i < TRAILER_MAGIC.length; i++) {
+            if (trailer.get(Long.BYTES + Integer.BYTES + i) != TRAILER_MAGIC[i]) {
+                return null;
+            }
+        }
+        return trailer.getLong(0) == size - TRAILER_SIZE ? trailer : null;
+    }
+
+    /**
+     * Read the UTF-8 data from the file if it exists, exactly as they are,
+     * line breaks included. If the file was written atomically, its checksum
+     * is verified.
      * @return the data read from the file if it exists, return null otherwise.
-     * @throws IOException when an error occur while reading the data, in this case nothing will be read by the file.
+     * @throws IOException when an error occur while reading the data or the checksum doesn't match, in this case nothing will be read by the file.
      */
     public String load() throws IOException {
-        StringBuilder dataRead = null;
+        return this.load(StandardCharsets.UTF_8);
+    }
 
-        if (this.alreadyExist()) {
-            Scanner fileIn = null;
-            try {
-                fileIn = new Scanner(file);
-                dataRead = new StringBuilder();
-                while (fileIn.hasNextLine()) {
-                    dataRead.append(fileIn.nextLine());
+    /**
+     * Read the data from the file if it exists, exactly as they are, line
+     * breaks included, decoding them from the charset specified. The file is
+     * mapped in memory and decoded in place. If the file was written
+     * atomically, its checksum is verified.
+     * @param charset: the charset of the data. REQUIRED not null.
+     * @return the data read from the file if it exists, return null otherwise.
+     * @throws IOException when an error occur while reading the data, the data are malformed, too large for a String or the checksum doesn't match, in this case nothing will be read by the file.
+     */
+    public String load(Charset charset) throws IOException {
+        if (!this.alreadyExist()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer trailer = readTrailer(channel);
+            long length = trailer == null ? channel.size() : trailer.getLong(0);
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("The file is too large to be loaded in a String, use lines() or map()");
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (trailer != null) {
+                CRC32C crc = new CRC32C();
+                crc.update(data.duplicate());
+                if ((int) crc.getValue() != trailer.getInt(Long.BYTES)) {
+                    throw new IOException("The checksum of the file doesn't match: the file is corrupted");
                 }
             }
-            catch (IOException ioe) {
-                throw new IOException("An error occurred while reading the file", ioe);
-            } finally {
-                if (fileIn != null) {
-                    fileIn.close();
+            if (length >= 2 && ((data.get(0) & 0xFF) | (data.get(1) & 0xFF) << 8) == GZIP_MAGIC) {
+                return loadCompressed(charset);
+            }
+            return charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT).decode(data).toString();
+        } catch (IOException ioe) {
+            throw new IOException("An error occurred while reading the file", ioe);
+        }
+    }
+
+    /**
+     * RETURN the text of a compressed file, uncompressed while it is read.
+     */
+    private String loadCompressed(Charset charset) throws IOException {
+        StringBuilder res = new StringBuilder();
+        char[] chunk = new char[BUFFER_SIZE];
+        try (Reader in = this.newReader(charset)) {
+            for (int n = in.read(chunk); n >= 0; n = in.read(chunk)) {
+                res.append(chunk, 0, n);
+            }
+        }
+        return res.toString();
+    }
+
+    /**
+     * Map the data of the file in memory, read-only: the bytes are read from
+     * the disk only when they are accessed, and stay in the cache of the OS
+     * instead of the heap. The trailer of a file written atomically is left
+     * out, and its checksum is not verified. The data of a compressed file
+     * are mapped as they are, compressed.
+     * @return the mapped buffer of the whole data.
+     * @throws IOException when the file doesn't exist, can't be mapped or its data are larger than 2 GB: map(long, long) maps a part of them.
+     */
+    public MappedByteBuffer map() throws IOException {
+        long length = this.dataLength();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("The file is too large to be mapped at once, map it in parts");
+        }
+        return this.map(0, length);
+    }
+
+    /**
+     * Map a part of the file in memory, read-only, for the files larger than
+     * what a single buffer can hold.
+     * @param position: the position of the first byte. REQUIRED not negative.
+     * @param size: the number of bytes. REQUIRED between 0 and Integer.MAX_VALUE.
+     * @return the mapped buffer.
+     * @throws IllegalArgumentException when position or size is out of range.
+     * @throws IOException when the file doesn't exist or can't be mapped.
+     */
+    public MappedByteBuffer map(long position, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException ioe) {
+            throw new IOException("An error occurred while mapping the file", ioe);
+        }
+    }
+
+    /**
+     * Get the length of the data of the file, that is the file without the
+     * trailer if it was written atomically.
+     * @return the length in bytes, which can be larger than 2 GB.
+     * @throws IOException when the file doesn't exist or can't be read.
+     */
+    public long dataLength() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer trailer = readTrailer(channel);
+            return trailer == null ? channel.size() : trailer.getLong(0);
+        } catch (IOException ioe) {
+            throw new IOException("An error occurred while reading the file", ioe);
+        }
+    }
+
+    /**
+     * Open an iterator over the lines of the text of the file, read in
+     * chunks: every line keeps its terminator, so that the lines together are
+     * exactly the text, and the file can be of any size. A line ends with a
+     * \n, or with the end of the text. Errors while iterating, including a
+     * checksum that doesn't match, are thrown as UncheckedIOException.
+     * @param charset: the charset of the text. REQUIRED not null.
+     * @return the iterator, which has to be closed by the caller.
+     * @throws IOException when the file doesn't exist or can't be opened.
+     */
+    public LineIterator lines(Charset charset) throws IOException {
+        return new LineIterator(this.newReader(charset));
+    }
+
+    /**
+     * This class provide the iterator over the lines of a text read in chunks
+     * of BUFFER_SIZE chars.
+     */
+    static final class LineIterator implements Iterator<String>, Closeable {
+        private final Reader in;
+        private final char[] chunk;
+        private int position;
+        private int limit;
+        private final StringBuilder line;
+        private String next;
+
+        private LineIterator(Reader in) {
+            this.in = in;
+            this.chunk = new char[BUFFER_SIZE];
+            this.position = 0;
+            this.limit = 0;
+            this.line = new StringBuilder();
+            this.next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) {
+                return true;
+            }
+            try {
+                while (true) {
+                    if (this.position == this.limit) {
+                        this.limit = this.in.read(this.chunk);
+                        this.position = 0;
+                        if (this.limit < 0) {
+                            this.limit = 0;
+                            if (this.line.length() == 0) {
+                                return false;
+                            }
+                            break;
+                        }
+                    }
+                    int start = this.position;
+                    while (this.position < this.limit && this.chunk[this.position] != '\n') {
+                        this.position++;
+                    }
+                    if (this.position < this.limit) {
+                        this.position++;
+                        this.line.append(this.chunk, start, this.position - start);
+                        break;
+                    }
+                    this.line.append(this.chunk, start, this.position - start);
                 }
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+            this.next = this.line.toString();
+            this.line.setLength(0);
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String res = this.next;
+            this.next = null;
+            return res;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    /**
+     * The stream of the temporary file of writeAtomically(): closing it only
+     * flushes it, so that the trailer can follow the data.
+     */
+    private static final class UnclosedOutputStream extends OutputStream {
+        private final OutputStream out;
+
+        private UnclosedOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.flush();
+        }
+    }
+
+    /**
+     * The stream of the data of a file written atomically: it ends before the
+     * trailer and checks the checksum when the end is reached.
+     */
+    private static final class VerifyingInputStream extends InputStream {
+        private final InputStream in;
+        private long left;
+        private final int expected;
+        private final CRC32C crc;
+
+        private VerifyingInputStream(InputStream in, long length, int expected) throws IOException {
+            this.in = in;
+            this.left = length;
+            this.expected = expected;
+            this.crc = new CRC32C();
+            this.verifyAtEnd();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.left == 0) {
+                return -1;
+            } else if (len == 0) {
+                return 0;
             }
+            int n = this.in.read(b, off, (int) Math.min(len, this.left));
+            if (n < 0) {
+                throw new IOException("The file is shorter than its trailer says");
+            }
+            this.crc.update(b, off, n);
+            this.left -= n;
+            this.verifyAtEnd();
+            return n;
         }
-        if (dataRead != null) {
-            return dataRead.toString();
+
+        private void verifyAtEnd() throws IOException {
+            if (this.left == 0 && (int) this.crc.getValue() != this.expected) {
+                throw new IOException("The checksum of the file doesn't match: the file is corrupted");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
         }
-        return null;
     }
 }
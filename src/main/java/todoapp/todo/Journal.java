@@ -0,0 +1,972 @@
+package todoapp.todo;
+
+import todoapp.exceptions.EmptyFieldException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+import todoapp.todo.Tag.Color;
+
+/**
+ * This class provide the incremental persistence of a ToDoList: every change
+ * of the list is appended to a journal file as a small record, so that a
+ * change costs a few bytes of I/O instead of a rewrite of the whole list.
+ * The files live in a directory, numbered by generation:
+ * - snapshot-N.tdsn: a BinarySnapshot of the list at the start of the
+ * generation N, missing for the generation 0, whose list is empty
+ * - journal-N.tdj: the changes done during the generation N
+ * open() loads the newest snapshot and replays, in order, the journals of
+ * its generation and of the following ones.
+ * A journal starts with the magic bytes "TDJN" and the version, as a short,
+ * followed by a record for each notification of the list, that so holds a
+ * single change or a whole batch. A record is the length of its payload, as
+ * a varint, the CRC32C of the payload, as an int, and the payload: the
+ * number of mutations, then for each mutation the ordinal of its kind, the
+ * identifier of the ToDo and what the kind needs, encoded as in a
+ * BinarySnapshot with the tags written in full. A record cut by a crash at
+ * the end of the last journal is dropped when the journal is opened.
+ * compact() starts a new generation: the journal is switched to a new file
+ * at once, and the snapshot of the list is written by a background thread,
+ * after which the files of the older generations are deleted. It is called
+ * when the journal grows past a threshold, too.
+ * How soon an appended record is on the disk depends on the Durability
+ * chosen: SYNC forces every record to the disk before the change returns,
+ * GROUP_COMMIT hands the records to a writer thread that writes together
+ * all those pending and forces them once, at most once per commit interval,
+ * and ASYNC leaves them to the cache of the OS. sync() waits until all the
+ * records appended so far are on the disk, whatever the durability.
+ * getMetrics() tells how many records each force covered and how long the
+ * forces took.
+ * A Journal is used by the thread that modifies its list, as the list
+ * itself; only the writing of the records in GROUP_COMMIT and of the
+ * snapshots happens in background.
+ */
+final class Journal implements ToDoListListener, Closeable {
+
+	static final byte[] MAGIC = { 'T', 'D', 'J', 'N' };
+	static final short VERSION = 1;
+	static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+	static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofMillis(10);
+	private static final int HEADER_SIZE = MAGIC.length + Short.BYTES;
+	private static final int RECORD_HEADER_SIZE = 5 + Integer.BYTES;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final Pattern FILE_NAME = Pattern.compile("snapshot-(\\d+)\\.tdsn|journal-(\\d+)\\.tdj");
+	private static final TagRegistry REGISTRY = TagRegistry.getInstance();
+	private static final ByteBuffer STOP = ByteBuffer.allocate(0);
+
+	/**
+	 * When the records appended reach the disk.
+	 */
+	enum Durability {
+		/**
+		 * Every record is forced to the disk before the change returns: no
+		 * change is lost, and every change waits for the disk.
+		 */
+		SYNC,
+		/**
+		 * The records are forced by a writer thread, many at once: the
+		 * changes done in the last commit interval can be lost by a crash of
+		 * the system, and no change waits for the disk.
+		 */
+		GROUP_COMMIT,
+		/**
+		 * The records are written to the cache of the OS and forced only by
+		 * sync(), compact() and close(): a crash of the system can lose any
+		 * change not forced, a crash of the application none.
+		 */
+		ASYNC
+	}
+
+	/**
+	 * The object Journal implementation is done with:
+	 * - the directory of the files and the list persisted
+	 * - the current generation and the channel of its journal, opened for
+	 * appending, with the number of bytes written in it
+	 * - the size of the journal past which compact() is called
+	 * - the buffer the records are encoded in, reused
+	 * - the single background thread writing the snapshots, and the result of
+	 * the last compaction started
+	 * - the error that stopped the appending, if any
+	 * - the durability and, for GROUP_COMMIT, the minimum time between two
+	 * forces, the queue of the records not written yet and the writer thread
+	 * - the number of records appended, and of those forced to the disk,
+	 * guarded by commitLock, that is notified when the latter grows
+	 * - the counters of the forces, guarded by commitLock
+	 *
+	 * INVARIANT: the newest snapshot and the following journals hold the
+	 * list, unless failure is not null; forced <= appended.
+	 */
+	private final Path directory;
+	private final ToDoList list;
+	private long generation;
+	private volatile FileChannel channel;
+	private long journalSize;
+	private final long compactionThreshold;
+	private ByteBuffer record;
+	private final ExecutorService compactor;
+	private Future<?> pending;
+	private volatile IOException failure;
+	private final Durability durability;
+	private final long commitInterval;
+	private final BlockingQueue<ByteBuffer> queue;
+	private final Thread writer;
+	private long appended;
+	private long forced;
+	private final Object commitLock;
+	private long syncs;
+	private long syncedRecords;
+	private long syncNanos;
+	private long maxSyncNanos;
+	private long maxBatch;
+
+	private Journal(Path directory, ToDoList list, long generation, FileChannel channel, Durability durability,
+			Duration commitInterval, long compactionThreshold) throws IOException {
+		this.directory = directory;
+		this.list = list;
+		this.generation = generation;
+		this.channel = channel;
+		this.journalSize = channel.size();
+		this.compactionThreshold = compactionThreshold;
+		this.record = ByteBuffer.allocate(BUFFER_SIZE);
+		this.compactor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "journal-compaction");
+			t.setDaemon(true);
+			return t;
+		});
+		this.pending = null;
+		this.failure = null;
+		this.durability = durability;
+		this.commitInterval = commitInterval.toNanos();
+		this.appended = 0;
+		this.forced = 0;
+		this.commitLock = new Object();
+		if (durability == Durability.GROUP_COMMIT) {
+			this.queue = new LinkedBlockingQueue<ByteBuffer>();
+			this.writer = new Thread(this::commitLoop, "journal-writer");
+			this.writer.setDaemon(true);
+			this.writer.start();
+		} else {
+			this.queue = null;
+			this.writer = null;
+		}
+	}
+
+	/**
+	 * RETURN the Journal of the directory specified, with the list rebuilt
+	 * from its files. The directory is created if it doesn't exist.
+	 * @param directory: the directory. REQUIRED not null.
+	 * @return the Journal, which has to be closed.
+	 * @throws NullPointerException when directory is null.
+	 * @throws IOException when the files can't be read or are corrupted.
+	 */
+	static Journal open(Path directory) throws IOException {
+		return open(directory, Durability.GROUP_COMMIT, DEFAULT_COMMIT_INTERVAL, DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * RETURN the Journal of the directory specified, with the list rebuilt
+	 * from its files. The directory is created if it doesn't exist.
+	 * @param directory: the directory. REQUIRED not null.
+	 * @param compactionThreshold: the size in bytes of the journal past which
+	 * it is compacted. REQUIRED positive.
+	 * @return the Journal, which has to be closed.
+	 * @throws NullPointerException when directory is null.
+	 * @throws IllegalArgumentException when compactionThreshold is not
+	 * positive.
+	 * @throws IOException when the files can't be read or are corrupted.
+	 */
+	static Journal open(Path directory, long compactionThreshold) throws IOException {
+		return open(directory, Durability.GROUP_COMMIT, DEFAULT_COMMIT_INTERVAL, compactionThreshold);
+	}
+
+	/**
+	 * RETURN the Journal of the directory specified, with the list rebuilt
+	 * from its files. The directory is created if it doesn't exist.
+	 * @param directory: the directory. REQUIRED not null.
+	 * @param durability: when the records reach the disk. REQUIRED not null.
+	 * @param commitInterval: the minimum time between two forces of the
+	 * writer thread, used only by GROUP_COMMIT. REQUIRED not null and not
+	 * negative.
+	 * @param compactionThreshold: the size in bytes of the journal past which
+	 * it is compacted. REQUIRED positive.
+	 * @return the Journal, which has to be closed.
+	 * @throws NullPointerException when directory, durability or
+	 * commitInterval is null.
+	 * @throws IllegalArgumentException when commitInterval is negative or
+	 * compactionThreshold is not positive.
+	 * @throws IOException when the files can't be read or are corrupted.
+	 */
+	static Journal open(Path directory, Durability durability, Duration commitInterval, long compactionThreshold)
+			throws IOException {
+		if (directory == null || durability == null || commitInterval == null) {
+			throw new NullPointerException();
+		} else if (commitInterval.isNegative()) {
+			throw new IllegalArgumentException("The commit interval can't be negative.");
+		} else if (compactionThreshold <= 0) {
+			throw new IllegalArgumentException("The compaction threshold must be positive.");
+		}
+
+		Files.createDirectories(directory);
+		TreeSet<Long> snapshots = new TreeSet<Long>();
+		TreeSet<Long> journals = new TreeSet<Long>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				Matcher m = FILE_NAME.matcher(name);
+				if (name.endsWith(".tmp")) {
+					Files.delete(file);
+				} else if (m.matches()) {
+					(m.group(1) != null ? snapshots : journals).add(generationOf(m));
+				}
+			}
+		}
+
+		long base = snapshots.isEmpty() ? 0 : snapshots.last();
+		ToDoList list = snapshots.isEmpty() ? new ToDoList() : BinarySnapshot.read(snapshotFile(directory, base));
+		long generation = base;
+		for (long g : journals.tailSet(base)) {
+			long expected = g == journals.ceiling(base) ? base : generation + 1;
+			if (g != expected) {
+				throw new IOException("Missing the journal of the generation " + expected + ".");
+			}
+			generation = g;
+		}
+
+		FileChannel channel = null;
+		try {
+			for (long g : journals.tailSet(base)) {
+				boolean last = g == generation;
+				FileChannel ch = FileChannel.open(journalFile(directory, g), StandardOpenOption.READ,
+						StandardOpenOption.WRITE);
+				try {
+					replay(ch, list, last);
+				} catch (IOException ioe) {
+					ch.close();
+					throw new IOException("Invalid journal " + journalFile(directory, g) + ": " + ioe.getMessage(), ioe);
+				}
+				if (last) {
+					channel = ch;
+				} else {
+					ch.close();
+				}
+			}
+			if (channel == null) {
+				channel = createJournal(directory, generation);
+			}
+			deleteOlder(directory, base);
+
+			Journal journal = new Journal(directory, list, generation, channel, durability, commitInterval,
+					compactionThreshold);
+			list.addListener(journal);
+			return journal;
+		} catch (IOException | RuntimeException e) {
+			if (channel != null) {
+				channel.close();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the list persisted, whose changes are appended to the journal.
+	 */
+	ToDoList getList() {
+		return this.list;
+	}
+
+	/**
+	 * @return the current generation.
+	 */
+	long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * @return the durability of the records.
+	 */
+	Durability getDurability() {
+		return this.durability;
+	}
+
+	/**
+	 * @return the error that stopped the appending of the changes, or null if
+	 * the journal is working.
+	 */
+	IOException getFailure() {
+		return this.failure;
+	}
+
+	/**
+	 * RETURN the counters of the forces done so far.
+	 * @return a new Metrics.
+	 */
+	Metrics getMetrics() {
+		synchronized (this.commitLock) {
+			return new Metrics(this.syncs, this.syncedRecords, this.syncNanos, this.maxSyncNanos, this.maxBatch);
+		}
+	}
+
+	/**
+	 * Append the record of the mutations to the journal, as the durability
+	 * requires, and compact it if it grew past the threshold. An error is
+	 * kept, and stops the appending: the following changes would not make
+	 * sense without the lost one.
+	 */
+	@Override
+	public void changed(ToDoList changedList, List<Mutation> mutations) {
+		if (this.failure != null) {
+			return;
+		}
+		try {
+			this.encode(mutations);
+			this.journalSize += this.record.remaining();
+			synchronized (this.commitLock) {
+				this.appended++;
+			}
+			if (this.durability == Durability.GROUP_COMMIT) {
+				ByteBuffer copy = ByteBuffer.allocate(this.record.remaining());
+				copy.put(this.record).flip();
+				this.queue.add(copy);
+			} else {
+				while (this.record.hasRemaining()) {
+					this.channel.write(this.record);
+				}
+				if (this.durability == Durability.SYNC) {
+					this.force(1);
+				}
+			}
+			if (this.journalSize > this.compactionThreshold && (this.pending == null || this.pending.isDone())) {
+				this.compact();
+			}
+		} catch (IOException ioe) {
+			this.failure = ioe;
+		}
+	}
+
+	/**
+	 * Wait until all the records appended so far are forced to the disk.
+	 * @throws IOException when the appending was stopped by an error, or the
+	 * records can't be forced.
+	 */
+	void sync() throws IOException {
+		if (this.durability == Durability.GROUP_COMMIT) {
+			synchronized (this.commitLock) {
+				long target = this.appended;
+				while (this.forced < target && this.failure == null) {
+					try {
+						this.commitLock.wait();
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						throw new IOException("Interrupted while waiting for the journal.", ie);
+					}
+				}
+			}
+		} else if (this.failure == null && this.durability == Durability.ASYNC) {
+			long records;
+			synchronized (this.commitLock) {
+				records = this.appended - this.forced;
+			}
+			this.force(records);
+		}
+		if (this.failure != null) {
+			throw this.failure;
+		}
+	}
+
+	/**
+	 * Force the records written to the disk, counting the force if there
+	 * were any.
+	 * @param records: the number of records written and not forced yet.
+	 */
+	private void force(long records) throws IOException {
+		if (records == 0) {
+			return;
+		}
+		long start = System.nanoTime();
+		this.channel.force(false);
+		long nanos = System.nanoTime() - start;
+		synchronized (this.commitLock) {
+			this.forced += records;
+			this.syncs++;
+			this.syncedRecords += records;
+			this.syncNanos += nanos;
+			this.maxSyncNanos = Math.max(this.maxSyncNanos, nanos);
+			this.maxBatch = Math.max(this.maxBatch, records);
+			this.commitLock.notifyAll();
+		}
+	}
+
+	/**
+	 * The loop of the writer thread of GROUP_COMMIT: it waits for a record,
+	 * waits for the rest of the commit interval, then writes all the records
+	 * pending with a single write and forces them, until it finds STOP. An
+	 * error, or an interruption, is kept and stops the writer.
+	 */
+	private void commitLoop() {
+		List<ByteBuffer> batch = new ArrayList<ByteBuffer>();
+		long lastSync = System.nanoTime() - this.commitInterval;
+		try {
+			while (true) {
+				batch.add(this.queue.take());
+				long wait = lastSync + this.commitInterval - System.nanoTime();
+				if (wait > 0) {
+					TimeUnit.NANOSECONDS.sleep(wait);
+				}
+				this.queue.drainTo(batch);
+				boolean stop = batch.get(batch.size() - 1) == STOP;
+				if (stop) {
+					batch.remove(batch.size() - 1);
+				}
+
+				ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+				long left = 0;
+				for (ByteBuffer buf : buffers) {
+					left += buf.remaining();
+				}
+				while (left > 0) {
+					left -= this.channel.write(buffers);
+				}
+				lastSync = System.nanoTime();
+				this.force(buffers.length);
+				batch.clear();
+				if (stop) {
+					return;
+				}
+			}
+		} catch (IOException ioe) {
+			synchronized (this.commitLock) {
+				this.failure = ioe;
+				this.commitLock.notifyAll();
+			}
+		} catch (InterruptedException ie) {
+			synchronized (this.commitLock) {
+				this.failure = new IOException("The journal writer was interrupted.", ie);
+				this.commitLock.notifyAll();
+			}
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * MODIFY this by starting a new generation: the changes are appended to a
+	 * new journal from now on, and the snapshot of the list is written in
+	 * background. The files of the older generations are deleted once the
+	 * snapshot is complete.
+	 * @return the Future of the writing of the snapshot.
+	 * @throws IOException when the appending was stopped by an error, or when
+	 * the current journal can't be flushed or the new one can't be created.
+	 * In this case the current journal is kept.
+	 */
+	Future<?> compact() throws IOException {
+		if (this.failure != null) {
+			throw this.failure;
+		}
+
+		long next = this.generation + 1;
+		this.sync();
+		FileChannel previous = this.channel;
+		this.channel = createJournal(this.directory, next);
+		this.journalSize = this.channel.size();
+		this.generation = next;
+		previous.close();
+
+		List<ToDo> todos = this.list.snapshot();
+
+		Path directory = this.directory;
+		this.pending = this.compactor.submit(() -> {
+			Path target = snapshotFile(directory, next);
+			BinarySnapshot.write(todos, target);
+			deleteOlder(directory, next);
+			return null;
+		});
+		return this.pending;
+	}
+
+	/**
+	 * MODIFY this by stopping the journal: the list is no longer followed,
+	 * the records appended are forced to the disk, the writer thread is
+	 * stopped, the pending compaction is awaited and the journal is closed.
+	 * @throws IOException when the appending was stopped by an error, the
+	 * records can't be forced or the last compaction failed. The files left
+	 * are still consistent.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.list.removeListener(this);
+		IOException error = null;
+		try {
+			this.sync();
+		} catch (IOException ioe) {
+			error = ioe;
+		}
+		if (this.writer != null) {
+			this.queue.add(STOP);
+			try {
+				this.writer.join();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		this.compactor.shutdown();
+		try {
+			if (this.pending != null) {
+				this.pending.get();
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			error = error != null ? error : new IOException("Interrupted while waiting for the compaction.", ie);
+		} catch (ExecutionException ee) {
+			error = error != null ? error
+					: new IOException("The compaction failed: " + ee.getCause().getMessage(), ee.getCause());
+		} finally {
+			this.channel.close();
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * MODIFY record by encoding the record of the mutations, ready to be
+	 * written.
+	 */
+	private void encode(List<Mutation> mutations) {
+		this.record.clear();
+		this.record.position(RECORD_HEADER_SIZE);
+		this.varint(mutations.size());
+		for (Mutation m : mutations) {
+			this.ensure(1 + Varint.MAX_SIZE);
+			this.record.put((byte) m.getKind().ordinal());
+			Varint.put(this.record, m.getId());
+			switch (m.getKind()) {
+				case ADD:
+					ToDo todo = m.getToDo();
+					this.varint(Varint.zigZag(todo.getCreation().toEpochSecond(ZoneOffset.UTC)));
+					this.varint(todo.getCreation().getNano());
+					this.varint(todo.getTagCount());
+					for (int i = 0; i < todo.getTagCount(); i++) {
+						this.tag(REGISTRY.get(todo.getTagId(i)));
+					}
+					this.string(todo.getTitle(), false);
+					this.string(todo.getDescription(), true);
+					break;
+				case TITLE:
+					this.string(m.getText(), false);
+					break;
+				case DESCRIPTION:
+					this.string(m.getText(), true);
+					break;
+				case ADD_TAG:
+				case DELETE_TAG:
+					this.tag(m.getTag());
+					break;
+				default:
+			}
+		}
+
+		int end = this.record.position();
+		int length = end - RECORD_HEADER_SIZE;
+		CRC32C crc = new CRC32C();
+		crc.update(this.record.array(), RECORD_HEADER_SIZE, length);
+		int start = RECORD_HEADER_SIZE - Integer.BYTES - Varint.size(length);
+		this.record.position(start);
+		Varint.put(this.record, length);
+		this.record.putInt((int) crc.getValue());
+		this.record.position(start);
+		this.record.limit(end);
+	}
+
+	/**
+	 * MODIFY record by growing it, if needed, so that n more bytes fit.
+	 */
+	private void ensure(int n) {
+		if (this.record.remaining() < n) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(this.record.capacity() * 2, this.record.position() + n));
+			this.record.flip();
+			larger.put(this.record);
+			this.record = larger;
+		}
+	}
+
+	private void varint(long value) {
+		this.ensure(Varint.MAX_SIZE);
+		Varint.put(this.record, value);
+	}
+
+	/**
+	 * MODIFY record by encoding a string as its UTF-8 length and bytes; when
+	 * nullable, the length is written plus one and 0 means null.
+	 */
+	private void string(String s, boolean nullable) {
+		if (s == null) {
+			this.varint(0);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		this.varint(nullable ? bytes.length + 1L : bytes.length);
+		this.ensure(bytes.length);
+		this.record.put(bytes);
+	}
+
+	private void tag(Tag tag) {
+		this.varint(tag.getColor().ordinal());
+		this.string(tag.getText(), false);
+	}
+
+	/**
+	 * MODIFY list by applying the records of a journal, and leave the channel
+	 * at the end of the valid ones. In the last journal, a record cut or
+	 * corrupted at the end is the trace of a crash while it was written: it
+	 * is dropped, truncating the file.
+	 * @throws IOException when the journal is corrupted in any other way.
+	 */
+	private static void replay(FileChannel channel, ToDoList list, boolean last) throws IOException {
+		Input in = new Input(channel);
+		if (!in.ensure(HEADER_SIZE)) {
+			if (!last) {
+				throw new IOException("Truncated header.");
+			}
+			channel.truncate(0);
+			writeHeader(channel);
+			return;
+		}
+		byte[] magic = new byte[MAGIC.length];
+		in.buf.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a ToDo journal.");
+		}
+		short version = in.buf.getShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported journal version " + version + ".");
+		}
+
+		long valid = in.position();
+		int count = 0;
+		while (in.ensure(1)) {
+			int length;
+			try {
+				length = in.ensure(Math.min(5, (int) Math.min(Integer.MAX_VALUE, in.size - in.position())))
+						? Varint.getInt(in.buf) : -1;
+			} catch (BufferUnderflowException | IllegalArgumentException e) {
+				length = -1;
+			}
+			boolean complete = length >= 0 && length <= Integer.MAX_VALUE - Integer.BYTES
+					&& in.ensure(Integer.BYTES + length);
+			if (complete) {
+				int crc = in.buf.getInt();
+				CRC32C check = new CRC32C();
+				check.update(in.buf.array(), in.buf.arrayOffset() + in.buf.position(), length);
+				complete = (int) check.getValue() == crc;
+			}
+			if (!complete) {
+				if (!last) {
+					throw new IOException("Corrupted record " + count + ".");
+				}
+				channel.truncate(valid);
+				break;
+			}
+
+			ByteBuffer payload = in.buf.slice();
+			payload.limit(length);
+			in.buf.position(in.buf.position() + length);
+			try {
+				list.applyBatch(decode(payload));
+			} catch (IllegalArgumentException iae) {
+				throw new IOException("Record " + count + " can't be applied: " + iae.getMessage(), iae);
+			}
+			valid = in.position();
+			count++;
+		}
+		channel.position(valid);
+	}
+
+	/**
+	 * RETURN the mutations of the payload of a record.
+	 * @throws IOException when the payload is not valid.
+	 */
+	private static List<Mutation> decode(ByteBuffer payload) throws IOException {
+		Mutation.Kind[] kinds = Mutation.Kind.values();
+		try {
+			int count = Varint.getInt(payload);
+			List<Mutation> res = new ArrayList<Mutation>(Math.min(count, payload.remaining()));
+			for (int i = 0; i < count; i++) {
+				int kind = payload.get();
+				if (kind < 0 || kind >= kinds.length) {
+					throw new IOException("Invalid kind of mutation " + kind + ".");
+				}
+				long id = Varint.get(payload);
+				switch (kinds[kind]) {
+					case ADD:
+						long seconds = Varint.unZigZag(Varint.get(payload));
+						LocalDateTime creation = LocalDateTime.ofEpochSecond(seconds, Varint.getInt(payload),
+								ZoneOffset.UTC);
+						int tagCount = Varint.getInt(payload);
+						List<Tag> tags = new ArrayList<Tag>(Math.min(tagCount, payload.remaining()));
+						for (int j = 0; j < tagCount; j++) {
+							tags.add(readTag(payload));
+						}
+						String title = readString(payload, false);
+						res.add(Mutation.add(new ToDo(id, title, readString(payload, true), creation, tags)));
+						break;
+					case REMOVE:
+						res.add(Mutation.remove(id));
+						break;
+					case TITLE:
+						res.add(Mutation.title(id, readString(payload, false)));
+						break;
+					case DESCRIPTION:
+						res.add(Mutation.description(id, readString(payload, true)));
+						break;
+					case ADD_TAG:
+						res.add(Mutation.addTag(id, readTag(payload)));
+						break;
+					default:
+						res.add(Mutation.deleteTag(id, readTag(payload)));
+				}
+			}
+			if (payload.hasRemaining()) {
+				throw new IOException("Unexpected data after the mutations.");
+			}
+			return res;
+		} catch (BufferUnderflowException | IllegalArgumentException | DateTimeException | EmptyFieldException e) {
+			throw new IOException("Invalid record.", e);
+		}
+	}
+
+	private static String readString(ByteBuffer payload, boolean nullable) {
+		int length = Varint.getInt(payload);
+		if (nullable) {
+			if (length == 0) {
+				return null;
+			}
+			length--;
+		}
+		if (length > payload.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		String res = new String(payload.array(), payload.arrayOffset() + payload.position(), length,
+				StandardCharsets.UTF_8);
+		payload.position(payload.position() + length);
+		return res;
+	}
+
+	private static Tag readTag(ByteBuffer payload) throws IOException {
+		Color[] colors = Color.values();
+		int color = Varint.getInt(payload);
+		String text = readString(payload, false);
+		if (color >= colors.length || text.isEmpty()) {
+			throw new IOException("Invalid tag.");
+		}
+		return REGISTRY.intern(text, colors[color]);
+	}
+
+	/**
+	 * RETURN the channel of a new, empty journal of a generation.
+	 */
+	private static FileChannel createJournal(Path directory, long generation) throws IOException {
+		FileChannel channel = FileChannel.open(journalFile(directory, generation), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			writeHeader(channel);
+			FileIO.syncDirectory(directory);
+		} catch (IOException ioe) {
+			channel.close();
+			throw ioe;
+		}
+		return channel;
+	}
+
+	private static void writeHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.put(MAGIC).putShort(VERSION).flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+	}
+
+	/**
+	 * Delete the snapshots and the journals of the generations before the one
+	 * specified.
+	 */
+	private static void deleteOlder(Path directory, long generation) throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+				if (m.matches() && generationOf(m) < generation) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * RETURN the generation in the name of a snapshot or journal matched.
+	 */
+	private static long generationOf(Matcher m) {
+		return Long.parseLong(m.group(1) != null ? m.group(1) : m.group(2));
+	}
+
+	static Path snapshotFile(Path directory, long generation) {
+		return directory.resolve("snapshot-" + generation + ".tdsn");
+	}
+
+	static Path journalFile(Path directory, long generation) {
+		return directory.resolve("journal-" + generation + ".tdj");
+	}
+
+	/**
+	 * This class provide the counters of the forces of a journal to the
+	 * disk, as they were when it was created.
+	 */
+	static final class Metrics {
+
+		private final long syncs;
+		private final long records;
+		private final long syncNanos;
+		private final long maxSyncNanos;
+		private final long maxBatch;
+
+		private Metrics(long syncs, long records, long syncNanos, long maxSyncNanos, long maxBatch) {
+			this.syncs = syncs;
+			this.records = records;
+			this.syncNanos = syncNanos;
+			this.maxSyncNanos = maxSyncNanos;
+			this.maxBatch = maxBatch;
+		}
+
+		/**
+		 * @return the number of forces done.
+		 */
+		long getSyncs() {
+			return this.syncs;
+		}
+
+		/**
+		 * @return the number of records forced.
+		 */
+		long getRecords() {
+			return this.records;
+		}
+
+		/**
+		 * @return the average number of records forced at once, 0 if there
+		 * was no force.
+		 */
+		double getAverageBatchSize() {
+			return this.syncs == 0 ? 0 : (double) this.records / this.syncs;
+		}
+
+		/**
+		 * @return the largest number of records forced at once.
+		 */
+		long getMaxBatchSize() {
+			return this.maxBatch;
+		}
+
+		/**
+		 * @return the average time taken by a force, zero if there was no
+		 * force.
+		 */
+		Duration getAverageSyncLatency() {
+			return Duration.ofNanos(this.syncs == 0 ? 0 : this.syncNanos / this.syncs);
+		}
+
+		/**
+		 * @return the longest time taken by a force.
+		 */
+		Duration getMaxSyncLatency() {
+			return Duration.ofNanos(this.maxSyncNanos);
+		}
+
+		@Override
+		public String toString() {
+			return this.syncs + " syncs of " + this.getAverageBatchSize() + " records on average (max "
+					+ this.maxBatch + "), taking " + this.getAverageSyncLatency() + " on average (max "
+					+ this.getMaxSyncLatency() + ")";
+		}
+	}
+
+	/**
+	 * The buffer a journal is read through, refilled from the channel when
+	 * the next item doesn't fit in what is left of it.
+	 */
+	private static final class Input {
+		private final FileChannel channel;
+		private final long size;
+		private long read;
+		private ByteBuffer buf;
+
+		private Input(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			this.read = 0;
+			this.buf = ByteBuffer.allocate(BUFFER_SIZE);
+			this.buf.flip();
+			channel.position(0);
+		}
+
+		/**
+		 * RETURN the position in the file.
+		 */
+		private long position() {
+			return this.read - this.buf.remaining();
+		}
+
+		/**
+		 * Make sure the next n bytes are in the buffer, growing it if needed.
+		 * @return true if they are, false if the file ends before.
+		 */
+		private boolean ensure(int n) throws IOException {
+			if (this.buf.remaining() >= n) {
+				return true;
+			} else if (this.position() + n > this.size) {
+				return false;
+			}
+			if (this.buf.capacity() < n) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(n, this.buf.capacity() * 2));
+				larger.put(this.buf);
+				this.buf = larger;
+			} else {
+				this.buf.compact();
+			}
+			while (this.buf.position() < n) {
+				int r = this.channel.read(this.buf);
+				if (r < 0) {
+					this.buf.flip();
+					return false;
+				}
+				this.read += r;
+			}
+			this.buf.flip();
+			return true;
+		}
+	}
+
+}	// class Journal
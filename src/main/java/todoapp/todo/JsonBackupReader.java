@@ -0,0 +1,600 @@
+package todoapp.todo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import todoapp.exceptions.EmptyFieldException;
+import todoapp.todo.Tag.Color;
+
+/**
+ * This class provide the streaming decoder of the backups written by
+ * JsonBackupWriter. The input is read in chunks into a fixed buffer and
+ * every ToDo is added to the list as soon as it is parsed, so besides the
+ * list itself the memory used doesn't depend on the size of the backup.
+ * The ToDos keep their identifiers and creation dates. The members are
+ * accepted in any order and the unknown ones are skipped; when the count
+ * comes before the ToDos, as JsonBackupWriter writes it, the list is created
+ * with the right size.
+ */
+final class JsonBackupReader {
+
+	/**
+	 * The callback told about the progress of a restore.
+	 */
+	interface Progress {
+
+		/**
+		 * Called every PROGRESS_STEP ToDos and at the end of the restore.
+		 * @param restored: the number of ToDos restored so far.
+		 * @param total: the number of ToDos in the backup, or -1 if unknown.
+		 */
+		void restored(int restored, int total);
+	}
+
+	/**
+	 * The object JsonBackupReader implementation is done with:
+	 * - the Reader of the document
+	 * - a char array buffer with the chunk read, where the chars between pos
+	 * and limit are still to parse
+	 * - the number of the current line, for the error messages
+	 * - a StringBuilder reused to parse the strings
+	 */
+	private final Reader in;
+	private final char[] buffer;
+	private int pos;
+	private int limit;
+	private long line;
+	private final StringBuilder text;
+
+	static final int PROGRESS_STEP = 1024;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_PRESIZE = 1 << 22;
+	private static final TagRegistry REGISTRY = TagRegistry.getInstance();
+
+	/**
+	 * Constructor that reads from a Reader.
+	 * @param in: the Reader. REQUIRED not null.
+	 * @throws NullPointerException when in is null.
+	 */
+	JsonBackupReader(Reader in) {
+		if (in == null) {
+			throw new NullPointerException();
+		}
+		this.in = in;
+		this.buffer = new char[BUFFER_SIZE];
+		this.pos = 0;
+		this.limit = 0;
+		this.line = 1;
+		this.text = new StringBuilder();
+	}
+
+	/**
+	 * Constructor that reads from a channel, decoding the document as UTF-8.
+	 * Malformed UTF-8 makes the restore fail.
+	 * @param channel: the channel. REQUIRED not null.
+	 * @throws NullPointerException when channel is null.
+	 */
+	JsonBackupReader(ReadableByteChannel channel) {
+		this(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE));
+	}
+
+	/**
+	 * RETURN a new list with all the ToDos of the document. The input is not
+	 * closed.
+	 * @param progress: the callback told about the progress, or null.
+	 * @return the list.
+	 * @throws IOException when the input fails or the document is not a valid
+	 * backup: in this case the message tells the line of the error.
+	 */
+	ToDoList read(Progress progress) throws IOException {
+		ToDoList list = null;
+		int count = -1;
+		boolean formatChecked = false;
+
+		this.expect('{');
+		if (this.peek() == '}') {
+			this.next();
+		} else {
+			do {
+				String key = this.readString();
+				this.expect(':');
+				switch (key) {
+					case "format":
+						if (!JsonBackupWriter.FORMAT.equals(this.readString())) {
+							throw this.error("not a ToDo backup");
+						}
+						formatChecked = true;
+						break;
+					case "version":
+						long version = this.readLong();
+						if (version < 1 || version > JsonBackupWriter.VERSION) {
+							throw this.error("unsupported version " + version);
+						}
+						break;
+					case "count":
+						long c = this.readLong();
+						if (c < 0 || c > Integer.MAX_VALUE) {
+							throw this.error("invalid count " + c);
+						}
+						count = (int) c;
+						break;
+					case "todos":
+						if (list != null) {
+							throw this.error("duplicate todos");
+						}
+						list = new ToDoList(Math.min(Math.max(count, 0), MAX_PRESIZE));
+						this.readToDos(list, count, progress);
+						break;
+					default:
+						this.skipValue();
+				}
+			} while (this.nextSeparator('}'));
+		}
+
+		if (this.peek() != -1) {
+			throw this.error("unexpected content after the document");
+		} else if (!formatChecked) {
+			throw this.error("not a ToDo backup");
+		} else if (list == null) {
+			throw this.error("missing todos");
+		} else if (count >= 0 && count != list.size()) {
+			throw this.error("expected " + count + " todos, found " + list.size());
+		}
+		return list;
+	}
+
+	/**
+	 * MODIFY list by applying the differential backup of the document: the
+	 * ToDos of the delta replace those with the same identifier, or are
+	 * added, and the ToDos removed are removed if present. The input is not
+	 * closed.
+	 * @param list: the list restored from the base and from the previous
+	 * deltas of the chain. REQUIRED not null.
+	 * @param base: the name of the full backup of the chain. REQUIRED not null.
+	 * @param sequence: the position expected for the delta in the chain.
+	 * @throws IOException when the input fails, the document is not a valid
+	 * delta or it is not the one expected in the chain. In this case list may
+	 * be partially modified.
+	 */
+	void readDelta(ToDoList list, String base, int sequence) throws IOException {
+		int count = -1;
+		int changed = -1;
+		boolean formatChecked = false;
+		boolean removedRead = false;
+		boolean linked = false;
+		boolean sequenceChecked = false;
+		List<Tag> tags = new ArrayList<Tag>();
+
+		this.expect('{');
+		if (this.peek() == '}') {
+			throw this.error("not a ToDo delta");
+		}
+		do {
+			String key = this.readString();
+			this.expect(':');
+			switch (key) {
+				case "format":
+					if (!JsonBackupWriter.DELTA_FORMAT.equals(this.readString())) {
+						throw this.error("not a ToDo delta");
+					}
+					formatChecked = true;
+					break;
+				case "version":
+					long version = this.readLong();
+					if (version < 1 || version > JsonBackupWriter.VERSION) {
+						throw this.error("unsupported version " + version);
+					}
+					break;
+				case "base":
+					if (!base.equals(this.readString())) {
+						throw this.error("the delta doesn't follow " + base);
+					}
+					linked = true;
+					break;
+				case "sequence":
+					long s = this.readLong();
+					if (s != sequence) {
+						throw this.error("expected the delta " + sequence + " of the chain, found " + s);
+					}
+					sequenceChecked = true;
+					break;
+				case "count":
+					count = (int) Math.min(Integer.MAX_VALUE, Math.max(-1, this.readLong()));
+					break;
+				case "todos":
+					changed = 0;
+					this.expect('[');
+					if (this.peek() == ']') {
+						this.next();
+					} else {
+						do {
+							ToDo todo = this.readToDo(tags);
+							list.removeToDo(todo.getId());
+							list.addToDo(todo);
+							changed++;
+						} while (this.nextSeparator(']'));
+					}
+					break;
+				case "removed":
+					removedRead = true;
+					this.expect('[');
+					if (this.peek() == ']') {
+						this.next();
+					} else {
+						do {
+							list.removeToDo(this.readLong());
+						} while (this.nextSeparator(']'));
+					}
+					break;
+				default:
+					this.skipValue();
+			}
+		} while (this.nextSeparator('}'));
+
+		if (this.peek() != -1) {
+			throw this.error("unexpected content after the document");
+		} else if (!formatChecked) {
+			throw this.error("not a ToDo delta");
+		} else if (!linked || !sequenceChecked) {
+			throw this.error("missing base or sequence");
+		} else if (changed < 0 || !removedRead) {
+			throw this.error("missing todos or removed");
+		} else if (count >= 0 && count != changed) {
+			throw this.error("expected " + count + " todos, found " + changed);
+		}
+	}
+
+	/**
+	 * MODIFY list by adding the ToDos of the array.
+	 */
+	private void readToDos(ToDoList list, int total, Progress progress) throws IOException {
+		List<Tag> tags = new ArrayList<Tag>();
+		this.expect('[');
+		if (this.peek() == ']') {
+			this.next();
+		} else {
+			do {
+				if (!list.addToDo(this.readToDo(tags))) {
+					throw this.error("duplicate ToDo identifier");
+				}
+				if (progress != null && list.size() % PROGRESS_STEP == 0) {
+					progress.restored(list.size(), total);
+				}
+			} while (this.nextSeparator(']'));
+		}
+		if (progress != null && list.size() % PROGRESS_STEP != 0) {
+			progress.restored(list.size(), total);
+		}
+	}
+
+	/**
+	 * RETURN the ToDo of the object at the current position.
+	 * @param tags: a List to reuse for the tags. REQUIRED not null.
+	 */
+	private ToDo readToDo(List<Tag> tags) throws IOException {
+		long id = 0;
+		String title = null;
+		String description = null;
+		LocalDateTime creation = null;
+		tags.clear();
+
+		this.expect('{');
+		if (this.peek() == '}') {
+			throw this.error("empty ToDo");
+		}
+		do {
+			String key = this.readString();
+			this.expect(':');
+			switch (key) {
+				case "id":
+					id = this.readLong();
+					break;
+				case "title":
+					title = this.readString();
+					break;
+				case "description":
+					description = this.readNullableString();
+					break;
+				case "date":
+					try {
+						creation = LocalDateTime.parse(this.readString());
+					} catch (DateTimeParseException dtpe) {
+						throw this.error("invalid date");
+					}
+					break;
+				case "tags":
+					this.readTags(tags);
+					break;
+				default:
+					this.skipValue();
+			}
+		} while (this.nextSeparator('}'));
+
+		if (id <= 0 || title == null || creation == null) {
+			throw this.error("a ToDo needs a positive id, a title and a date");
+		}
+		try {
+			return new ToDo(id, title, description, creation, tags);
+		} catch (EmptyFieldException efe) {
+			throw this.error("empty title");
+		}
+	}
+
+	/**
+	 * MODIFY tags by adding the shared Tags of the array at the current
+	 * position.
+	 */
+	private void readTags(List<Tag> tags) throws IOException {
+		this.expect('[');
+		if (this.peek() == ']') {
+			this.next();
+			return;
+		}
+		do {
+			String tagText = null;
+			Color color = null;
+			this.expect('{');
+			do {
+				String key = this.readString();
+				this.expect(':');
+				if (key.equals("text")) {
+					tagText = this.readString();
+				} else if (key.equals("color")) {
+					try {
+						color = Color.valueOf(this.readString());
+					} catch (IllegalArgumentException iae) {
+						throw this.error("unknown color");
+					}
+				} else {
+					this.skipValue();
+				}
+			} while (this.nextSeparator('}'));
+
+			if (tagText == null || tagText.isEmpty() || color == null) {
+				throw this.error("a Tag needs a text and a color");
+			}
+			tags.add(REGISTRY.intern(tagText, color));
+		} while (this.nextSeparator(']'));
+	}
+
+	/**
+	 * RETURN the string at the current position. The runs of characters
+	 * without escapes are copied from the buffer with a single call.
+	 */
+	private String readString() throws IOException {
+		this.expect('"');
+		this.text.setLength(0);
+		while (true) {
+			if (this.pos == this.limit && !this.fill()) {
+				throw this.error("unterminated string");
+			}
+			int start = this.pos;
+			while (this.pos < this.limit) {
+				char c = this.buffer[this.pos];
+				if (c == '"' || c == '\\' || c < 0x20) {
+					break;
+				}
+				this.pos++;
+			}
+			this.text.append(this.buffer, start, this.pos - start);
+			if (this.pos == this.limit) {
+				continue;
+			}
+
+			char c = this.buffer[this.pos++];
+			if (c == '"') {
+				return this.text.toString();
+			} else if (c < 0x20) {
+				throw this.error("control character in a string");
+			}
+			int escaped = this.next();
+			switch (escaped) {
+				case '"':
+				case '\\':
+				case '/':
+					this.text.append((char) escaped);
+					break;
+				case 'n':
+					this.text.append('\n');
+					break;
+				case 'r':
+					this.text.append('\r');
+					break;
+				case 't':
+					this.text.append('\t');
+					break;
+				case 'b':
+					this.text.append('\b');
+					break;
+				case 'f':
+					this.text.append('\f');
+					break;
+				case 'u':
+					int code = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(this.next(), 16);
+						if (digit < 0) {
+							throw this.error("invalid unicode escape");
+						}
+						code = code * 16 + digit;
+					}
+					this.text.append((char) code);
+					break;
+				default:
+					throw this.error("invalid escape");
+			}
+		}
+	}
+
+	/**
+	 * RETURN the string at the current position, or null for a null.
+	 */
+	private String readNullableString() throws IOException {
+		if (this.peek() == 'n') {
+			this.readLiteral("null");
+			return null;
+		}
+		return this.readString();
+	}
+
+	/**
+	 * RETURN the integer number at the current position.
+	 */
+	private long readLong() throws IOException {
+		boolean negative = false;
+		if (this.peek() == '-') {
+			this.next();
+			negative = true;
+		}
+
+		long res = 0;
+		int digits = 0;
+		while (this.pos < this.limit || this.fill()) {
+			char c = this.buffer[this.pos];
+			if (c < '0' || c > '9') {
+				break;
+			}
+			if (res > (Long.MAX_VALUE - (c - '0')) / 10) {
+				throw this.error("number too big");
+			}
+			res = res * 10 + (c - '0');
+			digits++;
+			this.pos++;
+		}
+		if (digits == 0) {
+			throw this.error("number expected");
+		}
+		return negative ? -res : res;
+	}
+
+	/**
+	 * Skip the value at the current position, whatever its type.
+	 */
+	private void skipValue() throws IOException {
+		int c = this.peek();
+		if (c == '"') {
+			this.readString();
+		} else if (c == '{' || c == '[') {
+			char close = c == '{' ? '}' : ']';
+			this.next();
+			if (this.peek() == close) {
+				this.next();
+				return;
+			}
+			do {
+				if (close == '}') {
+					this.readString();
+					this.expect(':');
+				}
+				this.skipValue();
+			} while (this.nextSeparator(close));
+		} else if (c == 't') {
+			this.readLiteral("true");
+		} else if (c == 'f') {
+			this.readLiteral("false");
+		} else if (c == 'n') {
+			this.readLiteral("null");
+		} else if (c == '-' || (c >= '0' && c <= '9')) {
+			while ((this.pos < this.limit || this.fill()) && "+-.eE0123456789".indexOf(this.buffer[this.pos]) >= 0) {
+				this.pos++;
+			}
+		} else {
+			throw this.error("value expected");
+		}
+	}
+
+	/**
+	 * Consume a literal like true, false or null.
+	 */
+	private void readLiteral(String literal) throws IOException {
+		this.peek();
+		for (int i = 0; i < literal.length(); i++) {
+			if (this.next() != literal.charAt(i)) {
+				throw this.error(literal + " expected");
+			}
+		}
+	}
+
+	/**
+	 * RETURN whether another element follows in an object or array: consume
+	 * a comma and return true, or consume the closing character and return
+	 * false.
+	 */
+	private boolean nextSeparator(char close) throws IOException {
+		int c = this.peek();
+		if (c == ',') {
+			this.next();
+			return true;
+		} else if (c == close) {
+			this.next();
+			return false;
+		}
+		throw this.error("',' or '" + close + "' expected");
+	}
+
+	/**
+	 * Skip the white space and consume the character expected.
+	 */
+	private void expect(char expected) throws IOException {
+		if (this.peek() != expected) {
+			throw this.error("'" + expected + "' expected");
+		}
+		this.pos++;
+	}
+
+	/**
+	 * RETURN the next character that is not white space, without consuming
+	 * it, or -1 at the end of the input.
+	 */
+	private int peek() throws IOException {
+		while (this.pos < this.limit || this.fill()) {
+			char c = this.buffer[this.pos];
+			if (c == '\n') {
+				this.line++;
+			} else if (c != ' ' && c != '\t' && c != '\r') {
+				return c;
+			}
+			this.pos++;
+		}
+		return -1;
+	}
+
+	/**
+	 * RETURN the next character, consuming it, or -1 at the end of the input.
+	 */
+	private int next() throws IOException {
+		if (this.pos == this.limit && !this.fill()) {
+			return -1;
+		}
+		return this.buffer[this.pos++];
+	}
+
+	/**
+	 * MODIFY this by reading the next chunk of the input into the buffer.
+	 * @return false at the end of the input.
+	 */
+	private boolean fill() throws IOException {
+		int read = this.in.read(this.buffer, 0, this.buffer.length);
+		while (read == 0) {
+			read = this.in.read(this.buffer, 0, this.buffer.length);
+		}
+		this.pos = 0;
+		this.limit = Math.max(read, 0);
+		return read > 0;
+	}
+
+	/**
+	 * RETURN the exception for an invalid document.
+	 */
+	private IOException error(String message) {
+		return new IOException("Invalid backup at line " + this.line + ": " + message + ".");
+	}
+
+}	// class JsonBackupReader
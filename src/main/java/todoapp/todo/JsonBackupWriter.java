@@ -0,0 +1,229 @@
+package todoapp.todo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * This class provide the streaming encoder of the backups. Every ToDo is
+ * written as soon as it is reached, so the memory used doesn't depend on the
+ * number of ToDos. The document is:
+ * {"format":"todoapp-backup","version":1,"count":2,"todos":[
+ * {"id":1,"title":"...","description":"...","date":"2021-01-31T10:00","tags":[{"text":"...","color":"RED"}]},
+ * {"id":2,"title":"...","description":null,"date":"2021-02-01T09:30:15.123","tags":[]}
+ * ]}
+ * with one ToDo per line. The count comes first so that a reader can size
+ * its list before reading the ToDos.
+ * A differential backup has the format "todoapp-delta", the name of the full
+ * backup it follows and its position in the chain of deltas of that backup,
+ * the ToDos added or modified, as in a full backup, and the identifiers of
+ * the ToDos removed:
+ * {"format":"todoapp-delta","version":1,"base":"full-3.bak","sequence":2,"count":1,"todos":[
+ * {"id":7,...}
+ * ],"removed":[4,9]}
+ */
+final class JsonBackupWriter {
+
+	/**
+	 * The object JsonBackupWriter implementation is done with the buffered
+	 * Writer the document is written to.
+	 */
+	private final Writer out;
+
+	static final String FORMAT = "todoapp-backup";
+	static final String DELTA_FORMAT = "todoapp-delta";
+	static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Constructor that writes to a Writer.
+	 * @param out: the Writer. REQUIRED not null. It should be buffered, since
+	 * the document is written in small pieces.
+	 * @throws NullPointerException when out is null.
+	 */
+	JsonBackupWriter(Writer out) {
+		if (out == null) {
+			throw new NullPointerException();
+		}
+		this.out = out;
+	}
+
+	/**
+	 * Constructor that writes to a channel, encoding the document in UTF-8
+	 * through a buffer.
+	 * @param channel: the channel. REQUIRED not null.
+	 * @throws NullPointerException when channel is null.
+	 */
+	JsonBackupWriter(WritableByteChannel channel) {
+		this(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE),
+				BUFFER_SIZE));
+	}
+
+	/**
+	 * Write the document with all the ToDos passed, then flush the output.
+	 * The output is not closed.
+	 * @param todos: the ToDos. REQUIRED not null and not changing while it is
+	 * written.
+	 * @throws NullPointerException when todos is null.
+	 * @throws IOException when the output fails.
+	 */
+	void write(Collection<ToDo> todos) throws IOException {
+		if (todos == null) {
+			throw new NullPointerException();
+		}
+
+		this.out.write("{\"format\":");
+		this.writeString(FORMAT);
+		this.out.write(",\"version\":");
+		this.out.write(Integer.toString(VERSION));
+		this.writeToDos(todos);
+		this.out.write("}\n");
+		this.out.flush();
+	}
+
+	/**
+	 * Write the document of a differential backup, then flush the output.
+	 * The output is not closed.
+	 * @param base: the name of the full backup the delta follows. REQUIRED
+	 * not null.
+	 * @param sequence: the position of the delta in the chain of the base,
+	 * starting from 1.
+	 * @param changed: the ToDos added or modified since the previous backup
+	 * of the chain. REQUIRED not null and not changing while it is written.
+	 * @param removed: the identifiers of the ToDos removed since then.
+	 * REQUIRED not null and without null elements.
+	 * @throws NullPointerException when an argument is null.
+	 * @throws IOException when the output fails.
+	 */
+	void writeDelta(String base, int sequence, Collection<ToDo> changed, Collection<Long> removed)
+			throws IOException {
+		if (base == null || changed == null || removed == null) {
+			throw new NullPointerException();
+		}
+
+		this.out.write("{\"format\":");
+		this.writeString(DELTA_FORMAT);
+		this.out.write(",\"version\":");
+		this.out.write(Integer.toString(VERSION));
+		this.out.write(",\"base\":");
+		this.writeString(base);
+		this.out.write(",\"sequence\":");
+		this.out.write(Integer.toString(sequence));
+		this.writeToDos(changed);
+		this.out.write(",\"removed\":[");
+		boolean first = true;
+		for (Long id : removed) {
+			if (!first) {
+				this.out.write(',');
+			}
+			this.out.write(Long.toString(id));
+			first = false;
+		}
+		this.out.write("]}\n");
+		this.out.flush();
+	}
+
+	/**
+	 * Write the count and the array of the ToDos, one per line.
+	 */
+	private void writeToDos(Collection<ToDo> todos) throws IOException {
+		this.out.write(",\"count\":");
+		this.out.write(Integer.toString(todos.size()));
+		this.out.write(",\"todos\":[");
+		boolean first = true;
+		for (ToDo todo : todos) {
+			this.out.write(first ? "\n" : ",\n");
+			this.writeToDo(todo);
+			first = false;
+		}
+		this.out.write("\n]");
+	}
+
+	/**
+	 * Write a ToDo as a JSON object.
+	 * @param todo: the ToDo. REQUIRED not null.
+	 * @throws IOException when the output fails.
+	 */
+	private void writeToDo(ToDo todo) throws IOException {
+		this.out.write("{\"id\":");
+		this.out.write(Long.toString(todo.getId()));
+		this.out.write(",\"title\":");
+		this.writeString(todo.getTitle());
+		this.out.write(",\"description\":");
+		this.writeString(todo.getDescription());
+		this.out.write(",\"date\":");
+		this.writeString(todo.getCreation().toString());
+		this.out.write(",\"tags\":[");
+		for (int i = 0; i < todo.getTagCount(); i++) {
+			Tag tag = TagRegistry.getInstance().get(todo.getTagId(i));
+			this.out.write(i == 0 ? "{\"text\":" : ",{\"text\":");
+			this.writeString(tag.getText());
+			this.out.write(",\"color\":\"");
+			this.out.write(tag.getColor().name());
+			this.out.write("\"}");
+		}
+		this.out.write("]}");
+	}
+
+	/**
+	 * Write a JSON string, escaping the quotes, the backslashes, the control
+	 * characters and the line and paragraph separators. The runs of
+	 * characters that need no escape are written with a single call.
+	 * @param s: the string, or null to write null.
+	 * @throws IOException when the output fails.
+	 */
+	private void writeString(String s) throws IOException {
+		if (s == null) {
+			this.out.write("null");
+			return;
+		}
+
+		this.out.write('"');
+		int start = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			String escape = null;
+			switch (c) {
+				case '"':
+					escape = "\\\"";
+					break;
+				case '\\':
+					escape = "\\\\";
+					break;
+				case '\n':
+					escape = "\\n";
+					break;
+				case '\r':
+					escape = "\\r";
+					break;
+				case '\t':
+					escape = "\\t";
+					break;
+				case '\b':
+					escape = "\\b";
+					break;
+				case '\f':
+					escape = "\\f";
+					break;
+				default:
+					if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+						escape = new String(new char[] {'\\', 'u', HEX[c >> 12], HEX[(c >> 8) & 0xF],
+								HEX[(c >> 4) & 0xF], HEX[c & 0xF]});
+					}
+			}
+			if (escape != null) {
+				this.out.write(s, start, i - start);
+				this.out.write(escape);
+				start = i + 1;
+			}
+		}
+		this.out.write(s, start, s.length() - start);
+		this.out.write('"');
+	}
+
+}	// class JsonBackupWriter
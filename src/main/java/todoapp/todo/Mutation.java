@@ -0,0 +1,244 @@
+package todoapp.todo;
+
+import todoapp.exceptions.EmptyFieldException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provide an immutable description of a single change of a
+ * ToDoList, identified by the identifier of the ToDo it touches. Mutations
+ * are applied together by ToDoList.applyBatch() and are what the listeners
+ * of a ToDoList are told about.
+ * The factories check the arguments, so that a batch of mutations can be
+ * validated before anything is modified.
+ */
+final class Mutation {
+
+	/**
+	 * The kinds of change, one for each modifying method of ToDoList.
+	 */
+	enum Kind {
+		ADD,
+		REMOVE,
+		TITLE,
+		DESCRIPTION,
+		ADD_TAG,
+		DELETE_TAG
+	}
+
+	/**
+	 * The object Mutation implementation is done with:
+	 * - the kind of the change
+	 * - the identifier of the ToDo changed
+	 * - the ToDo added, only for ADD
+	 * - the new title or description, only for TITLE and DESCRIPTION
+	 * - the Tag added or deleted, only for ADD_TAG and DELETE_TAG
+	 */
+	private final Kind kind;
+	private final long id;
+	private final ToDo todo;
+	private final String text;
+	private final Tag tag;
+
+	private static final TagRegistry REGISTRY = TagRegistry.getInstance();
+
+	/**
+	 * Constructor used by the factories and by ToDoList, which passes only
+	 * arguments already checked.
+	 */
+	Mutation(Kind kind, long id, ToDo todo, String text, Tag tag) {
+		this.kind = kind;
+		this.id = id;
+		this.todo = todo;
+		this.text = text;
+		this.tag = tag;
+	}
+
+	/**
+	 * RETURN the mutation adding a ToDo.
+	 * @param todo: the ToDo to add. REQUIRED not null.
+	 * @return the mutation.
+	 * @throws NullPointerException when todo is null.
+	 */
+	static Mutation add(ToDo todo) {
+		if (todo == null) {
+			throw new NullPointerException();
+		}
+		return new Mutation(Kind.ADD, todo.getId(), todo, null, null);
+	}
+
+	/**
+	 * RETURN the mutation removing a ToDo.
+	 * @param id: the identifier of the ToDo to remove.
+	 * @return the mutation.
+	 */
+	static Mutation remove(long id) {
+		return new Mutation(Kind.REMOVE, id, null, null, null);
+	}
+
+	/**
+	 * RETURN the mutation changing the title of a ToDo.
+	 * @param id: the identifier of the ToDo to modify.
+	 * @param newTitle: the new title. REQUIRED not null and not empty.
+	 * @return the mutation.
+	 * @throws NullPointerException when newTitle is null.
+	 * @throws EmptyFieldException when newTitle is empty.
+	 */
+	static Mutation title(long id, String newTitle) throws EmptyFieldException {
+		if (newTitle == null) {
+			throw new NullPointerException();
+		} else if (newTitle.isEmpty()) {
+			throw new EmptyFieldException("A ToDo title can't be empty.", "newTitle", "A non-empty string.");
+		}
+		return new Mutation(Kind.TITLE, id, null, newTitle, null);
+	}
+
+	/**
+	 * RETURN the mutation changing the description of a ToDo.
+	 * @param id: the identifier of the ToDo to modify.
+	 * @param newDescription: the new description.
+	 * @return the mutation.
+	 */
+	static Mutation description(long id, String newDescription) {
+		return new Mutation(Kind.DESCRIPTION, id, null, newDescription, null);
+	}
+
+	/**
+	 * RETURN the mutation adding a Tag to a ToDo.
+	 * @param id: the identifier of the ToDo to modify.
+	 * @param newTag: the Tag to add. REQUIRED not null.
+	 * @return the mutation.
+	 * @throws NullPointerException when newTag is null.
+	 */
+	static Mutation addTag(long id, Tag newTag) {
+		if (newTag == null) {
+			throw new NullPointerException();
+		}
+		return new Mutation(Kind.ADD_TAG, id, null, null, newTag);
+	}
+
+	/**
+	 * RETURN the mutation deleting a Tag from a ToDo.
+	 * @param id: the identifier of the ToDo to modify.
+	 * @param tag: the Tag to delete. REQUIRED not null.
+	 * @return the mutation.
+	 * @throws NullPointerException when tag is null.
+	 */
+	static Mutation deleteTag(long id, Tag tag) {
+		if (tag == null) {
+			throw new NullPointerException();
+		}
+		return new Mutation(Kind.DELETE_TAG, id, null, null, tag);
+	}
+
+	/**
+	 * RETURN the mutations turning a ToDo into another version of it.
+	 * @param before: the ToDo before the change. REQUIRED not null.
+	 * @param after: the ToDo after the change. REQUIRED not null and with the
+	 * identifier of before.
+	 * @return a new List with the mutations: title first, then description,
+	 * then the tags deleted and the tags added.
+	 */
+	static List<Mutation> between(ToDo before, ToDo after) {
+		long id = before.getId();
+		List<Mutation> res = new ArrayList<Mutation>();
+		if (!before.getTitle().equals(after.getTitle())) {
+			res.add(new Mutation(Kind.TITLE, id, null, after.getTitle(), null));
+		}
+		if (!before.sameDescription(after)) {
+			res.add(new Mutation(Kind.DESCRIPTION, id, null, after.getDescription(), null));
+		}
+
+		int i = 0;
+		int j = 0;
+		List<Mutation> added = new ArrayList<Mutation>();
+		while (i < before.getTagCount() || j < after.getTagCount()) {
+			int old = i < before.getTagCount() ? before.getTagId(i) : Integer.MAX_VALUE;
+			int now = j < after.getTagCount() ? after.getTagId(j) : Integer.MAX_VALUE;
+			if (old == now) {
+				i++;
+				j++;
+			} else if (old < now) {
+				res.add(new Mutation(Kind.DELETE_TAG, id, null, null, REGISTRY.get(old)));
+				i++;
+			} else {
+				added.add(new Mutation(Kind.ADD_TAG, id, null, null, REGISTRY.get(now)));
+				j++;
+			}
+		}
+		res.addAll(added);
+		return res;
+	}
+
+	/**
+	 * @return the kind of the change.
+	 */
+	Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * @return the identifier of the ToDo changed.
+	 */
+	long getId() {
+		return this.id;
+	}
+
+	/**
+	 * @return the ToDo added, or null if the kind is not ADD.
+	 */
+	ToDo getToDo() {
+		return this.todo;
+	}
+
+	/**
+	 * @return the new title or description, or null for the other kinds.
+	 */
+	String getText() {
+		return this.text;
+	}
+
+	/**
+	 * @return the Tag added or deleted, or null for the other kinds.
+	 */
+	Tag getTag() {
+		return this.tag;
+	}
+
+	/**
+	 * RETURN the ToDo after this change.
+	 * @param before: the ToDo to change. REQUIRED not null and, for every
+	 * kind but ADD and REMOVE, with the identifier of this mutation.
+	 * @return the changed ToDo, or before if nothing changes.
+	 */
+	ToDo applyTo(ToDo before) {
+		switch (this.kind) {
+			case TITLE:
+				return before.withTitle(this.text);
+			case DESCRIPTION:
+				return before.withDescription(this.text);
+			case ADD_TAG:
+				return before.withTag(this.tag);
+			case DELETE_TAG:
+				return before.withoutTag(this.tag);
+			default:
+				return before;
+		}
+	}
+
+	@Override
+	public String toString() {
+		switch (this.kind) {
+			case ADD:
+			case REMOVE:
+				return this.kind + " " + this.id;
+			case ADD_TAG:
+			case DELETE_TAG:
+				return this.kind + " " + this.id + " " + this.tag.getText();
+			default:
+				return this.kind + " " + this.id + " \"" + this.text + "\"";
+		}
+	}
+
+}	// class Mutation
@@ -0,0 +1,469 @@
+package todoapp.todo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import todoapp.todo.Tag.Color;
+
+/**
+ * This class provide an ADT for a query over a ToDoList: a conjunction of
+ * conditions on tags, colors, creation date and text, an order and a limit.
+ * A query is immutable, the and, orderBy and limit methods return a new one:
+ *
+ *     Query.where(tag("work")).and(createdAfter(t)).and(text("invoice"))
+ *          .orderBy(Order.CREATION_DESC).limit(50).run(list);
+ *
+ * The conditions don't say how to find the ToDos: QueryPlan chooses the
+ * indexes of the list to use.
+ */
+final class Query {
+
+	/**
+	 * All the orders the result of a query can have.
+	 */
+	enum Order {
+		NONE, CREATION_ASC, CREATION_DESC
+	}
+
+	/**
+	 * The object Query implementation is done with:
+	 * - an unmodifiable List of the conditions that must all hold
+	 * - the Order of the result
+	 * - an int constant with the maximum number of results
+	 *
+	 * INVARIANT: conditions and order are not null, limit is not negative.
+	 */
+	private final List<Condition> conditions;
+	private final Order order;
+	private final int limit;
+
+	/**
+	 * Constructor for the query and its derivations.
+	 * @param conditions: the conditions. REQUIRED not null and unmodifiable.
+	 * @param order: the order. REQUIRED not null.
+	 * @param limit: the maximum number of results. REQUIRED not negative.
+	 */
+	private Query(List<Condition> conditions, Order order, int limit) {
+		this.conditions = conditions;
+		this.order = order;
+		this.limit = limit;
+	}
+
+	/**
+	 * RETURN a query with a single condition, no order and no limit.
+	 * @param condition: the condition. REQUIRED not null.
+	 * @return the new query.
+	 * @throws NullPointerException when condition is null.
+	 */
+	static Query where(Condition condition) {
+		if (condition == null) {
+			throw new NullPointerException();
+		}
+		return new Query(Collections.singletonList(condition), Order.NONE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * RETURN a query matching all the ToDos, with no order and no limit.
+	 * @return the new query.
+	 */
+	static Query all() {
+		return new Query(Collections.emptyList(), Order.NONE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * RETURN a query equal to this one with another condition that must hold.
+	 * @param condition: the new condition. REQUIRED not null.
+	 * @return the new query.
+	 * @throws NullPointerException when condition is null.
+	 */
+	Query and(Condition condition) {
+		if (condition == null) {
+			throw new NullPointerException();
+		}
+		List<Condition> newConditions = new ArrayList<Condition>(this.conditions.size() + 1);
+		newConditions.addAll(this.conditions);
+		newConditions.add(condition);
+		return new Query(Collections.unmodifiableList(newConditions), this.order, this.limit);
+	}
+
+	/**
+	 * RETURN a query equal to this one with the order specified.
+	 * @param newOrder: the order of the result. REQUIRED not null.
+	 * @return the new query.
+	 * @throws NullPointerException when newOrder is null.
+	 */
+	Query orderBy(Order newOrder) {
+		if (newOrder == null) {
+			throw new NullPointerException();
+		}
+		return new Query(this.conditions, newOrder, this.limit);
+	}
+
+	/**
+	 * RETURN a query equal to this one with the limit specified.
+	 * @param newLimit: the maximum number of results. REQUIRED not negative.
+	 * @return the new query.
+	 * @throws IllegalArgumentException when newLimit is negative.
+	 */
+	Query limit(int newLimit) {
+		if (newLimit < 0) {
+			throw new IllegalArgumentException("The limit of a query can't be negative.");
+		}
+		return new Query(this.conditions, this.order, newLimit);
+	}
+
+	/**
+	 * RETURN the ToDos of the list matching this query.
+	 * @param list: the list to query. REQUIRED not null.
+	 * @return a new List with the matching ToDos, in the order of the query.
+	 * @throws NullPointerException when list is null.
+	 */
+	List<ToDo> run(ToDoList list) {
+		return QueryPlan.plan(this, list).execute();
+	}
+
+	/**
+	 * RETURN the plan chosen to run this query on the list.
+	 * @param list: the list to query. REQUIRED not null.
+	 * @return the description of the plan, one step per line.
+	 * @throws NullPointerException when list is null.
+	 */
+	String explain(ToDoList list) {
+		return QueryPlan.plan(this, list).toString();
+	}
+
+	/**
+	 * RETURN the conditions of the query.
+	 * @return the unmodifiable List of the conditions.
+	 */
+	List<Condition> getConditions() {
+		return this.conditions;
+	}
+
+	/**
+	 * RETURN the order of the result of the query.
+	 * @return the order.
+	 */
+	Order getOrder() {
+		return this.order;
+	}
+
+	/**
+	 * RETURN the maximum number of results of the query.
+	 * @return the limit, Integer.MAX_VALUE if the query has no limit.
+	 */
+	int getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * RETURN a condition holding for the ToDos with a Tag with the text
+	 * specified, whatever its color.
+	 * @param text: the text of the Tag. REQUIRED not null.
+	 * @return the condition.
+	 * @throws NullPointerException when text is null.
+	 */
+	static Condition tag(String text) {
+		if (text == null) {
+			throw new NullPointerException();
+		}
+		return new TagCondition(text, null);
+	}
+
+	/**
+	 * RETURN a condition holding for the ToDos with the Tag specified.
+	 * @param tag: the Tag. REQUIRED not null.
+	 * @return the condition.
+	 * @throws NullPointerException when tag is null.
+	 */
+	static Condition tag(Tag tag) {
+		if (tag == null) {
+			throw new NullPointerException();
+		}
+		return new TagCondition(tag.getText(), tag.getColor());
+	}
+
+	/**
+	 * RETURN a condition holding for the ToDos with a Tag of the Color
+	 * specified.
+	 * @param color: the Color. REQUIRED not null.
+	 * @return the condition.
+	 * @throws NullPointerException when color is null.
+	 */
+	static Condition color(Color color) {
+		if (color == null) {
+			throw new NullPointerException();
+		}
+		return new ColorCondition(color);
+	}
+
+	/**
+	 * RETURN a condition holding for the ToDos created strictly after the
+	 * instant specified.
+	 * @param time: the instant. REQUIRED not null.
+	 * @return the condition.
+	 * @throws NullPointerException when time is null.
+	 */
+	static Condition createdAfter(LocalDateTime time) {
+		if (time == null) {
+			throw new NullPointerException();
+		}
+		return new CreationCondition(time, null);
+	}
+
+	/**
+	 * RETURN a condition holding for the ToDos created strictly before the
+	 * instant specified.
+	 * @param time: the instant. REQUIRED not null.
+	 * @return the condition.
+	 * @throws NullPointerException when time is null.
+	 */
+	static Condition createdBefore(LocalDateTime time) {
+		if (time == null) {
+			throw new NullPointerException();
+		}
+		return new CreationCondition(null, time);
+	}
+
+	/**
+	 * RETURN a condition holding for the ToDos whose title or description
+	 * contain all the words of the text specified, ignoring the case.
+	 * @param text: the words. REQUIRED not null.
+	 * @return the condition.
+	 * @throws NullPointerException when text is null.
+	 */
+	static Condition text(String text) {
+		if (text == null) {
+			throw new NullPointerException();
+		}
+		return new TextCondition(text);
+	}
+
+	/**
+	 * A condition of a query. Besides telling whether a ToDo satisfies it, a
+	 * condition can say if the list has an index able to find the ToDos
+	 * satisfying it, and how many they are expected to be.
+	 */
+	abstract static class Condition {
+
+		/**
+		 * Check whether the ToDo satisfies the condition.
+		 * @param todo: the ToDo. REQUIRED not null.
+		 * @return true if the condition holds.
+		 */
+		abstract boolean test(ToDo todo);
+
+		/**
+		 * RETURN how many ToDos of the list are expected to satisfy the
+		 * condition, if an index can find them.
+		 * @param list: the list. REQUIRED not null.
+		 * @return the estimate, or -1 if no index of the list can be used.
+		 */
+		abstract long estimate(ToDoList list);
+
+		/**
+		 * RETURN the slots of the ToDos of the list satisfying the condition.
+		 * Called only if estimate(list) is not negative.
+		 * @param list: the list. REQUIRED not null.
+		 * @return the slots. The BitSet MUST NOT be modified.
+		 */
+		abstract BitSet candidates(ToDoList list);
+	}
+
+	/**
+	 * Condition on a Tag, by text only or by text and color.
+	 */
+	private static final class TagCondition extends Condition {
+		private final String text;
+		private final Color color;
+
+		private TagCondition(String text, Color color) {
+			this.text = text;
+			this.color = color;
+		}
+
+		@Override
+		boolean test(ToDo todo) {
+			for (Tag t : todo.getTags()) {
+				if (t.getText().equals(this.text) && (this.color == null || t.getColor() == this.color)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		long estimate(ToDoList list) {
+			long res = 0;
+			for (int tagId : this.tagIds()) {
+				res += list.tagSlots(tagId).cardinality();
+			}
+			return res;
+		}
+
+		@Override
+		BitSet candidates(ToDoList list) {
+			int[] ids = this.tagIds();
+			if (ids.length == 1) {
+				return list.tagSlots(ids[0]);
+			}
+			BitSet res = new BitSet();
+			for (int tagId : ids) {
+				res.or(list.tagSlots(tagId));
+			}
+			return res;
+		}
+
+		/**
+		 * RETURN the registry identifiers of the Tags matching the condition.
+		 */
+		private int[] tagIds() {
+			TagRegistry registry = TagRegistry.getInstance();
+			Color[] colors = this.color == null ? Color.values() : new Color[] { this.color };
+			int[] ids = new int[colors.length];
+			int count = 0;
+			for (Color c : colors) {
+				int tagId = this.text.isEmpty() ? -1 : registry.idOf(new Tag(this.text, c, -1));
+				if (tagId >= 0) {
+					ids[count++] = tagId;
+				}
+			}
+			int[] res = new int[count];
+			System.arraycopy(ids, 0, res, 0, count);
+			return res;
+		}
+
+		@Override
+		public String toString() {
+			return "tag \"" + this.text + "\"" + (this.color == null ? "" : " " + this.color);
+		}
+	}
+
+	/**
+	 * Condition on the colors of the Tags.
+	 */
+	private static final class ColorCondition extends Condition {
+		private final Color color;
+
+		private ColorCondition(Color color) {
+			this.color = color;
+		}
+
+		@Override
+		boolean test(ToDo todo) {
+			for (Tag t : todo.getTags()) {
+				if (t.getColor() == this.color) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		long estimate(ToDoList list) {
+			return list.colorSlots(this.color).cardinality();
+		}
+
+		@Override
+		BitSet candidates(ToDoList list) {
+			return list.colorSlots(this.color);
+		}
+
+		@Override
+		public String toString() {
+			return "color " + this.color;
+		}
+	}
+
+	/**
+	 * Condition on the creation date and time, with open bounds.
+	 */
+	private static final class CreationCondition extends Condition {
+		private final LocalDateTime after;
+		private final LocalDateTime before;
+
+		private CreationCondition(LocalDateTime after, LocalDateTime before) {
+			this.after = after;
+			this.before = before;
+		}
+
+		@Override
+		boolean test(ToDo todo) {
+			return (this.after == null || todo.getCreation().isAfter(this.after))
+					&& (this.before == null || todo.getCreation().isBefore(this.before));
+		}
+
+		@Override
+		long estimate(ToDoList list) {
+			return list.estimateCreated(this.after, this.before);
+		}
+
+		@Override
+		BitSet candidates(ToDoList list) {
+			return list.creationSlots(this.after, this.before);
+		}
+
+		@Override
+		public String toString() {
+			return "created" + (this.after == null ? "" : " after " + this.after)
+					+ (this.before == null ? "" : " before " + this.before);
+		}
+	}
+
+	/**
+	 * Condition on the words of the title and the description. It can use
+	 * the full-text index only if the list already built it.
+	 */
+	private static final class TextCondition extends Condition {
+		private final String text;
+		private final List<String> tokens;
+
+		private TextCondition(String text) {
+			this.text = text;
+			Map<String, Integer> frequencies = new HashMap<String, Integer>();
+			SearchIndex.tokenize(text, 1, frequencies);
+			this.tokens = new ArrayList<String>(frequencies.keySet());
+		}
+
+		@Override
+		boolean test(ToDo todo) {
+			Map<String, Integer> frequencies = new HashMap<String, Integer>();
+			SearchIndex.tokenize(todo.getTitle(), 1, frequencies);
+			SearchIndex.tokenize(todo.getDescription(), 1, frequencies);
+			return frequencies.keySet().containsAll(this.tokens);
+		}
+
+		@Override
+		long estimate(ToDoList list) {
+			SearchIndex index = list.searchIndexIfBuilt();
+			if (index == null || this.tokens.isEmpty()) {
+				return -1;
+			}
+			long res = Long.MAX_VALUE;
+			for (String token : this.tokens) {
+				res = Math.min(res, index.documentFrequency(token));
+			}
+			return res;
+		}
+
+		@Override
+		BitSet candidates(ToDoList list) {
+			BitSet res = new BitSet();
+			for (long id : list.searchIndexIfBuilt().matchingAll(this.tokens)) {
+				res.set(list.slotOf(id));
+			}
+			return res;
+		}
+
+		@Override
+		public String toString() {
+			return "text \"" + this.text + "\"";
+		}
+	}
+
+}	// class Query
@@ -0,0 +1,195 @@
+package todoapp.todo;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import todoapp.todo.Query.Condition;
+import todoapp.todo.Query.Order;
+
+/**
+ * This class provide the plan chosen to run a Query on a ToDoList. The
+ * planner asks every condition for an estimate of its result through the
+ * indexes of the list:
+ * - the most selective indexed condition gives the candidate slots
+ * - the other indexed conditions selecting at most half of the list are
+ * intersected with the candidates
+ * - every other condition is checked on each candidate
+ * Only if no condition can use an index the plan scans the list, following
+ * the creation order when the query is ordered by creation, so that a limit
+ * stops it early.
+ */
+final class QueryPlan {
+
+	/**
+	 * The object QueryPlan implementation is done with:
+	 * - the list and the query
+	 * - the condition giving the candidates, or null for a scan
+	 * - the List of the conditions intersected with the candidates
+	 * - the List of the conditions checked on each candidate
+	 * - the estimated number of candidates
+	 */
+	private final ToDoList list;
+	private final Query query;
+	private final Condition driving;
+	private final List<Condition> intersected;
+	private final List<Condition> filters;
+	private final long estimate;
+
+	private static final Comparator<ToDo> CREATION_ASC =
+			Comparator.comparing(ToDo::getCreation).thenComparingLong(ToDo::getId);
+
+	/**
+	 * Constructor of a plan, used by plan().
+	 */
+	private QueryPlan(ToDoList list, Query query, Condition driving, List<Condition> intersected,
+			List<Condition> filters, long estimate) {
+		this.list = list;
+		this.query = query;
+		this.driving = driving;
+		this.intersected = intersected;
+		this.filters = filters;
+		this.estimate = estimate;
+	}
+
+	/**
+	 * RETURN the plan to run the query on the list.
+	 * @param query: the query. REQUIRED not null.
+	 * @param list: the list. REQUIRED not null.
+	 * @return the plan.
+	 * @throws NullPointerException when query or list is null.
+	 */
+	static QueryPlan plan(Query query, ToDoList list) {
+		if (query == null || list == null) {
+			throw new NullPointerException();
+		}
+
+		List<Condition> indexed = new ArrayList<Condition>();
+		List<Long> estimates = new ArrayList<Long>();
+		List<Condition> filters = new ArrayList<Condition>();
+		for (Condition c : query.getConditions()) {
+			long est = c.estimate(list);
+			if (est < 0) {
+				filters.add(c);
+			} else {
+				int pos = 0;
+				while (pos < estimates.size() && estimates.get(pos) <= est) {
+					pos++;
+				}
+				indexed.add(pos, c);
+				estimates.add(pos, est);
+			}
+		}
+
+		if (indexed.isEmpty()) {
+			return new QueryPlan(list, query, null, new ArrayList<Condition>(), filters, list.size());
+		}
+
+		List<Condition> intersected = new ArrayList<Condition>();
+		for (int i = 1; i < indexed.size(); i++) {
+			if (estimates.get(i) <= list.size() / 2) {
+				intersected.add(indexed.get(i));
+			} else {
+				filters.add(indexed.get(i));
+			}
+		}
+		return new QueryPlan(list, query, indexed.get(0), intersected, filters, estimates.get(0));
+	}
+
+	/**
+	 * RETURN the ToDos of the list matching the query.
+	 * @return a new List with the matching ToDos, in the order of the query.
+	 */
+	List<ToDo> execute() {
+		int limit = this.query.getLimit();
+		Order order = this.query.getOrder();
+		List<ToDo> res = new ArrayList<ToDo>();
+
+		if (this.driving == null) {
+			Iterator<ToDo> it = order == Order.NONE ? this.list.iterator()
+					: this.list.creationOrder(order == Order.CREATION_DESC);
+			while (res.size() < limit && it.hasNext()) {
+				ToDo todo = it.next();
+				if (this.accept(todo)) {
+					res.add(todo);
+				}
+			}
+			return res;
+		}
+
+		BitSet candidates = this.driving.candidates(this.list);
+		if (!this.intersected.isEmpty()) {
+			candidates = (BitSet) candidates.clone();
+			for (Condition c : this.intersected) {
+				candidates.and(c.candidates(this.list));
+			}
+		}
+
+		int stop = order == Order.NONE ? limit : Integer.MAX_VALUE;
+		for (int i = candidates.nextSetBit(0); i >= 0 && res.size() < stop; i = candidates.nextSetBit(i + 1)) {
+			ToDo todo = this.list.atSlot(i);
+			if (this.accept(todo)) {
+				res.add(todo);
+			}
+		}
+
+		if (order != Order.NONE) {
+			res.sort(order == Order.CREATION_ASC ? CREATION_ASC : CREATION_ASC.reversed());
+			if (res.size() > limit) {
+				res = new ArrayList<ToDo>(res.subList(0, limit));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Check whether a candidate satisfies all the filters.
+	 * @param todo: the candidate. REQUIRED not null.
+	 * @return true if all the filters hold.
+	 */
+	private boolean accept(ToDo todo) {
+		for (Condition c : this.filters) {
+			if (!c.test(todo)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * RETURN the description of the plan, one step per line.
+	 * @return the description.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder res = new StringBuilder();
+		Order order = this.query.getOrder();
+
+		if (this.driving == null) {
+			if (order == Order.NONE) {
+				res.append("SCAN list (").append(this.estimate).append(" todos)");
+			} else {
+				res.append("SCAN creation index ").append(order == Order.CREATION_DESC ? "descending" : "ascending")
+						.append(" (").append(this.estimate).append(" todos)");
+			}
+		} else {
+			res.append("INDEX ").append(this.driving).append(" (~").append(this.estimate).append(" todos)");
+			for (Condition c : this.intersected) {
+				res.append("\nINTERSECT ").append(c).append(" (~").append(c.estimate(this.list)).append(" todos)");
+			}
+		}
+		for (Condition c : this.filters) {
+			res.append("\nFILTER ").append(c);
+		}
+		if (this.driving != null && order != Order.NONE) {
+			res.append("\nSORT ").append(order == Order.CREATION_DESC ? "creation descending" : "creation ascending");
+		}
+		if (this.query.getLimit() != Integer.MAX_VALUE) {
+			res.append("\nLIMIT ").append(this.query.getLimit());
+		}
+		return res.toString();
+	}
+
+}	// class QueryPlan
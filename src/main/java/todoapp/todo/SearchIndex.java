@@ -0,0 +1,266 @@
+package todoapp.todo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * This class provide the full-text index over the title and the description
+ * of the ToDos of a ToDoList. The text is split in lower case tokens of
+ * letters and digits, and every token has a postings list with the todos
+ * containing it. Queries are ranked with BM25, where a token in the title
+ * counts as TITLE_WEIGHT tokens in the description.
+ * The index is kept up to date by the list: every change costs only the
+ * tokens of the changed todo.
+ */
+final class SearchIndex {
+
+	/**
+	 * The object SearchIndex implementation is done with:
+	 * - a HashMap from each token to its postings, which map the identifier of
+	 * a todo to the weighted frequency of the token in it
+	 * - a HashMap from the identifier of each todo to its indexed Document
+	 * - a long variable with the sum of the lengths of all the documents
+	 *
+	 * INVARIANT: a todo is in the postings of a token if and only if the token
+	 * is in the terms of its Document. Empty postings are removed.
+	 */
+	private final Map<String, Map<Long, Integer>> postings;
+	private final Map<Long, Document> documents;
+	private long totalLength;
+
+	/**
+	 * BM25 parameters: term frequency saturation and length normalization.
+	 */
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final int TITLE_WEIGHT = 2;
+
+	/**
+	 * Constructor that creates a new empty index.
+	 */
+	SearchIndex() {
+		this.postings = new HashMap<String, Map<Long, Integer>>();
+		this.documents = new HashMap<Long, Document>();
+		this.totalLength = 0;
+	}
+
+	/**
+	 * MODIFY this by indexing the title and the description of a todo.
+	 * @param todo: the todo to index. REQUIRED not null and not already
+	 * indexed.
+	 */
+	void add(ToDo todo) {
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+		int length = tokenize(todo.getTitle(), TITLE_WEIGHT, frequencies)
+				+ tokenize(todo.getDescription(), 1, frequencies);
+
+		Long id = todo.getId();
+		String[] terms = new String[frequencies.size()];
+		int i = 0;
+		for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+			terms[i++] = term.getKey();
+			this.postings.computeIfAbsent(term.getKey(), k -> new HashMap<Long, Integer>()).put(id, term.getValue());
+		}
+		this.documents.put(id, new Document(terms, length));
+		this.totalLength += length;
+	}
+
+	/**
+	 * MODIFY this by removing a todo from the index.
+	 * @param id: the identifier of the todo to remove.
+	 */
+	void remove(long id) {
+		Document doc = this.documents.remove(id);
+		if (doc == null) {
+			return;
+		}
+
+		for (String term : doc.terms) {
+			Map<Long, Integer> list = this.postings.get(term);
+			list.remove(id);
+			if (list.isEmpty()) {
+				this.postings.remove(term);
+			}
+		}
+		this.totalLength -= doc.length;
+	}
+
+	/**
+	 * MODIFY this after a todo changed, reindexing it only if its text
+	 * changed.
+	 * @param before: the todo before the change. REQUIRED not null.
+	 * @param after: the todo after the change. REQUIRED not null.
+	 */
+	void update(ToDo before, ToDo after) {
+		if (before.getTitle().equals(after.getTitle()) && before.sameDescription(after)) {
+			return;
+		}
+		this.remove(before.getId());
+		this.add(after);
+	}
+
+	/**
+	 * RETURN the BM25 score of every todo containing at least one token of the
+	 * query.
+	 * @param query: the text to search. REQUIRED not null.
+	 * @return a new Map from the identifier of the todos to their score.
+	 */
+	Map<Long, Double> scores(String query) {
+		Map<String, Integer> queryTerms = new HashMap<String, Integer>();
+		tokenize(query, 1, queryTerms);
+
+		Map<Long, Double> res = new HashMap<Long, Double>();
+		int n = this.documents.size();
+		if (n == 0) {
+			return res;
+		}
+
+		double avgLength = Math.max(1.0, (double) this.totalLength / n);
+		for (String term : queryTerms.keySet()) {
+			Map<Long, Integer> list = this.postings.get(term);
+			if (list == null) {
+				continue;
+			}
+
+			int df = list.size();
+			double idf = Math.log(1.0 + (n - df + 0.5) / (df + 0.5));
+			for (Map.Entry<Long, Integer> posting : list.entrySet()) {
+				int tf = posting.getValue();
+				int length = this.documents.get(posting.getKey()).length;
+				double norm = K1 * (1 - B + B * length / avgLength);
+				res.merge(posting.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN the identifiers of the best ranked todos for the query.
+	 * @param query: the text to search. REQUIRED not null.
+	 * @param k: the maximum number of results. REQUIRED not negative.
+	 * @return a new List with at most k identifiers, from the best ranked.
+	 * Todos with the same score are ordered by identifier.
+	 */
+	List<Long> top(String query, int k) {
+		PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<Map.Entry<Long, Double>>(
+				Math.max(1, k), (a, b) -> compare(a, b));
+
+		for (Map.Entry<Long, Double> scored : this.scores(query).entrySet()) {
+			if (best.size() < k) {
+				best.add(scored);
+			} else if (k > 0 && compare(scored, best.peek()) > 0) {
+				best.poll();
+				best.add(scored);
+			}
+		}
+
+		List<Long> res = new ArrayList<Long>(best.size());
+		while (!best.isEmpty()) {
+			res.add(best.poll().getKey());
+		}
+		Collections.reverse(res);
+		return res;
+	}
+
+	/**
+	 * RETURN the number of todos containing a token.
+	 * @param token: the lower case token.
+	 * @return the number of todos.
+	 */
+	int documentFrequency(String token) {
+		Map<Long, Integer> list = this.postings.get(token);
+		return list == null ? 0 : list.size();
+	}
+
+	/**
+	 * RETURN the identifiers of the todos containing all the tokens passed.
+	 * @param tokens: the lower case tokens. REQUIRED not null and not empty.
+	 * @return a new List with the identifiers.
+	 */
+	List<Long> matchingAll(Collection<String> tokens) {
+		List<Map<Long, Integer>> lists = new ArrayList<Map<Long, Integer>>(tokens.size());
+		for (String token : tokens) {
+			Map<Long, Integer> list = this.postings.get(token);
+			if (list == null) {
+				return new ArrayList<Long>();
+			}
+			lists.add(list);
+		}
+		lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+		List<Long> res = new ArrayList<Long>();
+		for (Long id : lists.get(0).keySet()) {
+			boolean inAll = true;
+			for (int i = 1; i < lists.size() && inAll; i++) {
+				inAll = lists.get(i).containsKey(id);
+			}
+			if (inAll) {
+				res.add(id);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Compare two scored todos: the greater is the better ranked.
+	 * @param a: the first scored todo.
+	 * @param b: the second scored todo.
+	 * @return a negative number, zero or a positive number as a is ranked
+	 * worse than, equal to or better than b.
+	 */
+	private static int compare(Map.Entry<Long, Double> a, Map.Entry<Long, Double> b) {
+		int res = Double.compare(a.getValue(), b.getValue());
+		if (res != 0) {
+			return res;
+		}
+		return Long.compare(b.getKey(), a.getKey());
+	}
+
+	/**
+	 * MODIFY frequencies by adding the tokens of a text.
+	 * @param text: the text to split. It can be null.
+	 * @param weight: how much each token counts.
+	 * @param frequencies: the frequencies to update. REQUIRED not null.
+	 * @return the weighted number of tokens found.
+	 */
+	static int tokenize(String text, int weight, Map<String, Integer> frequencies) {
+		if (text == null) {
+			return 0;
+		}
+
+		int count = 0;
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean inToken = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (inToken && start < 0) {
+				start = i;
+			} else if (!inToken && start >= 0) {
+				String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+				frequencies.merge(token, weight, Integer::sum);
+				count += weight;
+				start = -1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * The indexed data of a todo: its distinct tokens and its weighted length.
+	 */
+	private static final class Document {
+		private final String[] terms;
+		private final int length;
+
+		private Document(String[] terms, int length) {
+			this.terms = terms;
+			this.length = length;
+		}
+	}
+
+}	// class SearchIndex
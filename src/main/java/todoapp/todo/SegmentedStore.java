@@ -0,0 +1,293 @@
+package todoapp.todo;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class provide the persistence of a ToDoList split in segments by the
+ * month of creation of the ToDos: segment-yyyy-MM.tdsg holds the ToDos
+ * created in that month, as a BinarySnapshot with its header and followed
+ * by the trailer with its checksum. Since the creation of a ToDo never
+ * changes, every change touches a single segment, and save() rewrites only
+ * the segments touched since the last save, each one atomically; a segment
+ * left empty is deleted.
+ * open() reads the segments in parallel on a ForkJoinPool, each one into a
+ * list of ToDos of its own, and then merges them into the ToDoList, whose
+ * structures can be built by a single thread. save() writes the segments in
+ * parallel too.
+ * The store follows the changes of the list to know the segments touched. A
+ * removal doesn't tell the creation of the ToDo removed, so every segment
+ * saved keeps the sorted identifiers of its ToDos: a ToDo removed is in one
+ * of them, or it was added after the last save, which already marked its
+ * segment.
+ * The store has to be used by the thread that modifies the list.
+ */
+final class SegmentedStore implements ToDoListListener {
+
+	private static final Pattern FILE_NAME = Pattern.compile("segment-([+-]?\\d{4,}-\\d{2})\\.tdsg");
+
+	/**
+	 * The object SegmentedStore implementation is done with:
+	 * - the list, the directory of the segments and the pool reading and
+	 * writing them
+	 * - a TreeMap from the month of each segment saved to the sorted
+	 * identifiers of its ToDos
+	 * - the months of the segments touched since they were saved
+	 *
+	 * INVARIANT: the file of a month not in dirty holds the ToDos of the list
+	 * created in that month, whose identifiers are in saved, and it doesn't
+	 * exist if there are none.
+	 */
+	private final ToDoList list;
+	private final Path directory;
+	private final ForkJoinPool pool;
+	private final Map<YearMonth, long[]> saved;
+	private final Set<YearMonth> dirty;
+
+	private SegmentedStore(ToDoList list, Path directory, ForkJoinPool pool, Map<YearMonth, long[]> saved) {
+		this.list = list;
+		this.directory = directory;
+		this.pool = pool;
+		this.saved = saved;
+		this.dirty = new TreeSet<YearMonth>();
+	}
+
+	/**
+	 * RETURN the store of the segments of a directory, created if it doesn't
+	 * exist, read on the common ForkJoinPool.
+	 * @see #open(Path, ForkJoinPool)
+	 */
+	static SegmentedStore open(Path directory) throws IOException {
+		return open(directory, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * RETURN the store of the segments of a directory, created if it doesn't
+	 * exist: its list holds the ToDos of all the segments, read in parallel,
+	 * and the store follows its changes. The temporary files left by a crash
+	 * are deleted.
+	 * @param directory: the directory of the segments. REQUIRED not null.
+	 * @param pool: the pool reading and writing the segments. REQUIRED not
+	 * null.
+	 * @return the store.
+	 * @throws NullPointerException when directory or pool is null.
+	 * @throws IOException when the directory can't be read, or a segment
+	 * can't be read or is not valid.
+	 */
+	static SegmentedStore open(Path directory, ForkJoinPool pool) throws IOException {
+		if (directory == null || pool == null) {
+			throw new NullPointerException();
+		}
+
+		Files.createDirectories(directory);
+		TreeMap<YearMonth, Path> files = new TreeMap<YearMonth, Path>();
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+			for (Path file : entries) {
+				String name = file.getFileName().toString();
+				Matcher m = FILE_NAME.matcher(name);
+				if (name.endsWith(".tdsg.tmp")) {
+					Files.delete(file);
+				} else if (m.matches()) {
+					files.put(YearMonth.parse(m.group(1)), file);
+				}
+			}
+		}
+
+		Map<YearMonth, ForkJoinTask<List<ToDo>>> reads = new TreeMap<YearMonth, ForkJoinTask<List<ToDo>>>();
+		for (Map.Entry<YearMonth, Path> e : files.entrySet()) {
+			reads.put(e.getKey(), pool.submit(() -> BinarySnapshot.readToDos(e.getValue())));
+		}
+		Map<YearMonth, List<ToDo>> segments = new TreeMap<YearMonth, List<ToDo>>();
+		int count = 0;
+		for (Map.Entry<YearMonth, ForkJoinTask<List<ToDo>>> e : reads.entrySet()) {
+			List<ToDo> todos = join(e.getValue(), "Invalid segment " + files.get(e.getKey()));
+			segments.put(e.getKey(), todos);
+			count += todos.size();
+		}
+
+		ToDoList list = new ToDoList(count);
+		Map<YearMonth, long[]> saved = new TreeMap<YearMonth, long[]>();
+		for (Map.Entry<YearMonth, List<ToDo>> e : segments.entrySet()) {
+			for (ToDo todo : e.getValue()) {
+				if (!periodOf(todo).equals(e.getKey())) {
+					throw new IOException("Invalid segment " + files.get(e.getKey()) + ": the ToDo " + todo.getId()
+							+ " was not created in " + e.getKey() + ".");
+				} else if (!list.addToDo(todo)) {
+					throw new IOException("Invalid segment " + files.get(e.getKey()) + ": the ToDo " + todo.getId()
+							+ " is in another segment too.");
+				}
+			}
+			saved.put(e.getKey(), idsOf(e.getValue()));
+		}
+
+		SegmentedStore store = new SegmentedStore(list, directory, pool, saved);
+		list.addListener(store);
+		return store;
+	}
+
+	/**
+	 * Mark the segments of the ToDos changed as touched.
+	 */
+	@Override
+	public void changed(ToDoList changedList, List<Mutation> mutations) {
+		for (Mutation m : mutations) {
+			ToDo todo = m.getKind() == Mutation.Kind.ADD ? m.getToDo() : this.list.get(m.getId());
+			if (todo != null) {
+				this.dirty.add(periodOf(todo));
+				continue;
+			}
+			for (Map.Entry<YearMonth, long[]> e : this.saved.entrySet()) {
+				if (Arrays.binarySearch(e.getValue(), m.getId()) >= 0) {
+					this.dirty.add(e.getKey());
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the list persisted.
+	 */
+	ToDoList getList() {
+		return this.list;
+	}
+
+	/**
+	 * @return an unmodifiable copy of the months of the segments touched
+	 * since they were saved, in order.
+	 */
+	Set<YearMonth> getDirtySegments() {
+		return Collections.unmodifiableSet(new TreeSet<YearMonth>(this.dirty));
+	}
+
+	/**
+	 * MODIFY this by saving the segments touched since they were saved, in
+	 * parallel: the ToDos of each segment are taken from the creation index
+	 * of the list, so a save costs the size of the segments touched, and each
+	 * segment is written to a temporary file, forced to the disk and moved
+	 * over the old one, or deleted if it has no ToDos left.
+	 * The segments saved are no longer touched, even if another one failed.
+	 * @return the number of segments written or deleted.
+	 * @throws IOException when a segment can't be written: it stays touched,
+	 * and its file is left as it was.
+	 */
+	int save() throws IOException {
+		if (this.dirty.isEmpty()) {
+			return 0;
+		}
+
+		Map<YearMonth, List<ToDo>> segments = new HashMap<YearMonth, List<ToDo>>();
+		for (YearMonth period : this.dirty) {
+			segments.put(period, this.list.findByCreation(period.atDay(1).atStartOfDay(),
+					period.plusMonths(1).atDay(1).atStartOfDay()));
+		}
+
+		Map<YearMonth, ForkJoinTask<Void>> writes = new TreeMap<YearMonth, ForkJoinTask<Void>>();
+		for (Map.Entry<YearMonth, List<ToDo>> e : segments.entrySet()) {
+			writes.put(e.getKey(), this.pool.submit(() -> {
+				writeSegment(segmentFile(this.directory, e.getKey()), e.getValue());
+				return null;
+			}));
+		}
+		IOException error = null;
+		for (Map.Entry<YearMonth, ForkJoinTask<Void>> e : writes.entrySet()) {
+			YearMonth period = e.getKey();
+			try {
+				join(e.getValue(), "The segment " + segmentFile(this.directory, period) + " can't be written");
+			} catch (IOException ioe) {
+				if (error == null) {
+					error = ioe;
+				}
+				continue;
+			}
+			List<ToDo> todos = segments.get(period);
+			if (todos.isEmpty()) {
+				this.saved.remove(period);
+			} else {
+				this.saved.put(period, idsOf(todos));
+			}
+			this.dirty.remove(period);
+		}
+		FileIO.syncDirectory(this.directory);
+		if (error != null) {
+			throw error;
+		}
+		return segments.size();
+	}
+
+	/**
+	 * MODIFY this by stopping following the changes of the list.
+	 */
+	void stop() {
+		this.list.removeListener(this);
+	}
+
+	/**
+	 * Write the ToDos of a segment to its file, atomically, or delete it if
+	 * there are none.
+	 */
+	private static void writeSegment(Path file, List<ToDo> todos) throws IOException {
+		if (todos.isEmpty()) {
+			Files.deleteIfExists(file);
+			return;
+		}
+		BinarySnapshot.write(todos, file, true);
+	}
+
+	/**
+	 * RETURN the result of a task reading or writing a segment, waiting for
+	 * it.
+	 * @param error: the message of the IOException thrown if it failed.
+	 */
+	private static <T> T join(ForkJoinTask<T> task, String error) throws IOException {
+		try {
+			return task.get();
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			throw new IOException(error + ": " + cause.getMessage(), cause);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException(error + ": interrupted.", ie);
+		}
+	}
+
+	/**
+	 * RETURN the sorted identifiers of the ToDos passed.
+	 */
+	private static long[] idsOf(List<ToDo> todos) {
+		long[] ids = new long[todos.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = todos.get(i).getId();
+		}
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	/**
+	 * RETURN the month of the segment of a ToDo.
+	 */
+	static YearMonth periodOf(ToDo todo) {
+		return YearMonth.from(todo.getCreation());
+	}
+
+	static Path segmentFile(Path directory, YearMonth period) {
+		return directory.resolve("segment-" + period + ".tdsg");
+	}
+
+}	// class SegmentedStore
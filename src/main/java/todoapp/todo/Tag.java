@@ -6,10 +6,12 @@ import todoapp.exceptions.EmptyFieldException;
 
 /**
  * This class provide an ADT for the Tag object. A Tag object is 
- * characterized by a text and a color. The object is mutable.
+ * characterized by a text and a color. The object is immutable: the with 
+ * methods return a new Tag and leave the original untouched, so instances can 
+ * be freely shared.
  * ADT Invariants: the Tag object must have a non-empty text and a color.
  */
-@EqualsAndHashCode
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
 public class Tag {
 
 	/**
@@ -23,12 +25,16 @@ public class Tag {
 	 * The object Tag implementation is done with:
 	 * - a String variable that represent the text
 	 * - a Color variable that represent the color
+	 * - an int constant that represent the identifier given by the 
+	 * TagRegistry, or -1 if the Tag wasn't created by the registry
 	 * 
 	 * INVARIANT: the text must be not null and not empty. The color must be 
-	 * not null
+	 * not null. The identifier doesn't take part to the equality.
 	 */
-	private String text;
-	private Color color;
+	private final String text;
+	private final Color color;
+	@EqualsAndHashCode.Exclude
+	private final int id;
 	
 	private static final String TEXT_EXCEPTION = "A Tag must have a text.";
 	
@@ -48,6 +54,7 @@ public class Tag {
 
 		this.text = text;
 		this.color = Color.BLUE;
+		this.id = -1;
 	}
 
 	/**
@@ -66,10 +73,26 @@ public class Tag {
 
 		this.text = text;
 		this.color = color;
+		this.id = -1;
+	}
+
+	/**
+	 * Constructor used by the TagRegistry to create the shared instance of a 
+	 * text and color pair.
+	 * @param text: the text of the Tag. REQUIRED to be not null and not empty.
+	 * @param color: the color of the tag. REQUIRED to be not null.
+	 * @param id: the identifier given by the registry. REQUIRED not negative.
+	 */
+	Tag(String text, Color color, int id) {
+		this.text = text;
+		this.color = color;
+		this.id = id;
 	}
 
 	/**
 	 * Copy constructor that creates a perfect copy of the Tag instance passed.
+	 * Since a Tag is immutable, sharing the instance is always enough and the
+	 * copy is only kept for compatibility.
 	 * @param t: the Tag to copy. REQUIRED not null.
 	 * @throws NullPointerException when t is null.
 	 */
@@ -80,6 +103,7 @@ public class Tag {
 
 		this.text = t.text;
 		this.color = t.color;
+		this.id = t.id;
 	}
 
 	/**
@@ -99,26 +123,45 @@ public class Tag {
 	}
 
 	/**
-	 * MODIFY the text of the tag, changing it with a new one.
-	 * @param newText: the new text of the tag. REQUIRED to be not null and not 
+	 * RETURN the identifier given by the TagRegistry to this Tag.
+	 * @return the identifier, or -1 if this Tag wasn't created by the 
+	 * registry.
+	 */
+	int getId() {
+		return this.id;
+	}
+
+	/**
+	 * RETURN a Tag with the same color of this one and the text specified.
+	 * @param newText: the text of the new tag. REQUIRED to be not null and not 
 	 * empty.
+	 * @return this if the text is unchanged, the shared Tag with the new text 
+	 * otherwise.
 	 */
-	void changeText(String newText) {
+	Tag withText(String newText) {
 
 		assert (newText != null && !newText.isEmpty()): TEXT_EXCEPTION;
 
-		this.text = newText;
+		if (this.text.equals(newText)) {
+			return this;
+		}
+		return TagRegistry.getInstance().intern(newText, this.color);
 	}
 
 	/**
-	 * MODIFY the color of the tag, changing it with a new one.
-	 * @param newColor: the new color of the tag. REQUIRED to be not null.
+	 * RETURN a Tag with the same text of this one and the color specified.
+	 * @param newColor: the color of the new tag. REQUIRED to be not null.
+	 * @return this if the color is unchanged, the shared Tag with the new 
+	 * color otherwise.
 	 */
-	void changeColor(Color newColor) {
+	Tag withColor(Color newColor) {
 
 		assert (newColor != null): "A Tag must have a color.";
 
-		this.color = newColor;
+		if (this.color == newColor) {
+			return this;
+		}
+		return TagRegistry.getInstance().intern(this.text, newColor);
 	}
 
 }	// class Tag
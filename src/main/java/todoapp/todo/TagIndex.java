@@ -0,0 +1,173 @@
+package todoapp.todo;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import todoapp.todo.Tag.Color;
+
+/**
+ * This class provide the inverted index used by ToDoList to answer the
+ * queries on tags and colors. Every todo of the list is known by its slot, a
+ * dense position between 0 and the size of the list, so the set of todos
+ * having a tag (or a tag of some color) is a BitSet and the AND/OR of the
+ * queries are word-level operations.
+ * The index doesn't own the todos: the list tells it every change.
+ */
+final class TagIndex {
+
+	/**
+	 * The object TagIndex implementation is done with:
+	 * - a List where position i holds the slots of the todos with the tag of
+	 * TagRegistry identifier i, or null if no todo ever had it
+	 * - an array where position i holds the slots of the todos with at least
+	 * a tag of the Color of ordinal i
+	 *
+	 * INVARIANT: a bit is set if and only if the todo in that slot has the tag
+	 * (or a tag of the color).
+	 */
+	private final List<BitSet> byTag;
+	private final BitSet[] byColor;
+
+	private static final TagRegistry REGISTRY = TagRegistry.getInstance();
+	private static final BitSet EMPTY = new BitSet(0);
+
+	/**
+	 * Constructor that creates a new empty index.
+	 */
+	TagIndex() {
+		this.byTag = new ArrayList<BitSet>();
+		this.byColor = new BitSet[Color.values().length];
+		for (int i = 0; i < this.byColor.length; i++) {
+			this.byColor[i] = new BitSet();
+		}
+	}
+
+	/**
+	 * MODIFY this by indexing all the tags of a todo.
+	 * @param todo: the todo. REQUIRED not null.
+	 * @param slot: the slot of the todo.
+	 */
+	void add(ToDo todo, int slot) {
+		for (int i = 0; i < todo.getTagCount(); i++) {
+			int tagId = todo.getTagId(i);
+			this.tagSet(tagId).set(slot);
+			this.byColor[REGISTRY.get(tagId).getColor().ordinal()].set(slot);
+		}
+	}
+
+	/**
+	 * MODIFY this by removing all the tags of a todo from the index.
+	 * @param todo: the todo. REQUIRED not null.
+	 * @param slot: the slot of the todo.
+	 */
+	void remove(ToDo todo, int slot) {
+		for (int i = 0; i < todo.getTagCount(); i++) {
+			int tagId = todo.getTagId(i);
+			this.byTag.get(tagId).clear(slot);
+			this.byColor[REGISTRY.get(tagId).getColor().ordinal()].clear(slot);
+		}
+	}
+
+	/**
+	 * MODIFY this by moving a todo from a slot to another, free one.
+	 * @param todo: the todo. REQUIRED not null.
+	 * @param from: the current slot of the todo.
+	 * @param to: the new slot of the todo. REQUIRED not used by any todo.
+	 */
+	void move(ToDo todo, int from, int to) {
+		this.remove(todo, from);
+		this.add(todo, to);
+	}
+
+	/**
+	 * MODIFY this after a tag was added to a todo.
+	 * @param tagId: the identifier of the added tag.
+	 * @param slot: the slot of the todo.
+	 */
+	void tagAdded(int tagId, int slot) {
+		this.tagSet(tagId).set(slot);
+		this.byColor[REGISTRY.get(tagId).getColor().ordinal()].set(slot);
+	}
+
+	/**
+	 * MODIFY this after a tag was deleted from a todo. The color stays indexed
+	 * while the todo has another tag of the same color.
+	 * @param updated: the todo without the tag. REQUIRED not null.
+	 * @param tagId: the identifier of the deleted tag.
+	 * @param slot: the slot of the todo.
+	 */
+	void tagDeleted(ToDo updated, int tagId, int slot) {
+		this.byTag.get(tagId).clear(slot);
+
+		Color color = REGISTRY.get(tagId).getColor();
+		for (int i = 0; i < updated.getTagCount(); i++) {
+			if (REGISTRY.get(updated.getTagId(i)).getColor() == color) {
+				return;
+			}
+		}
+		this.byColor[color.ordinal()].clear(slot);
+	}
+
+	/**
+	 * MODIFY this after a todo was replaced by another version of it, which
+	 * may have any tags. Nothing is done if the tags are the same.
+	 * @param before: the todo before the change. REQUIRED not null.
+	 * @param after: the todo after the change. REQUIRED not null.
+	 * @param slot: the slot of the todo.
+	 */
+	void update(ToDo before, ToDo after, int slot) {
+		if (before.getTagCount() == after.getTagCount()) {
+			int i = 0;
+			while (i < before.getTagCount() && before.getTagId(i) == after.getTagId(i)) {
+				i++;
+			}
+			if (i == before.getTagCount()) {
+				return;
+			}
+		}
+		this.remove(before, slot);
+		this.add(after, slot);
+	}
+
+	/**
+	 * RETURN the slots of the todos having the tag passed.
+	 * @param tagId: the identifier of the tag, or -1 for a tag never interned.
+	 * @return the slots. The BitSet is owned by the index and MUST NOT be
+	 * modified.
+	 */
+	BitSet withTag(int tagId) {
+		if (tagId < 0 || tagId >= this.byTag.size() || this.byTag.get(tagId) == null) {
+			return EMPTY;
+		}
+		return this.byTag.get(tagId);
+	}
+
+	/**
+	 * RETURN the slots of the todos having at least a tag of the color passed.
+	 * @param color: the color. REQUIRED not null.
+	 * @return the slots. The BitSet is owned by the index and MUST NOT be
+	 * modified.
+	 */
+	BitSet withColor(Color color) {
+		return this.byColor[color.ordinal()];
+	}
+
+	/**
+	 * RETURN the BitSet of a tag, creating it if needed.
+	 * @param tagId: the identifier of the tag. REQUIRED not negative.
+	 * @return the BitSet of the tag.
+	 */
+	private BitSet tagSet(int tagId) {
+		while (this.byTag.size() <= tagId) {
+			this.byTag.add(null);
+		}
+		BitSet set = this.byTag.get(tagId);
+		if (set == null) {
+			set = new BitSet();
+			this.byTag.set(tagId, set);
+		}
+		return set;
+	}
+
+}	// class TagIndex
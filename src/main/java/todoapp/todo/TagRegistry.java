@@ -0,0 +1,158 @@
+package todoapp.todo;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import todoapp.todo.Tag.Color;
+
+/**
+ * This class provide the registry that interns every distinct (text, color)
+ * pair of Tag exactly once, giving it a small identifier. The identifiers are
+ * dense, start from 0 and are never reused, so a ToDo can keep its tags as an
+ * array of int instead of a list of Tag.
+ * The registry is shared by the whole application and it is thread-safe:
+ * lookups never lock, only the creation of a new Tag does.
+ */
+final class TagRegistry {
+
+	/**
+	 * The object TagRegistry implementation is done with:
+	 * - a ConcurrentHashMap from a Tag to its shared instance
+	 * - an array where the shared instance of identifier i is in position i
+	 * - an int variable that counts the Tag interned so far
+	 *
+	 * INVARIANT: every shared instance is stored in both the structures and
+	 * its identifier is its position in byId. A shared instance is written in
+	 * byId before being published in canonical, so whoever knows an
+	 * identifier can read its Tag without locking.
+	 */
+	private final Map<Tag, Tag> canonical;
+	private volatile Tag[] byId;
+	private volatile int count;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final TagRegistry INSTANCE = new TagRegistry();
+
+	/**
+	 * Constructor that creates a new empty registry.
+	 */
+	private TagRegistry() {
+		this.canonical = new ConcurrentHashMap<Tag, Tag>();
+		this.byId = new Tag[INITIAL_CAPACITY];
+		this.count = 0;
+	}
+
+	/**
+	 * RETURN the registry shared by the application.
+	 * @return the registry.
+	 */
+	static TagRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * RETURN the shared instance of the Tag passed, creating it the first time
+	 * its text and color are seen.
+	 * @param tag: the Tag to intern. REQUIRED not null.
+	 * @return the shared Tag equal to tag.
+	 * @throws NullPointerException when tag is null.
+	 */
+	Tag intern(Tag tag) {
+		if (tag == null) {
+			throw new NullPointerException();
+		}
+
+		if (tag.getId() >= 0) {
+			return tag;
+		}
+
+		Tag shared = this.canonical.get(tag);
+		if (shared != null) {
+			return shared;
+		}
+		return this.register(tag.getText(), tag.getColor());
+	}
+
+	/**
+	 * RETURN the shared Tag with the text and color passed, creating it the
+	 * first time they are seen.
+	 * @param text: the text of the Tag. REQUIRED to be not null and not empty.
+	 * @param color: the color of the Tag. REQUIRED to be not null.
+	 * @return the shared Tag.
+	 */
+	Tag intern(String text, Color color) {
+
+		assert (text != null && !text.isEmpty() && color != null): "A Tag must have a text and a color.";
+
+		Tag shared = this.canonical.get(new Tag(text, color, -1));
+		if (shared != null) {
+			return shared;
+		}
+		return this.register(text, color);
+	}
+
+	/**
+	 * RETURN the identifier of the Tag passed without interning it.
+	 * @param tag: the Tag to search. REQUIRED not null.
+	 * @return the identifier of the Tag, or -1 if no equal Tag was ever
+	 * interned.
+	 */
+	int idOf(Tag tag) {
+		if (tag.getId() >= 0) {
+			return tag.getId();
+		}
+
+		Tag shared = this.canonical.get(tag);
+		if (shared == null) {
+			return -1;
+		}
+		return shared.getId();
+	}
+
+	/**
+	 * RETURN the shared Tag with the identifier passed.
+	 * @param id: the identifier of the Tag. REQUIRED to be an identifier
+	 * returned by this registry.
+	 * @return the shared Tag.
+	 */
+	Tag get(int id) {
+		return this.byId[id];
+	}
+
+	/**
+	 * RETURN the number of distinct Tag interned so far.
+	 * @return the number of Tag, which is also the first identifier not yet
+	 * used.
+	 */
+	int size() {
+		return this.count;
+	}
+
+	/**
+	 * MODIFY this by creating the shared instance of a text and color pair,
+	 * unless another thread did it in the meanwhile.
+	 * @param text: the text of the Tag.
+	 * @param color: the color of the Tag.
+	 * @return the shared Tag.
+	 */
+	private synchronized Tag register(String text, Color color) {
+		Tag shared = new Tag(text, color, this.count);
+		Tag previous = this.canonical.get(shared);
+		if (previous != null) {
+			return previous;
+		}
+
+		Tag[] newById = this.byId;
+		if (this.count == newById.length) {
+			newById = Arrays.copyOf(newById, newById.length * 2);
+		}
+		newById[this.count] = shared;
+		this.byId = newById;
+		this.count++;
+		this.canonical.put(shared, shared);
+		return shared;
+	}
+
+}	// class TagRegistry
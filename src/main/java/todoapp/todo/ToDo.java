@@ -1,44 +1,80 @@
 package todoapp.todo;
 
 import java.time.LocalDateTime;
+import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.EqualsAndHashCode;
 
 import todoapp.exceptions.EmptyFieldException;
 
-import java.util.ArrayList;
-
 /**
  * This class provide an ADT for the ToDo object. A ToDo object is 
- * characterized by a title, a description, a list of tags where no duplicates 
- * allowed, and a creation date and time.
+ * characterized by a stable identifier, a title, a description, a list of 
+ * tags where no duplicates allowed, and a creation date and time.
  * ADT Invariants: the ToDo object must have a non-empty title and a creation 
  * date. A tag, when added, must be not empty.
+ * The object is immutable: the with methods return a new ToDo with the same 
+ * identifier and creation date, sharing every part that didn't change.
+ * The description can be lazy, e.g. for a ToDo read from a snapshot mapped 
+ * in memory: it is resolved every time getDescription() is called, and 
+ * never kept by the ToDo.
  */
-@EqualsAndHashCode
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
 public class ToDo {
 
 	/**
 	 * The object ToDo implementation is done with:
-	 * - a String variable that represent the title
-	 * - a String variable that represent the description
+	 * - a long constant that represent the identifier
+	 * - a String constant that represent the title
+	 * - an Object constant that represent the description: a String, null, 
+	 * or a LazyDescription
 	 * - a LocalDateTime constant representing the creation date and time
-	 * - a Tag ArrayList that represent the list of tags
+	 * - an int array with the TagRegistry identifiers of the tags
 	 * 
-	 * INVARIANT: the title must be not null and not empty. The creation date 
-	 * must be defined in the constructor and cannot be changed anymore. The 
-	 * tag list must not be null, and must not contains duplicates.
+	 * INVARIANT: the title must be not null and not empty. The identifier and 
+	 * the creation date must be defined in the constructor and cannot be 
+	 * changed anymore. Copies share the identifier of the original. The tag 
+	 * array must not be null, must be sorted and must not contains 
+	 * duplicates, so the membership of a tag is a binary search over the few 
+	 * tags of the todo. The array is never modified, so it is shared by all 
+	 * the ToDos derived from this one.
 	 */
-    private String title;
-    private String description;
+    private final long id;
+    private final String title;
+    private final Object description;
     private final LocalDateTime creation;
-	private ArrayList<Tag> tags;
+	private final int[] tagIds;
 
 	private static final String TITLE_EXCEPTION = "A ToDo must have a title.";
 	private static final String TITLE_VALID_VALUE = "A non-empty string.";
 
+	/**
+	 * The description of a ToDo that is read only when it is needed.
+	 */
+	interface LazyDescription {
+
+		/**
+		 * RETURN the text of the description.
+		 * @return the description, or null if the ToDo has none.
+		 */
+		String resolve();
+	}
+
+	/**
+	 * Source of the identifiers: every new ToDo (but not its copies) takes the 
+	 * next value, so identifiers are unique and increase with creation order.
+	 */
+	private static final AtomicLong ID_GENERATOR = new AtomicLong();
+
+	private static final int[] NO_TAGS = new int[0];
+	private static final TagRegistry REGISTRY = TagRegistry.getInstance();
+
 	/**
 	 * Constructor that specify a tag that the new ToDo should have.
 	 * @param title: the title of the ToDo. REQUIRED to be not null and not 
@@ -56,11 +92,11 @@ public class ToDo {
 			throw new EmptyFieldException(TITLE_EXCEPTION, "title", TITLE_VALID_VALUE);
 		}
 
+        this.id = ID_GENERATOR.incrementAndGet();
         this.title = title;
         this.description = description;
 		this.creation = LocalDateTime.now();
-		this.tags = new ArrayList<Tag>();
-        this.tags.add(new Tag(tag));
+		this.tagIds = new int[] { REGISTRY.intern(tag).getId() };
 	}
 
 	/**
@@ -82,18 +118,66 @@ public class ToDo {
 			throw new EmptyFieldException(TITLE_EXCEPTION, "title", TITLE_VALID_VALUE);
 		}
 
+        this.id = ID_GENERATOR.incrementAndGet();
         this.title = title;
         this.description = description;
 		this.creation = LocalDateTime.now();
-		this.tags = new ArrayList<Tag>();
+		this.tagIds = internAll(tags);
+	}
 
-		Iterator<Tag> tagIt = tags.iterator();
-		while (tagIt.hasNext()) {
-			Tag t = tagIt.next();
-			if (!this.tags.contains(t)) {
-				this.tags.add(t);
-			}
+	/**
+	 * Constructor that recreates a ToDo saved before, e.g. in a backup, with 
+	 * its identifier and creation date. The ToDos created later take 
+	 * identifiers greater than id.
+	 * @param id: the identifier of the ToDo. REQUIRED positive.
+	 * @param title: the title of the ToDo. REQUIRED to be not null and not 
+	 * empty.
+	 * @param description: the description of the ToDo.
+	 * @param creation: the creation date and time. REQUIRED not null.
+	 * @param tags: the Tag Collection of the ToDo. REQUIRED not null.
+	 * @throws NullPointerException when title, creation or tags is null.
+	 * @throws IllegalArgumentException when id is not positive.
+	 * @throws EmptyFieldException when the title is empty.
+	 */
+	ToDo(long id, String title, String description, LocalDateTime creation, Collection<Tag> tags)
+			throws EmptyFieldException {
+
+		this(id, title, (Object) description, creation, tags);
+	}
+
+	/**
+	 * RETURN a ToDo saved before, as the constructor above does, whose 
+	 * description is resolved only when getDescription() is called. It is 
+	 * not a constructor, so that passing a null description stays 
+	 * unambiguous.
+	 * @param description: the description of the ToDo. REQUIRED not null.
+	 * @throws NullPointerException when title, description, creation or tags 
+	 * is null.
+	 * @see #ToDo(long, String, String, LocalDateTime, Collection)
+	 */
+	static ToDo lazy(long id, String title, LazyDescription description, LocalDateTime creation,
+			Collection<Tag> tags) throws EmptyFieldException {
+
+		return new ToDo(id, title, (Object) Objects.requireNonNull(description), creation, tags);
+	}
+
+	private ToDo(long id, String title, Object description, LocalDateTime creation, Collection<Tag> tags)
+			throws EmptyFieldException {
+
+		if (title == null || creation == null || tags == null) {
+			throw new NullPointerException();
+		} else if (id <= 0) {
+			throw new IllegalArgumentException("A ToDo identifier must be positive.");
+		} else if (title.isEmpty()) {
+			throw new EmptyFieldException(TITLE_EXCEPTION, "title", TITLE_VALID_VALUE);
 		}
+
+		ID_GENERATOR.accumulateAndGet(id, Math::max);
+		this.id = id;
+		this.title = title;
+		this.description = description;
+		this.creation = creation;
+		this.tagIds = internAll(tags);
 	}
 
 	/**
@@ -112,16 +196,18 @@ public class ToDo {
 			throw new EmptyFieldException(TITLE_EXCEPTION, "title", TITLE_VALID_VALUE);
 		}
 
+        this.id = ID_GENERATOR.incrementAndGet();
         this.title = title;
         this.description = description;
         this.creation = LocalDateTime.now();
-        this.tags = new ArrayList<Tag>();
+        this.tagIds = NO_TAGS;
 	}
 
 	
 	
 	/**
 	 * Copy constructor that creates a perfect copy of the ToDo instance passed.
+	 * Since a ToDo is immutable, the copy shares all the parts of td.
 	 * @param td: the ToDo to copy. REQUIRED not null.
 	 * @throws NullPointerException when td is null.
 	 */
@@ -131,33 +217,93 @@ public class ToDo {
 			throw new NullPointerException();
 		}
 
+        this.id = td.id;
         this.title = td.title;
         this.description = td.description;
         this.creation = td.creation;
-		this.tags = new ArrayList<Tag>();
-		Iterator<Tag> it = td.tags.iterator();
-		while (it.hasNext()) {
-			this.tags.add(new Tag(it.next()));
-		}
+		this.tagIds = td.tagIds;
     }
 
+	/**
+	 * Constructor used by the with methods: the new ToDo keeps the identifier 
+	 * and the creation date of base.
+	 * @param base: the ToDo the new one derives from. REQUIRED not null.
+	 * @param title: the title of the ToDo. REQUIRED to be not null and not 
+	 * empty.
+	 * @param description: the description of the ToDo.
+	 * @param tagIds: the tag identifiers. REQUIRED not null, sorted and 
+	 * without duplicates.
+	 */
+	private ToDo(ToDo base, String title, Object description, int[] tagIds) {
+		this.id = base.id;
+		this.title = title;
+		this.description = description;
+		this.creation = base.creation;
+		this.tagIds = tagIds;
+	}
+
+	/**
+	 * RETURN the sorted identifiers, without duplicates, of the tags passed,
+	 * interning them.
+	 * @param tags: the tags. REQUIRED not null.
+	 * @return a new array, or NO_TAGS if tags is empty.
+	 */
+	private static int[] internAll(Collection<Tag> tags) {
+		if (tags.isEmpty()) {
+			return NO_TAGS;
+		}
+
+		int[] ids = new int[tags.size()];
+		int count = 0;
+		Iterator<Tag> tagIt = tags.iterator();
+		while (tagIt.hasNext()) {
+			ids[count++] = REGISTRY.intern(tagIt.next()).getId();
+		}
+		Arrays.sort(ids, 0, count);
+
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+				ids[distinct++] = ids[i];
+			}
+		}
+		return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
+	}
+
     /**
-     * MODIFY the title of the todo.
+     * RETURN a ToDo equal to this one but with the title specified.
      * @param newTitle is the new title to set. REQUIRED a non-empty string.
+     * @return this if the title is unchanged, a new ToDo otherwise.
      */
-    void setTitle(String newTitle) {
+    ToDo withTitle(String newTitle) {
 
         assert (newTitle != null && !newTitle.isEmpty()): "A ToDo title must be a valid non-empty string.";
 
-        this.title = newTitle;
+        if (this.title.equals(newTitle)) {
+            return this;
+        }
+        return new ToDo(this, newTitle, this.description, this.tagIds);
     }
 
     /**
-     * MODIFY the description of the todo.
+     * RETURN a ToDo equal to this one but with the description specified.
      * @param newDescription is the new description to set.
+     * @return this if the description is unchanged, a new ToDo otherwise.
      */
-    void setDescription(String newDescription) {
-        this.description = newDescription;
+    ToDo withDescription(String newDescription) {
+        if (Objects.equals(this.getDescription(), newDescription)) {
+            return this;
+        }
+        return new ToDo(this, this.title, newDescription, this.tagIds);
+    }
+
+    /**
+     * RETURN the identifier of the todo. It never changes during the life of 
+     * the todo and it is shared by all its copies.
+     * @return the identifier of the todo.
+     */
+    public long getId() {
+        return this.id;
     }
 
     /**
@@ -173,7 +319,20 @@ public class ToDo {
      * @return the description of the todo as String.
      */
     public String getDescription() {
-        return this.description;
+        Object d = this.description;
+        return d instanceof LazyDescription ? ((LazyDescription) d).resolve() : (String) d;
+    }
+
+    /**
+     * Check whether the todo has the same description as another one. The 
+     * versions of a todo that share a lazy description are compared without 
+     * resolving it, so changing the title or the tags of a todo never reads 
+     * its description.
+     * @param other: the other todo. REQUIRED not null.
+     * @return true if the descriptions are equal, false otherwise.
+     */
+    boolean sameDescription(ToDo other) {
+        return this.description == other.description || Objects.equals(this.getDescription(), other.getDescription());
     }
 
     /**
@@ -186,53 +345,88 @@ public class ToDo {
 
     /**
      * RETURN the tags of this ToDo instance as a Collection.
-     * @return the tags of the todo as Collection.
+     * @return an unmodifiable view of the tags of the todo. Nothing is 
+     * copied and contains() doesn't scan the tags.
      */
     public Collection<Tag> getTags() {
-		Collection<Tag> ret = new ArrayList<Tag>();
-		Iterator<Tag> it = this.tags.iterator();
-		while (it.hasNext()) {
-			ret.add(new Tag(it.next()));
-		}
-        return ret;
+        return new TagView();
+    }
+
+    /**
+     * Check whether the tag with the TagRegistry identifier passed belongs to 
+     * this todo or not.
+     * @param tagId: the identifier of the tag.
+     * @return true if the todo has the tag, false otherwise.
+     */
+    boolean hasTag(int tagId) {
+        return Arrays.binarySearch(this.tagIds, tagId) >= 0;
+    }
+
+    /**
+     * RETURN the number of tags of the todo.
+     * @return the number of tags.
+     */
+    int getTagCount() {
+        return this.tagIds.length;
+    }
+
+    /**
+     * RETURN the TagRegistry identifier of a tag of the todo. The tags are 
+     * ordered by identifier.
+     * @param index: the position of the tag. REQUIRED between 0 and 
+     * getTagCount() - 1.
+     * @return the identifier of the tag.
+     */
+    int getTagId(int index) {
+        return this.tagIds[index];
     }
 	
 	/**
-     * MODIFY the tag list of this ToDo by adding a tag if not already existing.
+     * RETURN a ToDo equal to this one but with a tag added, if not already 
+	 * existing.
      * @param newTag: the instance of Tag to add. REQUIRED to be not null.
-	 * @return true if the operation ends successfully, false if the Tag 
-	 * already exists in the list.
+	 * @return a new ToDo with the tag added, or this if the Tag already exists 
+	 * in the list.
      */
-    boolean addTag(Tag newTag) {
+    ToDo withTag(Tag newTag) {
 
         assert (newTag != null): "A ToDo tag that is going to be added can't be empty.";
-		
-		Tag t = new Tag(newTag);
 
-		if (this.tags.contains(t)) {
-			return false;
+		int tagId = REGISTRY.intern(newTag).getId();
+		int pos = Arrays.binarySearch(this.tagIds, tagId);
+		if (pos >= 0) {
+			return this;
 		}
 
-		return this.tags.add(t);
+		pos = -pos - 1;
+		int[] newTagIds = new int[this.tagIds.length + 1];
+		System.arraycopy(this.tagIds, 0, newTagIds, 0, pos);
+		newTagIds[pos] = tagId;
+		System.arraycopy(this.tagIds, pos, newTagIds, pos + 1, this.tagIds.length - pos);
+		return new ToDo(this, this.title, this.description, newTagIds);
     }
 	
 	/**
-     * MODIFY the tag list of the todo by deleting a tag if already existing.
+     * RETURN a ToDo equal to this one but with a tag deleted, if existing.
      * @param t: instance representing the tag to remove. REQUIRED to be not 
 	 * null.
-	 * @return true if the tag was successfully removed, false if it wasn't 
-	 * removed (maybe because it doesn't exist).
+	 * @return a new ToDo without the tag, or this if the tag doesn't exist in 
+	 * the list.
      */
-    boolean deleteTag(Tag t) {
+    ToDo withoutTag(Tag t) {
 
 		assert (t != null): "A ToDo valid tag must be not null.";
 
-		if (!this.tags.contains(t)) {
-			return false;
+		int tagId = REGISTRY.idOf(t);
+		int pos = tagId < 0 ? -1 : Arrays.binarySearch(this.tagIds, tagId);
+		if (pos < 0) {
+			return this;
 		}
 
-		this.tags.remove(t);
-        return true;
+		int[] newTagIds = new int[this.tagIds.length - 1];
+		System.arraycopy(this.tagIds, 0, newTagIds, 0, pos);
+		System.arraycopy(this.tagIds, pos + 1, newTagIds, pos, newTagIds.length - pos);
+		return new ToDo(this, this.title, this.description, newTagIds);
     }
     
     /**
@@ -243,17 +437,57 @@ public class ToDo {
     public String[] getData() {
         return new String[] {
 			this.title,
-			this.description,
+			this.getDescription(),
 			this.creation.toString()
 		};
 	}
 
 	/**
-	 * @return a standard iterator over the tags of this ToDo instance. The 
-	 * iterator is not sensible to mutations of this ToDo.
+	 * @return a read-only iterator over the tags of this ToDo instance.
 	 */
 	public Iterator<Tag> iterator() {
-		return this.tags.iterator();
+		return new TagView().iterator();
+	}
+
+	/**
+	 * Read-only Collection of the tags of this ToDo, resolved on the fly from 
+	 * the TagRegistry.
+	 */
+	private class TagView extends AbstractCollection<Tag> {
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Tag)) {
+				return false;
+			}
+			int tagId = REGISTRY.idOf((Tag) o);
+			return tagId >= 0 && hasTag(tagId);
+		}
+
+		@Override
+		public int size() {
+			return tagIds.length;
+		}
+
+		@Override
+		public Iterator<Tag> iterator() {
+			return new Iterator<Tag>() {
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return this.next < tagIds.length;
+				}
+
+				@Override
+				public Tag next() {
+					if (this.next >= tagIds.length) {
+						throw new NoSuchElementException();
+					}
+					return REGISTRY.get(tagIds[this.next++]);
+				}
+			};
+		}
 	}
 	
 }   // class ToDo
@@ -1,35 +1,130 @@
 package todoapp.todo;
 
 import todoapp.exceptions.EmptyFieldException;
+import todoapp.exceptions.VersionConflictException;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import todoapp.todo.Tag.Color;
 
 /**
  * This class provide an ADT for a list of ToDo.
  * INVARIANT: the list doesn't contain duplicates.
+ * The list is not thread-safe: ConcurrentToDoList is the ToDoStore to share 
+ * between threads.
  */
-class ToDoList {
+class ToDoList implements ToDoStore {
 
 	/**
 	 * The object ToDoList implementation is done with a HashMap with:
-	 * - key: the Integer returned by the method ToDo.hashCode()
-	 * - value: the ToDo instance
+	 * - key: the identifier returned by the method ToDo.getId()
+	 * - value: the Entry holding the ToDo instance
+	 * and with an array of the same entries, where the entry with slot i is in
+	 * position i.
 	 * INVARIANT: loadedToDos must be not null, must not contains null objects 
-	 * or duplicates.
-	 * NOTE: two ToDos with same title, description and tags aren't equal 
-	 * because the creation time is never the same
+	 * or duplicates. Every entry is stored under the identifier of its ToDo.
+	 * The slots are exactly the numbers between 0 and size - 1: removing a 
+	 * ToDo moves the entry of the last slot in the freed one.
+	 * NOTE: the key never changes when a ToDo is modified, so an edit is a
+	 * single lookup followed by an in-place replacement of the ToDo in its
+	 * entry, which also counts the version of the ToDo. Since ToDo is immutable, the stored instances are handed out 
+	 * directly and never copied.
+	 */
+    private Map<Long, Entry> loadedToDos;
+	private Entry[] slots;
+	private int size;
+
+	/**
+	 * Number of structural modifications (adds and removes), used by the 
+	 * iterators to fail fast.
+	 */
+	private int modCount;
+
+	/**
+	 * Inverted index from the tags and the colors to the slots of the ToDos.
+	 */
+	private TagIndex tagIndex;
+
+	/**
+	 * The entries ordered by creation date and time, and then by identifier 
+	 * for the ToDos created in the same instant.
+	 */
+	private NavigableSet<Entry> byCreation;
+
+	/**
+	 * Full-text index over titles and descriptions. It is built by the first
+	 * search and then kept up to date by every change, or null if the list
+	 * was never searched.
 	 */
-    private Map<ToDo, ToDo> loadedToDos;
+	private SearchIndex searchIndex;
+
+	/**
+	 * Read-only view over the ToDos, created once and returned by getData() 
+	 * and iterator().
+	 */
+	private Collection<ToDo> readOnlyView;
+
+	/**
+	 * The listeners told about every change, in order of registration.
+	 */
+	private List<ToDoListListener> listeners;
+
+	private static final int MIN_CAPACITY = 16;
+	private static final TagRegistry REGISTRY = TagRegistry.getInstance();
+	private static final Comparator<Entry> CREATION_ORDER = 
+			Comparator.<Entry, LocalDateTime>comparing(e -> e.creation).thenComparingLong(e -> e.id);
 
 	/**
 	 * Constructor that creates a new empty list.
 	 */
     public ToDoList() {
-		this.loadedToDos = new HashMap<ToDo, ToDo>();
+		this(0);
+	}
+
+	/**
+	 * Constructor that creates a new empty list able to hold the specified
+	 * number of ToDo without resizing its tables.
+	 * @param expectedSize: the number of ToDo the list is expected to hold.
+	 * REQUIRED not negative.
+	 * @throws IllegalArgumentException when expectedSize is negative.
+	 */
+    public ToDoList(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("The expected size of a ToDoList can't be negative.");
+		}
+
+		this.loadedToDos = new HashMap<Long, Entry>(capacityFor(expectedSize));
+		this.slots = new Entry[Math.max(expectedSize, MIN_CAPACITY)];
+		this.size = 0;
+		this.modCount = 0;
+		this.tagIndex = new TagIndex();
+		this.byCreation = new TreeSet<Entry>(CREATION_ORDER);
+		this.readOnlyView = new ToDoView();
+		this.listeners = new ArrayList<ToDoListListener>();
 	}
 	
 	/**
@@ -38,12 +133,12 @@ class ToDoList {
 	 * @throws NullPointerException when todo is null.
 	 */
     public ToDoList(ToDo todo) {
+		this(1);
 		if (todo == null) {
 			throw new NullPointerException();
 		}
 
-		this.loadedToDos = new HashMap<ToDo, ToDo>();
-		loadedToDos.put(todo, todo);
+		this.addToDo(todo);
 	}
 	
 	/**
@@ -53,12 +148,11 @@ class ToDoList {
 	 * @throws NullPointerException when todolist is null.
 	 */
     public ToDoList(ToDoList todolist) {
-		if (todolist == null) {
-			throw new NullPointerException();
-		}
+		this(Objects.requireNonNull(todolist).size());
 		
-		this.loadedToDos = new HashMap<ToDo, ToDo>();
-		this.loadedToDos.putAll(todolist.loadedToDos);
+		for (int i = 0; i < todolist.size; i++) {
+			this.addToDo(todolist.slots[i].todo);
+		}
 	}
 	
 	/**
@@ -70,17 +164,11 @@ class ToDoList {
 	 * @throws NullPointerException when todoColl is null.
 	 */
     public ToDoList(Collection<ToDo> todoColl) {
-		if (todoColl == null) {
-			throw new NullPointerException();
-		}
+		this(Objects.requireNonNull(todoColl).size());
 		
-		this.loadedToDos = new HashMap<ToDo, ToDo>();
 		Iterator<ToDo> todoIt = todoColl.iterator();
 		while (todoIt.hasNext()) {
-			ToDo todo = new ToDo(todoIt.next());
-			if (!this.loadedToDos.containsKey(todo)) {
-				this.loadedToDos.put(todo, todo);
-			}
+			this.addToDo(todoIt.next());
 		}
 	}
 	
@@ -88,7 +176,7 @@ class ToDoList {
      * Check whether the ToDo passed is present in the list or not.
      * @param todo: the ToDo instance to search in the list. REQUIRED to be not 
 	 * null.
-     * @return true if the ToDo is in, false otherwise.
+     * @return true if the ToDo is in with the same content, false otherwise.
      * @throws NullPointerException when todo is null.
      */
     public boolean contains(ToDo todo) {
@@ -97,7 +185,31 @@ class ToDoList {
             throw new NullPointerException();
         }
 
-        return this.loadedToDos.containsKey(todo);
+        Entry stored = this.loadedToDos.get(todo.getId());
+        return stored != null && stored.todo.equals(todo);
+    }
+
+	/**
+     * Check whether a ToDo with the identifier passed is present in the list
+	 * or not.
+     * @param id: the identifier of the ToDo to search in the list.
+     * @return true if the ToDo is in, false otherwise.
+     */
+    public boolean contains(long id) {
+        return this.loadedToDos.containsKey(id);
+    }
+
+	/**
+     * Get the ToDo with the identifier passed.
+     * @param id: the identifier of the ToDo to search in the list.
+     * @return the ToDo if it is in the list, null otherwise.
+     */
+    public ToDo get(long id) {
+		Entry stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return null;
+		}
+        return stored.todo;
     }
 	
 	/**
@@ -115,10 +227,16 @@ class ToDoList {
             throw new NullPointerException();
         }
 
-        if (this.contains(newToDo)) {
+        if (this.loadedToDos.containsKey(newToDo.getId())) {
 			return false;
 		} else {
-			this.loadedToDos.put(newToDo, new ToDo(newToDo));
+			Entry entry = this.insert(newToDo);
+			this.tagIndex.add(newToDo, entry.slot);
+			if (this.searchIndex != null) {
+				this.searchIndex.add(newToDo);
+			}
+			this.modCount++;
+			this.notifyListeners(Mutation.Kind.ADD, newToDo.getId(), newToDo, null, null);
 			return true;
 		}
     }
@@ -143,7 +261,30 @@ class ToDoList {
 			return false;
 		}
 
-        return this.loadedToDos.remove(todo, todo);
+        return this.removeToDo(todo.getId());
+    }
+
+	/**
+     * MODIFY this by deleting the ToDo with the identifier specified from the
+	 * list (if it exists in the list).
+     * @param id: the identifier of the ToDo that has to be removed.
+	 * @return true if the ToDo is correctly removed, false if it wasn't
+	 * present in the list.
+     */
+    public boolean removeToDo(long id) {
+		Entry removed = this.loadedToDos.get(id);
+		if (removed == null) {
+			return false;
+		}
+
+		this.tagIndex.remove(removed.todo, removed.slot);
+		if (this.searchIndex != null) {
+			this.searchIndex.remove(id);
+		}
+		this.delete(removed, null);
+		this.modCount++;
+		this.notifyListeners(Mutation.Kind.REMOVE, id, null, null, null);
+        return true;
     }
 	
 	/**
@@ -152,7 +293,7 @@ class ToDoList {
      * @param todo: instance of ToDo that has to be modified in the list. 
 	 * REQUIRED to be not null.
      * @param newTitle: the new title. REQUIRED to be not null and not empty.
-	 * @return a copy of the modified ToDo if the ToDo was present in the list 
+	 * @return the modified ToDo if the ToDo was present in the list 
 	 * and was successfully modified, or null if todo is not present in the 
 	 * list.
 	 * @throws NullPointerException when newTitle or todo is null. In this case 
@@ -171,13 +312,46 @@ class ToDoList {
 		if (!this.contains(todo)) {
 			return null;
 		} else {
-			this.removeToDo(todo);
-			ToDo newTodo = new ToDo(todo);
-			newTodo.setTitle(newTitle);
-			this.addToDo(newTodo);
-			return new ToDo(newTodo);
+			return this.modifyToDoTitle(todo.getId(), newTitle);
 		}
     }
+
+	/**
+     * MODIFY this by changing the title of the ToDo with the identifier
+	 * specified (if it exists in the list).
+     * @param id: the identifier of the ToDo that has to be modified.
+     * @param newTitle: the new title. REQUIRED to be not null and not empty.
+	 * @return the modified ToDo, or null if no ToDo with that
+	 * identifier is present in the list.
+	 * @throws NullPointerException when newTitle is null. In this case
+	 * nothing is modified.
+     * @throws EmptyFieldException when newTitle is empty. In this case nothing
+	 * is modified.
+     */
+    public ToDo modifyToDoTitle(long id, String newTitle) throws EmptyFieldException {
+
+        if (newTitle == null) {
+			throw new NullPointerException();
+		} else if (newTitle.isEmpty()) {
+            throw new EmptyFieldException("A ToDo title can't be empty.", "newTitle", "A non-empty string.");
+        }
+
+		Entry stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return null;
+		}
+
+		ToDo newTodo = stored.todo.withTitle(newTitle);
+		if (newTodo != stored.todo) {
+			if (this.searchIndex != null) {
+				this.searchIndex.update(stored.todo, newTodo);
+			}
+			stored.todo = newTodo;
+			stored.version++;
+			this.notifyListeners(Mutation.Kind.TITLE, id, null, newTitle, null);
+		}
+		return newTodo;
+    }
 	
 	/**
      * MODIFY this by changing the description of the ToDo specified (if todo 
@@ -185,7 +359,7 @@ class ToDoList {
      * @param todo: instance of ToDo that has to be modified in the list. 
 	 * REQUIRED to be not null.
      * @param newDescription: the new description.
-	 * @return a copy of the modified ToDo if the ToDo was present in the list 
+	 * @return the modified ToDo if the ToDo was present in the list 
 	 * and was successfully modified, or null if todo is not present in the 
 	 * list.
 	 * @throws NullPointerException when todo is null. In this case nothing 
@@ -199,12 +373,34 @@ class ToDoList {
 		if (!this.contains(todo)) {
 			return null;
 		} else {
-			this.removeToDo(todo);
-			ToDo newTodo = new ToDo(todo);
-			newTodo.setDescription(newDescription);
-			this.addToDo(newTodo);
-			return new ToDo(newTodo);
+			return this.modifyToDoDescription(todo.getId(), newDescription);
+		}
+    }
+
+	/**
+     * MODIFY this by changing the description of the ToDo with the identifier
+	 * specified (if it exists in the list).
+     * @param id: the identifier of the ToDo that has to be modified.
+     * @param newDescription: the new description.
+	 * @return the modified ToDo, or null if no ToDo with that
+	 * identifier is present in the list.
+     */
+    public ToDo modifyToDoDescription(long id, String newDescription) {
+		Entry stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return null;
 		}
+
+		ToDo newTodo = stored.todo.withDescription(newDescription);
+		if (newTodo != stored.todo) {
+			if (this.searchIndex != null) {
+				this.searchIndex.update(stored.todo, newTodo);
+			}
+			stored.todo = newTodo;
+			stored.version++;
+			this.notifyListeners(Mutation.Kind.DESCRIPTION, id, null, newDescription, null);
+		}
+		return newTodo;
     }
 	
 	/**
@@ -214,7 +410,7 @@ class ToDoList {
      * @param todo: instance of ToDo that has to be modified in the list. 
 	 * REQUIRED to be not null.
 	 * @param newTag: the tag to add. REQUIRED to be not null.
-	 * @return a copy of the modified ToDo if the Tag is successfully added, 
+	 * @return the modified ToDo if the Tag is successfully added, 
 	 * the same ToDo if the Tag is already present, or null if todo is not 
 	 * present in the list.
 	 * @throws NullPointerException when todo or newTag is null. In this case 
@@ -229,16 +425,41 @@ class ToDoList {
 		if (!this.contains(todo)) {
 			return null;
 		} else {
-			ToDo newTodo = new ToDo(todo);
-			if(newTodo.addTag(newTag)) {
-				this.removeToDo(todo);
-				this.addToDo(newTodo);
-				return new ToDo(newTodo);
-			} else {
-				return todo;
-			}
+			return this.addToDoTag(todo.getId(), newTag);
 		}
     }
+
+	/**
+	 * MODIFY this by adding a new Tag to the ToDo with the identifier
+	 * specified (if it exists in the list). If the ToDo already has that Tag,
+	 * nothing will be modified.
+     * @param id: the identifier of the ToDo that has to be modified.
+	 * @param newTag: the tag to add. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if no ToDo with
+	 * that identifier is present in the list.
+	 * @throws NullPointerException when newTag is null. In this case nothing
+	 * is modified.
+     */
+    public ToDo addToDoTag(long id, Tag newTag) {
+
+        if (newTag == null) {
+			throw new NullPointerException();
+		}
+
+		Entry stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return null;
+		}
+
+		ToDo newTodo = stored.todo.withTag(newTag);
+		if (newTodo != stored.todo) {
+			stored.todo = newTodo;
+			stored.version++;
+			this.tagIndex.tagAdded(REGISTRY.idOf(newTag), stored.slot);
+			this.notifyListeners(Mutation.Kind.ADD_TAG, id, null, null, newTag);
+		}
+		return newTodo;
+    }
 	
 	/**
 	 * MODIFY this by deleting a new Tag to the ToDo specified (if todo already 
@@ -247,7 +468,7 @@ class ToDoList {
      * @param todo: instance of ToDo that has to be modified in the list. 
 	 * REQUIRED to be not null.
 	 * @param newTag: the tag to delete. REQUIRED to be not null.
-	 * @return a copy of the modified ToDo if the Tag is successfully deleted, 
+	 * @return the modified ToDo if the Tag is successfully deleted, 
 	 * the same ToDo if the Tag wasn't already present, or null if todo is not 
 	 * present in the list.
 	 * @throws NullPointerException when todo or newTag is null. In this case 
@@ -262,48 +483,909 @@ class ToDoList {
 		if (!this.contains(todo)) {
 			return null;
 		} else {
-			ToDo newTodo = new ToDo(todo);
-			if(newTodo.deleteTag(tag)) {
-				this.removeToDo(todo);
-				this.addToDo(newTodo);
-				return new ToDo(newTodo);
-			} else {
-				return todo;
+			return this.deleteToDoTag(todo.getId(), tag);
+		}
+    }
+
+	/**
+	 * MODIFY this by deleting a Tag from the ToDo with the identifier
+	 * specified (if it exists in the list). If the ToDo doesn't have that Tag,
+	 * nothing will be modified.
+     * @param id: the identifier of the ToDo that has to be modified.
+	 * @param tag: the tag to delete. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if no ToDo with
+	 * that identifier is present in the list.
+	 * @throws NullPointerException when tag is null. In this case nothing is
+	 * modified.
+     */
+    public ToDo deleteToDoTag(long id, Tag tag) {
+
+        if (tag == null) {
+			throw new NullPointerException();
+		}
+
+		Entry stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return null;
+		}
+
+		ToDo newTodo = stored.todo.withoutTag(tag);
+		if (newTodo != stored.todo) {
+			stored.todo = newTodo;
+			stored.version++;
+			this.tagIndex.tagDeleted(newTodo, REGISTRY.idOf(tag), stored.slot);
+			this.notifyListeners(Mutation.Kind.DELETE_TAG, id, null, null, tag);
+		}
+		return newTodo;
+    }
+
+	/**
+     * Get the version of the ToDo with the identifier passed.
+     * @param id: the identifier of the ToDo to search in the list.
+     * @return the version of the ToDo, or -1 if it is not in the list.
+     */
+	public long getVersion(long id) {
+		Entry stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return -1;
+		}
+		return stored.version;
+	}
+
+	/**
+	 * MODIFY this by replacing the ToDo with the identifier specified with the
+	 * result of a mutation, only if its version is still the expected one.
+	 * The indexes are updated only for the parts the mutation changed.
+     * @param id: the identifier of the ToDo that has to be modified.
+	 * @param expectedVersion: the version the mutation was prepared for.
+	 * @param mutation: the change. REQUIRED not null, without side effects,
+	 * and returning a ToDo with the same identifier and creation.
+	 * @return the ToDo after the operation, or null if no ToDo with that
+	 * identifier is present in the list.
+	 * @throws NullPointerException when mutation is null or returns null.
+	 * @throws IllegalArgumentException when the mutation changes the
+	 * identifier or the creation of the ToDo.
+	 * @throws VersionConflictException when the version of the ToDo is not
+	 * expectedVersion. In these cases nothing is modified.
+     */
+	public ToDo compareAndModify(long id, long expectedVersion, UnaryOperator<ToDo> mutation)
+			throws VersionConflictException {
+
+		if (mutation == null) {
+			throw new NullPointerException();
+		}
+
+		Entry stored = this.loadedToDos.get(id);
+		if (stored == null) {
+			return null;
+		} else if (stored.version != expectedVersion) {
+			throw new VersionConflictException("The ToDo was modified by someone else.", expectedVersion,
+					stored.version);
+		}
+
+		ToDo newTodo = checkMutation(stored.todo, mutation.apply(stored.todo));
+		if (newTodo != stored.todo) {
+			ToDo oldTodo = stored.todo;
+			this.tagIndex.update(oldTodo, newTodo, stored.slot);
+			if (this.searchIndex != null) {
+				this.searchIndex.update(oldTodo, newTodo);
+			}
+			stored.todo = newTodo;
+			stored.version++;
+			if (!this.listeners.isEmpty()) {
+				this.fire(Mutation.between(oldTodo, newTodo));
 			}
 		}
+		return newTodo;
+	}
+
+	/**
+	 * MODIFY this by applying all the mutations passed, in order, as a single
+	 * change. The whole batch is validated before anything is modified: a
+	 * mutation can touch a ToDo added by a previous mutation of the batch and
+	 * can't touch a ToDo removed by it. Every ToDo touched is taken out of the
+	 * tag and full-text indexes once and put back once at the end, however
+	 * many mutations touch it, and the listeners get a single notification
+	 * with the mutations that changed the list, if any.
+	 * @param batch: the mutations. REQUIRED not null and without null elements.
+	 * @throws NullPointerException when batch or one of its mutations is null.
+	 * @throws IllegalArgumentException when a mutation adds a ToDo already
+	 * present or touches a ToDo not present. In these cases nothing is
+	 * modified.
+	 */
+	public void applyBatch(List<Mutation> batch) {
+
+		if (batch == null) {
+			throw new NullPointerException();
+		}
+
+		this.validate(batch);
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		Set<Long> unindexed = new HashSet<Long>();
+		List<Mutation> applied = new ArrayList<Mutation>(batch.size());
+		for (Mutation m : batch) {
+			long id = m.getId();
+			Entry stored = this.loadedToDos.get(id);
+			if (stored != null && unindexed.add(id)) {
+				this.tagIndex.remove(stored.todo, stored.slot);
+				if (this.searchIndex != null) {
+					this.searchIndex.remove(id);
+				}
+			}
+
+			switch (m.getKind()) {
+				case ADD:
+					this.insert(m.getToDo());
+					unindexed.add(id);
+					applied.add(m);
+					break;
+				case REMOVE:
+					this.delete(stored, unindexed);
+					applied.add(m);
+					break;
+				default:
+					ToDo newTodo = m.applyTo(stored.todo);
+					if (newTodo != stored.todo) {
+						stored.todo = newTodo;
+						stored.version++;
+						applied.add(m);
+					}
+			}
+		}
+
+		for (Long id : unindexed) {
+			Entry stored = this.loadedToDos.get(id);
+			if (stored != null) {
+				this.tagIndex.add(stored.todo, stored.slot);
+				if (this.searchIndex != null) {
+					this.searchIndex.add(stored.todo);
+				}
+			}
+		}
+		if (!applied.isEmpty()) {
+			this.modCount++;
+			this.fire(applied);
+		}
+	}
+
+	/**
+	 * MODIFY this by registering a listener, which will be told about every
+	 * following change.
+	 * @param listener: the listener. REQUIRED not null.
+	 * @throws NullPointerException when listener is null.
+	 */
+	public void addListener(ToDoListListener listener) {
+		this.listeners.add(Objects.requireNonNull(listener));
+	}
+
+	/**
+	 * MODIFY this by unregistering a listener.
+	 * @param listener: the listener.
+	 * @return true if the listener was registered, false otherwise.
+	 */
+	public boolean removeListener(ToDoListListener listener) {
+		return this.listeners.remove(listener);
+	}
+    
+    /**
+     * Get all the ToDos of the list having the Tag specified.
+     * @param tag: the Tag to search. REQUIRED not null.
+     * @return a Collection with the ToDos having the Tag. If no ToDo has it the 
+	 * Collection returned will be empty.
+     * @throws NullPointerException when tag is null.
+     */
+    public Collection<ToDo> findByTag(Tag tag) {
+
+        if (tag == null) {
+			throw new NullPointerException();
+		}
+
+		return this.collect(this.tagIndex.withTag(REGISTRY.idOf(tag)));
+    }
+
+    /**
+     * Get all the ToDos of the list having every Tag specified.
+     * @param tags: the Tags to search. REQUIRED not null and without null 
+	 * elements.
+     * @return a Collection with the ToDos having all the Tags. If tags is 
+	 * empty, all the ToDos of the list are returned.
+     * @throws NullPointerException when tags or one of its elements is null.
+     */
+    public Collection<ToDo> findByAllTags(Collection<Tag> tags) {
+		BitSet[] sets = this.tagSets(tags);
+		if (sets.length == 0) {
+			return new ArrayList<ToDo>(this.readOnlyView);
+		}
+
+		Arrays.sort(sets, (a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+		BitSet result = (BitSet) sets[0].clone();
+		for (int i = 1; i < sets.length && !result.isEmpty(); i++) {
+			result.and(sets[i]);
+		}
+		return this.collect(result);
+    }
+
+    /**
+     * Get all the ToDos of the list having at least one of the Tags specified.
+     * @param tags: the Tags to search. REQUIRED not null and without null 
+	 * elements.
+     * @return a Collection with the ToDos having any of the Tags. If tags is 
+	 * empty, the Collection returned will be empty.
+     * @throws NullPointerException when tags or one of its elements is null.
+     */
+    public Collection<ToDo> findByAnyTag(Collection<Tag> tags) {
+		BitSet result = new BitSet(this.size);
+		for (BitSet set : this.tagSets(tags)) {
+			result.or(set);
+		}
+		return this.collect(result);
+    }
+
+    /**
+     * Get all the ToDos of the list having at least one Tag of the Color 
+	 * specified.
+     * @param color: the Color to search. REQUIRED not null.
+     * @return a Collection with the ToDos having a Tag of that Color. If no 
+	 * ToDo has it the Collection returned will be empty.
+     * @throws NullPointerException when color is null.
+     */
+    public Collection<ToDo> findByColor(Color color) {
+
+        if (color == null) {
+			throw new NullPointerException();
+		}
+
+		return this.collect(this.tagIndex.withColor(color));
     }
     
     /**
-     * Get a copy of all the ToDos of the list.
+     * Search the ToDos whose title or description contain the words of the 
+	 * query, ranking them by relevance (BM25). The first search indexes the 
+	 * whole list; after that the index is updated by each change.
+     * @param query: the words to search, separated by any non alphanumeric 
+	 * character. REQUIRED not null.
+     * @param k: the maximum number of results. REQUIRED not negative.
+     * @return a List with at most k ToDos containing at least one of the 
+	 * words, from the most relevant.
+     * @throws NullPointerException when query is null.
+     * @throws IllegalArgumentException when k is negative.
+     */
+    public List<ToDo> search(String query, int k) {
+
+        if (query == null) {
+			throw new NullPointerException();
+		} else if (k < 0) {
+			throw new IllegalArgumentException("The number of results can't be negative.");
+		}
+
+		List<Long> ids = this.getSearchIndex().top(query, k);
+		List<ToDo> res = new ArrayList<ToDo>(ids.size());
+		for (Long id : ids) {
+			res.add(this.loadedToDos.get(id).todo);
+		}
+		return res;
+    }
+
+    /**
+     * Get the ToDos of the list created in the interval specified, from the 
+	 * oldest.
+     * @param from: the beginning of the interval, included. REQUIRED not null.
+     * @param to: the end of the interval, excluded. REQUIRED not null.
+     * @return a List with the ToDos created in the interval. If from is not 
+	 * before to the List returned will be empty.
+     * @throws NullPointerException when from or to is null.
+     */
+    public List<ToDo> findByCreation(LocalDateTime from, LocalDateTime to) {
+
+        if (from == null || to == null) {
+			throw new NullPointerException();
+		}
+
+		List<ToDo> res = new ArrayList<ToDo>();
+		if (from.isBefore(to)) {
+			Entry low = new Entry(from, Long.MIN_VALUE);
+			Entry high = new Entry(to, Long.MIN_VALUE);
+			for (Entry e : this.byCreation.subSet(low, true, high, false)) {
+				res.add(e.todo);
+			}
+		}
+		return res;
+    }
+
+    /**
+     * Get the newest ToDos of the list.
+     * @param n: the maximum number of ToDos. REQUIRED not negative.
+     * @return a List with at most n ToDos, from the newest.
+     * @throws IllegalArgumentException when n is negative.
+     */
+    public List<ToDo> newest(int n) {
+		return this.page(this.byCreation.descendingSet(), n);
+    }
+
+    /**
+     * Get the oldest ToDos of the list.
+     * @param n: the maximum number of ToDos. REQUIRED not negative.
+     * @return a List with at most n ToDos, from the oldest.
+     * @throws IllegalArgumentException when n is negative.
+     */
+    public List<ToDo> oldest(int n) {
+		return this.page(this.byCreation, n);
+    }
+
+    /**
+     * Get the page of ToDos that follows the ToDo specified in the order from 
+	 * the newest: the result of newest(n) is the first page, and the last 
+	 * ToDo of each page is the cursor for the next one. The cursor doesn't 
+	 * need to be still in the list.
+     * @param cursor: the last ToDo of the previous page. REQUIRED not null.
+     * @param n: the maximum number of ToDos. REQUIRED not negative.
+     * @return a List with at most n ToDos older than cursor, from the newest.
+     * @throws NullPointerException when cursor is null.
+     * @throws IllegalArgumentException when n is negative.
+     */
+    public List<ToDo> olderThan(ToDo cursor, int n) {
+
+        if (cursor == null) {
+			throw new NullPointerException();
+		}
+
+		return this.page(this.byCreation.headSet(new Entry(cursor.getCreation(), cursor.getId()), false).descendingSet(), n);
+    }
+
+    /**
+     * Get the page of ToDos that follows the ToDo specified in the order from 
+	 * the oldest: the result of oldest(n) is the first page, and the last 
+	 * ToDo of each page is the cursor for the next one. The cursor doesn't 
+	 * need to be still in the list.
+     * @param cursor: the last ToDo of the previous page. REQUIRED not null.
+     * @param n: the maximum number of ToDos. REQUIRED not negative.
+     * @return a List with at most n ToDos newer than cursor, from the oldest.
+     * @throws NullPointerException when cursor is null.
+     * @throws IllegalArgumentException when n is negative.
+     */
+    public List<ToDo> newerThan(ToDo cursor, int n) {
+
+        if (cursor == null) {
+			throw new NullPointerException();
+		}
+
+		return this.page(this.byCreation.tailSet(new Entry(cursor.getCreation(), cursor.getId()), false), n);
+    }
+
+    /**
+     * Get all the ToDos of the list. Nothing is copied: the Collection is a
+	 * read-only view that reflects the later changes of the list.
      * @return a Collection with all the ToDo. If the list is empty the 
 	 * Collection returned will be empty.
      */
     public Collection<ToDo> getData() {
-		Collection<ToDo> res = new ArrayList<ToDo>();
-		Iterator<ToDo> it = this.loadedToDos.values().iterator();
-		
-		while (it.hasNext()) {
-			res.add(new ToDo(it.next()));
-		}
-
-        return res;
+        return this.readOnlyView;
     }
     
     
+	/**
+	 * Get a copy of all the ToDos of the list. Since ToDo is immutable, only 
+	 * the references are copied.
+	 * @return a new List with all the ToDo.
+	 */
+	public List<ToDo> snapshot() {
+		return new ArrayList<ToDo>(this.readOnlyView);
+	}
+
     /**
      * Get the number of ToDo contained in the list.
      * @return number of ToDo.
      */
     public int size() {
-        return this.loadedToDos.size();
+        return this.size;
 	}
 	
 	/**
-	 * @return a standard iterator over the todos of this list instance. The 
-	 * iterator is not sensible to mutations of this list.
+	 * RETURN a sequential Stream over the ToDos of the list. The Stream reads 
+	 * the list lazily, without copying it, so short-circuiting operations like 
+	 * limit() or anyMatch() stop at the first ToDos they need.
+	 * @return a Stream of the ToDos, in no particular order. It throws 
+	 * ConcurrentModificationException if a ToDo is added or removed while 
+	 * the Stream is running.
+	 */
+	public Stream<ToDo> stream() {
+		return StreamSupport.stream(new ToDoSpliterator(0, this.size, this.modCount), false);
+	}
+
+	/**
+	 * RETURN a parallel Stream over the ToDos of the list. The list is split 
+	 * in halves of the same size, so the work spreads evenly on the common 
+	 * fork-join pool. The list must not be modified while the Stream runs.
+	 * @return a parallel Stream of the ToDos, in no particular order. It 
+	 * throws ConcurrentModificationException if a ToDo is added or removed 
+	 * while the Stream is running.
+	 */
+	public Stream<ToDo> parallelStream() {
+		return StreamSupport.stream(new ToDoSpliterator(0, this.size, this.modCount), true);
+	}
+
+	/**
+	 * @return a read-only iterator over the todos of this list instance. The 
+	 * iterator throws ConcurrentModificationException if a ToDo is added or 
+	 * removed while iterating.
 	 */
 	public Iterator<ToDo> iterator() {
-		return this.loadedToDos.values().iterator();
+		return this.readOnlyView.iterator();
+	}
+
+	/**
+	 * RETURN the full-text index of the list, building it if this is the 
+	 * first time it is needed.
+	 * @return the full-text index.
+	 */
+	SearchIndex getSearchIndex() {
+		if (this.searchIndex == null) {
+			SearchIndex index = new SearchIndex();
+			for (int i = 0; i < this.size; i++) {
+				index.add(this.slots[i].todo);
+			}
+			this.searchIndex = index;
+		}
+		return this.searchIndex;
+	}
+
+	/**
+	 * RETURN the full-text index of the list only if it was already built.
+	 * @return the full-text index, or null.
+	 */
+	SearchIndex searchIndexIfBuilt() {
+		return this.searchIndex;
+	}
+
+	/**
+	 * RETURN the slots of the ToDos having the tag passed.
+	 * @param tagId: the TagRegistry identifier of the tag.
+	 * @return the slots. The BitSet is owned by the list and MUST NOT be 
+	 * modified.
+	 */
+	BitSet tagSlots(int tagId) {
+		return this.tagIndex.withTag(tagId);
+	}
+
+	/**
+	 * RETURN the slots of the ToDos having a tag of the Color passed.
+	 * @param color: the color. REQUIRED not null.
+	 * @return the slots. The BitSet is owned by the list and MUST NOT be 
+	 * modified.
+	 */
+	BitSet colorSlots(Color color) {
+		return this.tagIndex.withColor(color);
+	}
+
+	/**
+	 * RETURN the slots of the ToDos created in an interval.
+	 * @param after: the beginning of the interval, excluded, or null.
+	 * @param before: the end of the interval, excluded, or null.
+	 * @return a new BitSet with the slots.
+	 */
+	BitSet creationSlots(LocalDateTime after, LocalDateTime before) {
+		BitSet res = new BitSet(this.size);
+		for (Entry e : this.createdBetween(after, before)) {
+			res.set(e.slot);
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN an estimate of the number of ToDos created in an interval, 
+	 * assuming the creations are uniform between the oldest and the newest.
+	 * @param after: the beginning of the interval, excluded, or null.
+	 * @param before: the end of the interval, excluded, or null.
+	 * @return the estimate.
+	 */
+	long estimateCreated(LocalDateTime after, LocalDateTime before) {
+		if (this.size < 2) {
+			return this.size;
+		}
+
+		long first = toNanos(this.byCreation.first().creation);
+		long last = toNanos(this.byCreation.last().creation);
+		long low = after == null ? first : Math.max(first, toNanos(after));
+		long high = before == null ? last : Math.min(last, toNanos(before));
+		if (high < low) {
+			return 0;
+		} else if (last == first) {
+			return this.size;
+		}
+		return Math.max(1, (long) ((double) (high - low) / (last - first) * this.size));
+	}
+
+	/**
+	 * RETURN an iterator over all the ToDos in creation order.
+	 * @param descending: true to start from the newest, false from the oldest.
+	 * @return the read-only iterator.
+	 */
+	Iterator<ToDo> creationOrder(boolean descending) {
+		Iterator<Entry> it = descending ? this.byCreation.descendingIterator() : this.byCreation.iterator();
+		return new Iterator<ToDo>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public ToDo next() {
+				return it.next().todo;
+			}
+		};
+	}
+
+	/**
+	 * RETURN the slot of the ToDo with the identifier passed.
+	 * @param id: the identifier.
+	 * @return the slot, or -1 if the ToDo is not in the list.
+	 */
+	int slotOf(long id) {
+		Entry stored = this.loadedToDos.get(id);
+		return stored == null ? -1 : stored.slot;
+	}
+
+	/**
+	 * RETURN the ToDo in the slot passed.
+	 * @param slot: the slot. REQUIRED between 0 and size() - 1.
+	 * @return the ToDo.
+	 */
+	ToDo atSlot(int slot) {
+		return this.slots[slot].todo;
+	}
+
+	/**
+	 * RETURN the entries created in an interval, from the oldest.
+	 * @param after: the beginning of the interval, excluded, or null.
+	 * @param before: the end of the interval, excluded, or null.
+	 * @return the view of the creation order with those entries.
+	 */
+	private NavigableSet<Entry> createdBetween(LocalDateTime after, LocalDateTime before) {
+		NavigableSet<Entry> view = this.byCreation;
+		if (after != null) {
+			view = view.tailSet(new Entry(after, Long.MAX_VALUE), false);
+		}
+		if (before != null) {
+			view = view.headSet(new Entry(before, Long.MIN_VALUE), false);
+		}
+		return view;
+	}
+
+	/**
+	 * RETURN a date and time as nanoseconds, for the estimates.
+	 * @param time: the date and time. REQUIRED not null.
+	 * @return the nanoseconds since the epoch, saturated to the long range.
+	 */
+	private static long toNanos(LocalDateTime time) {
+		long seconds = time.toEpochSecond(ZoneOffset.UTC);
+		if (seconds > Long.MAX_VALUE / 1_000_000_000L || seconds < Long.MIN_VALUE / 1_000_000_000L) {
+			return seconds < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+		}
+		return seconds * 1_000_000_000L + time.getNano();
+	}
+
+	/**
+	 * RETURN the first ToDos of an ordered view of the entries.
+	 * @param view: the ordered entries. REQUIRED not null.
+	 * @param n: the maximum number of ToDos. REQUIRED not negative.
+	 * @return a new List with at most n ToDos, in the order of view.
+	 * @throws IllegalArgumentException when n is negative.
+	 */
+	private List<ToDo> page(NavigableSet<Entry> view, int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("The number of ToDos can't be negative.");
+		}
+
+		List<ToDo> res = new ArrayList<ToDo>(Math.min(n, this.size));
+		Iterator<Entry> it = view.iterator();
+		while (res.size() < n && it.hasNext()) {
+			res.add(it.next().todo);
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN the index sets of the Tags passed.
+	 * @param tags: the Tags. REQUIRED not null and without null elements.
+	 * @return an array with the set of each Tag, in the same order.
+	 * @throws NullPointerException when tags or one of its elements is null.
+	 */
+	private BitSet[] tagSets(Collection<Tag> tags) {
+		BitSet[] sets = new BitSet[tags.size()];
+		int i = 0;
+		for (Tag tag : tags) {
+			if (tag == null) {
+				throw new NullPointerException();
+			}
+			sets[i++] = this.tagIndex.withTag(REGISTRY.idOf(tag));
+		}
+		return sets;
+	}
+
+	/**
+	 * RETURN the ToDos in the slots passed.
+	 * @param slotSet: the slots. REQUIRED not null and with valid slots only.
+	 * @return a new List with the ToDos, ordered by slot.
+	 */
+	private List<ToDo> collect(BitSet slotSet) {
+		List<ToDo> res = new ArrayList<ToDo>(slotSet.cardinality());
+		for (int i = slotSet.nextSetBit(0); i >= 0; i = slotSet.nextSetBit(i + 1)) {
+			res.add(this.slots[i].todo);
+		}
+		return res;
+	}
+
+	/**
+	 * Check that a batch of mutations can be applied to this list, following
+	 * which ToDos the batch itself adds and removes.
+	 * @param batch: the mutations. REQUIRED not null.
+	 * @throws NullPointerException when one of the mutations is null.
+	 * @throws IllegalArgumentException when a mutation adds a ToDo already
+	 * present or touches a ToDo not present.
+	 */
+	private void validate(List<Mutation> batch) {
+		Set<Long> added = new HashSet<Long>();
+		Set<Long> removed = new HashSet<Long>();
+		int i = 0;
+		for (Mutation m : batch) {
+			long id = m.getId();
+			boolean present = added.contains(id) || (this.loadedToDos.containsKey(id) && !removed.contains(id));
+			if (m.getKind() == Mutation.Kind.ADD) {
+				if (present) {
+					throw new IllegalArgumentException("Mutation " + i + " (" + m + "): the ToDo is already present.");
+				}
+				added.add(id);
+				removed.remove(id);
+			} else if (!present) {
+				throw new IllegalArgumentException("Mutation " + i + " (" + m + "): the ToDo is not present.");
+			} else if (m.getKind() == Mutation.Kind.REMOVE) {
+				removed.add(id);
+				added.remove(id);
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * MODIFY this by storing a new ToDo in a new slot and in the creation
+	 * order. The tag and full-text indexes are left to the caller.
+	 * @param todo: the ToDo. REQUIRED not null and not present.
+	 * @return the new entry.
+	 */
+	private Entry insert(ToDo todo) {
+		if (this.size == this.slots.length) {
+			this.slots = Arrays.copyOf(this.slots, this.size * 2);
+		}
+		Entry entry = new Entry(todo, this.size);
+		this.slots[this.size++] = entry;
+		this.loadedToDos.put(todo.getId(), entry);
+		this.byCreation.add(entry);
+		return entry;
+	}
+
+	/**
+	 * MODIFY this by deleting an entry, moving the entry of the last slot in
+	 * the freed one. The tag and full-text indexes of the deleted entry are
+	 * left to the caller.
+	 * @param removed: the entry. REQUIRED present.
+	 * @param unindexed: the identifiers of the ToDos currently out of the tag
+	 * index, which don't need to be moved in it, or null if there are none.
+	 */
+	private void delete(Entry removed, Set<Long> unindexed) {
+		this.loadedToDos.remove(removed.id);
+		this.byCreation.remove(removed);
+		int last = --this.size;
+		if (removed.slot != last) {
+			Entry moved = this.slots[last];
+			if (unindexed == null || !unindexed.contains(moved.id)) {
+				this.tagIndex.move(moved.todo, last, removed.slot);
+			}
+			moved.slot = removed.slot;
+			this.slots[removed.slot] = moved;
+		}
+		this.slots[last] = null;
+	}
+
+	/**
+	 * Tell the listeners, if any, about a single change.
+	 */
+	private void notifyListeners(Mutation.Kind kind, long id, ToDo todo, String text, Tag tag) {
+		if (!this.listeners.isEmpty()) {
+			this.fire(List.of(new Mutation(kind, id, todo, text, tag)));
+		}
+	}
+
+	/**
+	 * Tell the listeners about a change.
+	 * @param mutations: the mutations applied. REQUIRED not null.
+	 */
+	private void fire(List<Mutation> mutations) {
+		List<Mutation> view = Collections.unmodifiableList(mutations);
+		for (ToDoListListener listener : this.listeners) {
+			listener.changed(this, view);
+		}
+	}
+
+	/**
+	 * RETURN the result of a mutation after checking it kept the identity of
+	 * the ToDo.
+	 * @param before: the ToDo passed to the mutation. REQUIRED not null.
+	 * @param after: the result of the mutation.
+	 * @return after.
+	 * @throws NullPointerException when after is null.
+	 * @throws IllegalArgumentException when after has a different identifier
+	 * or creation.
+	 */
+	static ToDo checkMutation(ToDo before, ToDo after) {
+		if (after == null) {
+			throw new NullPointerException();
+		} else if (after.getId() != before.getId() || !after.getCreation().equals(before.getCreation())) {
+			throw new IllegalArgumentException("A mutation can't change the identity of a ToDo.");
+		}
+		return after;
+	}
+
+	/**
+	 * RETURN the initial capacity a HashMap needs to hold the specified number
+	 * of entries without rehashing, given the default load factor.
+	 * @param expectedSize: the number of entries. REQUIRED not negative.
+	 * @return the initial capacity.
+	 */
+	private static int capacityFor(int expectedSize) {
+		return (int) Math.min((long) expectedSize * 4 / 3 + 1, 1 << 30);
+	}
+
+	/**
+	 * Holder of a ToDo stored in the list. The ToDo is replaced in place by 
+	 * the edits, while the slot changes only when another ToDo is removed. 
+	 * The identifier and the creation of the ToDo are kept as the key of the 
+	 * creation order.
+	 */
+	private static final class Entry {
+		private final long id;
+		private final LocalDateTime creation;
+		private ToDo todo;
+		private int slot;
+		private long version;
+
+		private Entry(ToDo todo, int slot) {
+			this.id = todo.getId();
+			this.creation = todo.getCreation();
+			this.todo = todo;
+			this.slot = slot;
+			this.version = 0;
+		}
+
+		/**
+		 * Constructor of an entry used only to search in the creation order.
+		 */
+		private Entry(LocalDateTime creation, long id) {
+			this.id = id;
+			this.creation = creation;
+			this.todo = null;
+			this.slot = -1;
+		}
+	}
+
+	/**
+	 * Spliterator over a range of slots. The ToDos are immutable but the list 
+	 * is not, so it doesn't report IMMUTABLE: it checks modCount instead, like 
+	 * the iterators. Every range is split in two halves, whose sizes are 
+	 * exact.
+	 */
+	private final class ToDoSpliterator implements Spliterator<ToDo> {
+		private int index;
+		private final int fence;
+		private final int expectedModCount;
+
+		private ToDoSpliterator(int origin, int fence, int expectedModCount) {
+			this.index = origin;
+			this.fence = fence;
+			this.expectedModCount = expectedModCount;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super ToDo> action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			if (this.index >= this.fence) {
+				return false;
+			}
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			action.accept(slots[this.index++].todo);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super ToDo> action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			Entry[] entries = slots;
+			for (int i = this.index; i < this.fence; i++) {
+				if (modCount != this.expectedModCount) {
+					this.index = i;
+					throw new ConcurrentModificationException();
+				}
+				action.accept(entries[i].todo);
+			}
+			this.index = this.fence;
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public Spliterator<ToDo> trySplit() {
+			int mid = (this.index + this.fence) >>> 1;
+			if (mid <= this.index) {
+				return null;
+			}
+			Spliterator<ToDo> prefix = new ToDoSpliterator(this.index, mid, this.expectedModCount);
+			this.index = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.fence - this.index;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.DISTINCT;
+		}
+	}
+
+	/**
+	 * Read-only Collection of the ToDos of the list, backed by the slots.
+	 */
+	private final class ToDoView extends AbstractCollection<ToDo> {
+
+		@Override
+		public Spliterator<ToDo> spliterator() {
+			return new ToDoSpliterator(0, size, modCount);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof ToDo && ToDoList.this.contains((ToDo) o);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Iterator<ToDo> iterator() {
+			return new Iterator<ToDo>() {
+				private int next = 0;
+				private final int expectedModCount = modCount;
+
+				@Override
+				public boolean hasNext() {
+					return this.next < size;
+				}
+
+				@Override
+				public ToDo next() {
+					if (modCount != this.expectedModCount) {
+						throw new ConcurrentModificationException();
+					}
+					if (this.next >= size) {
+						throw new NoSuchElementException();
+					}
+					return slots[this.next++].todo;
+				}
+			};
+		}
 	}
 
 }   // class ToDoList
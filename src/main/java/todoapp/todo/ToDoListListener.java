@@ -0,0 +1,21 @@
+package todoapp.todo;
+
+import java.util.List;
+
+/**
+ * This interface provide the callback a ToDoList uses to tell about its
+ * changes, e.g. to persist them. A single operation is notified as a list of
+ * one mutation, a batch as a single notification with all its mutations.
+ * Only the operations that changed the list are notified.
+ */
+interface ToDoListListener {
+
+	/**
+	 * Called after the list changed.
+	 * @param list: the list changed.
+	 * @param mutations: the mutations applied, in order. It MUST NOT be
+	 * modified. The listener MUST NOT modify the list or throw.
+	 */
+	void changed(ToDoList list, List<Mutation> mutations);
+
+}	// interface ToDoListListener
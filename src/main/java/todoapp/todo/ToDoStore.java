@@ -0,0 +1,215 @@
+package todoapp.todo;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import todoapp.exceptions.EmptyFieldException;
+import todoapp.exceptions.VersionConflictException;
+
+/**
+ * This interface provide the contract shared by the containers of ToDo:
+ * ToDoList, meant for a single thread and rich of indexes, and
+ * ConcurrentToDoList, meant to be shared between threads.
+ * A ToDo is identified by its identifier: the methods taking a ToDo act only
+ * if the stored one is equal to it, the ones taking an identifier act on
+ * whatever ToDo has it. Since a ToDo is immutable, every method returns the
+ * stored instances, never a copy.
+ * Every stored ToDo has a version, which starts from 0 when the ToDo is added
+ * and grows by one at each change: an editor can remember it and later apply
+ * its change only if nobody else changed the ToDo in the meantime.
+ * INVARIANT: a store doesn't contain null or two ToDos with the same
+ * identifier.
+ */
+interface ToDoStore {
+
+	/**
+     * Check whether the ToDo passed is present in the store or not.
+     * @param todo: the ToDo to search. REQUIRED to be not null.
+     * @return true if the ToDo is in with the same content, false otherwise.
+     * @throws NullPointerException when todo is null.
+     */
+	boolean contains(ToDo todo);
+
+	/**
+     * Check whether a ToDo with the identifier passed is present or not.
+     * @param id: the identifier of the ToDo.
+     * @return true if the ToDo is in, false otherwise.
+     */
+	boolean contains(long id);
+
+	/**
+     * Get the ToDo with the identifier passed.
+     * @param id: the identifier of the ToDo.
+     * @return the ToDo if it is in the store, null otherwise.
+     */
+	ToDo get(long id);
+
+	/**
+     * MODIFY this by adding a new ToDo, if no ToDo with its identifier exists.
+     * @param newToDo: the ToDo to add. REQUIRED to be not null.
+     * @return true if the ToDo is added, false otherwise.
+     * @throws NullPointerException when newToDo is null.
+     */
+	boolean addToDo(ToDo newToDo);
+
+	/**
+     * MODIFY this by deleting the ToDo specified, if present.
+     * @param todo: the ToDo to remove. REQUIRED to be not null.
+	 * @return true if todo is removed, false if it wasn't present.
+	 * @throws NullPointerException if todo is null.
+     */
+	boolean removeToDo(ToDo todo);
+
+	/**
+     * MODIFY this by deleting the ToDo with the identifier specified, if
+	 * present.
+     * @param id: the identifier of the ToDo to remove.
+	 * @return true if the ToDo is removed, false if it wasn't present.
+     */
+	boolean removeToDo(long id);
+
+	/**
+     * MODIFY this by changing the title of the ToDo specified, if present.
+     * @param todo: the ToDo to modify. REQUIRED to be not null.
+     * @param newTitle: the new title. REQUIRED to be not null and not empty.
+	 * @return the modified ToDo, or null if todo is not present.
+	 * @throws NullPointerException when newTitle or todo is null.
+     * @throws EmptyFieldException when newTitle is empty.
+     */
+	ToDo modifyToDoTitle(ToDo todo, String newTitle) throws EmptyFieldException;
+
+	/**
+     * MODIFY this by changing the title of the ToDo with the identifier
+	 * specified, if present.
+     * @param id: the identifier of the ToDo to modify.
+     * @param newTitle: the new title. REQUIRED to be not null and not empty.
+	 * @return the modified ToDo, or null if no ToDo has that identifier.
+	 * @throws NullPointerException when newTitle is null.
+     * @throws EmptyFieldException when newTitle is empty.
+     */
+	ToDo modifyToDoTitle(long id, String newTitle) throws EmptyFieldException;
+
+	/**
+     * MODIFY this by changing the description of the ToDo specified, if
+	 * present.
+     * @param todo: the ToDo to modify. REQUIRED to be not null.
+     * @param newDescription: the new description.
+	 * @return the modified ToDo, or null if todo is not present.
+	 * @throws NullPointerException when todo is null.
+     */
+	ToDo modifyToDoDescription(ToDo todo, String newDescription);
+
+	/**
+     * MODIFY this by changing the description of the ToDo with the identifier
+	 * specified, if present.
+     * @param id: the identifier of the ToDo to modify.
+     * @param newDescription: the new description.
+	 * @return the modified ToDo, or null if no ToDo has that identifier.
+     */
+	ToDo modifyToDoDescription(long id, String newDescription);
+
+	/**
+	 * MODIFY this by adding a Tag to the ToDo specified, if present.
+     * @param todo: the ToDo to modify. REQUIRED to be not null.
+	 * @param newTag: the tag to add. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if todo is not present.
+	 * @throws NullPointerException when todo or newTag is null.
+     */
+	ToDo addToDoTag(ToDo todo, Tag newTag);
+
+	/**
+	 * MODIFY this by adding a Tag to the ToDo with the identifier specified,
+	 * if present.
+     * @param id: the identifier of the ToDo to modify.
+	 * @param newTag: the tag to add. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if no ToDo has that
+	 * identifier.
+	 * @throws NullPointerException when newTag is null.
+     */
+	ToDo addToDoTag(long id, Tag newTag);
+
+	/**
+	 * MODIFY this by deleting a Tag from the ToDo specified, if present.
+     * @param todo: the ToDo to modify. REQUIRED to be not null.
+	 * @param tag: the tag to delete. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if todo is not present.
+	 * @throws NullPointerException when todo or tag is null.
+     */
+	ToDo deleteToDoTag(ToDo todo, Tag tag);
+
+	/**
+	 * MODIFY this by deleting a Tag from the ToDo with the identifier
+	 * specified, if present.
+     * @param id: the identifier of the ToDo to modify.
+	 * @param tag: the tag to delete. REQUIRED to be not null.
+	 * @return the ToDo after the operation, or null if no ToDo has that
+	 * identifier.
+	 * @throws NullPointerException when tag is null.
+     */
+	ToDo deleteToDoTag(long id, Tag tag);
+
+	/**
+     * Get the version of the ToDo with the identifier passed.
+     * @param id: the identifier of the ToDo.
+     * @return the version of the ToDo, or -1 if it is not in the store.
+     */
+	long getVersion(long id);
+
+	/**
+	 * MODIFY this by replacing the ToDo with the identifier specified with the
+	 * result of a mutation, only if its version is still the expected one.
+	 * On a conflict the method fails at once, so that the caller can read the
+	 * ToDo again and retry.
+     * @param id: the identifier of the ToDo to modify.
+	 * @param expectedVersion: the version the mutation was prepared for.
+	 * @param mutation: the change, like todo -> todo.withTitle("New").
+	 * REQUIRED not null, without side effects, and returning a ToDo with the
+	 * same identifier and creation.
+	 * @return the ToDo after the operation, or null if no ToDo has that
+	 * identifier.
+	 * @throws NullPointerException when mutation is null or returns null.
+	 * @throws IllegalArgumentException when the mutation changes the
+	 * identifier or the creation of the ToDo.
+	 * @throws VersionConflictException when the version of the ToDo is not
+	 * expectedVersion. In these cases nothing is modified.
+     */
+	ToDo compareAndModify(long id, long expectedVersion, UnaryOperator<ToDo> mutation) throws VersionConflictException;
+
+    /**
+     * Get all the ToDos of the store, as a read-only view.
+     * @return a Collection with all the ToDo.
+     */
+	Collection<ToDo> getData();
+
+	/**
+	 * Get a copy of all the ToDos of the store, taken at a single instant: no
+	 * change is ever seen half applied.
+	 * @return a new List with all the ToDo.
+	 */
+	List<ToDo> snapshot();
+
+    /**
+     * Get the number of ToDo contained in the store.
+     * @return number of ToDo.
+     */
+	int size();
+
+	/**
+	 * @return a read-only iterator over the ToDos of the store.
+	 */
+	Iterator<ToDo> iterator();
+
+	/**
+	 * @return a sequential Stream over the ToDos of the store.
+	 */
+	Stream<ToDo> stream();
+
+	/**
+	 * @return a parallel Stream over the ToDos of the store.
+	 */
+	Stream<ToDo> parallelStream();
+
+}	// interface ToDoStore
@@ -0,0 +1,98 @@
+package todoapp.todo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class provide the variable length encoding of the integers used by the
+ * binary files: 7 bits per byte, least significant group first, with the
+ * high bit set on every byte but the last. Small numbers, like most tag
+ * identifiers and string lengths, take a single byte. Signed numbers are
+ * first mapped by zig-zag, so that small negative numbers are short too.
+ */
+final class Varint {
+
+	/**
+	 * The longest encoding of a long.
+	 */
+	static final int MAX_SIZE = 10;
+
+	private Varint() {
+	}
+
+	/**
+	 * MODIFY buf by writing an unsigned number.
+	 * @param buf: the buffer. REQUIRED with at least size(value) bytes left.
+	 * @param value: the number, taken as unsigned.
+	 */
+	static void put(ByteBuffer buf, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buf.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
+	}
+
+	/**
+	 * MODIFY buf by reading an unsigned number.
+	 * @param buf: the buffer. REQUIRED not null.
+	 * @return the number.
+	 * @throws java.nio.BufferUnderflowException when buf ends in the middle.
+	 * @throws IllegalArgumentException when the encoding is longer than
+	 * MAX_SIZE bytes.
+	 */
+	static long get(ByteBuffer buf) {
+		long res = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buf.get();
+			res |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return res;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint.");
+	}
+
+	/**
+	 * MODIFY buf by reading an unsigned number that has to fit an int.
+	 * @param buf: the buffer. REQUIRED not null.
+	 * @return the number.
+	 * @throws IllegalArgumentException when the number doesn't fit an int.
+	 */
+	static int getInt(ByteBuffer buf) {
+		long res = get(buf);
+		if (res < 0 || res > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Varint out of range.");
+		}
+		return (int) res;
+	}
+
+	/**
+	 * RETURN the number of bytes of the encoding of a number.
+	 * @param value: the number, taken as unsigned.
+	 * @return the number of bytes, between 1 and MAX_SIZE.
+	 */
+	static int size(long value) {
+		int res = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			res++;
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN the zig-zag mapping of a signed number: 0, -1, 1, -2... become
+	 * 0, 1, 2, 3...
+	 */
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * RETURN the signed number of a zig-zag mapping.
+	 */
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}	// class Varint
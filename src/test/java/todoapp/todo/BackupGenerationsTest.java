@@ -0,0 +1,124 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import todoapp.exceptions.BackupFailedException;
+
+class BackupGenerationsTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test that only the newest generations are kept, in the order
+     * they were written, and that the newest valid one is restored.
+     */
+    @Test
+    @DisplayName("Testing the rotation of the generations")
+    @Tag("BackupGenerations")
+    void rotationTesting() {
+        Clock clock = Clock.fixed(Instant.parse("2020-11-02T10:15:30.123Z"), ZoneOffset.UTC);
+        ToDoList tdl = new ToDoList();
+        try (BackupGenerations generations = new BackupGenerations(tempDir, 3, false, clock)) {
+            assertThrows(BackupFailedException.class, () -> generations.restore());
+            for (int i = 0; i < 12; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, null));
+                generations.backup(tdl.getData());
+            }
+            generations.prune().get();
+
+            assertEquals(List.of("backup-20201102T101530.123Z-9.bak", "backup-20201102T101530.123Z-10.bak",
+                    "backup-20201102T101530.123Z-11.bak"), generations.getGenerations().stream()
+                    .map(p -> p.getFileName().toString()).collect(Collectors.toList()));
+            assertEquals(12, generations.restore().size());
+
+            Path newest = generations.getGenerations().get(2);
+            byte[] bytes = Files.readAllBytes(newest);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(newest, bytes);
+            assertEquals(11, BackupGenerations.restore(tempDir).size());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new BackupGenerations(tempDir, 0, false));
+    }
+
+    /**
+     * Method to test that a new instance whose clock is behind the newest
+     * generation names its generations after it, so the pruning keeps them.
+     */
+    @Test
+    @DisplayName("Testing the generations of an instance with a clock behind")
+    @Tag("BackupGenerations")
+    void clockBehindTesting() {
+        Clock first = Clock.fixed(Instant.parse("2020-11-02T12:00:00.000Z"), ZoneOffset.UTC);
+        Clock second = Clock.fixed(Instant.parse("2020-11-02T11:59:00.000Z"), ZoneOffset.UTC);
+        ToDoList tdl = new ToDoList();
+        try {
+            tdl.addToDo(new ToDo("First", null));
+            try (BackupGenerations generations = new BackupGenerations(tempDir, 1, false, first)) {
+                generations.backup(tdl.getData());
+            }
+
+            tdl.addToDo(new ToDo("Second", null));
+            try (BackupGenerations generations = new BackupGenerations(tempDir, 1, false, second)) {
+                Path newest = generations.backup(tdl.getData());
+                generations.prune().get();
+                assertEquals(List.of(newest), generations.getGenerations());
+                assertEquals("backup-20201102T120000.000Z-1.bak", newest.getFileName().toString());
+                assertEquals(2, generations.restore().size());
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that a compressed generation is much smaller than the
+     * plain backup and is read back by FileIO and Backup as it was.
+     */
+    @Test
+    @DisplayName("Testing the compression of the generations")
+    @Tag("BackupGenerations")
+    void compressionTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            for (int i = 0; i < 2000; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, "Description of the ToDo number " + i + " \u00e8"));
+            }
+            Path plain = tempDir.resolve("plain.bak");
+            Backup.backupData(tdl, plain.toString());
+
+            Path compressed;
+            try (BackupGenerations generations = new BackupGenerations(tempDir.resolve("gz"),
+                    BackupGenerations.DEFAULT_RETAINED, true)) {
+                compressed = generations.backup(tdl.getData());
+                assertEquals(true, compressed.getFileName().toString().endsWith(".bak.gz"));
+            }
+            assertEquals(true, Files.size(compressed) * 5 < Files.size(plain));
+            assertEquals(new FileIO(plain.toString()).load(), new FileIO(compressed.toString()).load());
+
+            ToDoList restored = Backup.restoreData(compressed.toString(), null);
+            assertEquals(tdl.size(), restored.size());
+            for (ToDo td : tdl.getData()) {
+                assertEquals(td, restored.get(td.getId()));
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class BackupSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test that a burst of changes of a ToDoList causes a single
+     * backup, written from a snapshot taken in the thread of the list.
+     */
+    @Test
+    @DisplayName("Testing the coalescing of a burst of changes")
+    @Tag("BackupScheduler")
+    void burstTesting() {
+        String backup = tempDir.resolve("backup.bak").toString();
+        BlockingQueue<Runnable> listThread = new LinkedBlockingQueue<Runnable>();
+        ToDoList tdl = new ToDoList();
+        try {
+            BackupScheduler scheduler = new BackupScheduler(tdl, listThread::add, backup, Duration.ofMillis(200),
+                    Duration.ofSeconds(60));
+            assertEquals(BackupScheduler.Status.IDLE, scheduler.getStatus());
+            for (int i = 0; i < 1000; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, null));
+            }
+            assertEquals(BackupScheduler.Status.PENDING, scheduler.getStatus());
+            assertEquals(null, scheduler.getLastSuccess());
+
+            Runnable snapshot = listThread.poll(10, TimeUnit.SECONDS);
+            assertNotNull(snapshot);
+            snapshot.run();
+            assertEquals(true, scheduler.awaitIdle(Duration.ofSeconds(10)));
+            assertEquals(1, scheduler.getBackupCount());
+            assertNotNull(scheduler.getLastSuccess());
+            assertEquals(null, scheduler.getLastError());
+            assertEquals(true, listThread.isEmpty());
+            assertEquals(1000, Backup.restoreData(backup, null).size());
+
+            tdl.addToDo(new ToDo("Before closing", null));
+            scheduler.close();
+            assertEquals(2, scheduler.getBackupCount());
+            assertEquals(1001, Backup.restoreData(backup, null).size());
+            tdl.addToDo(new ToDo("After closing", null));
+            assertEquals(BackupScheduler.Status.IDLE, scheduler.getStatus());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that a store that never stays quiet is backed up after
+     * the maximum delay.
+     */
+    @Test
+    @DisplayName("Testing the maximum delay of a backup")
+    @Tag("BackupScheduler")
+    void maxDelayTesting() {
+        String backup = tempDir.resolve("backup.bak").toString();
+        ConcurrentToDoList store = new ConcurrentToDoList();
+        try {
+            BackupScheduler scheduler = new BackupScheduler(store, Runnable::run, backup, Duration.ofMillis(100),
+                    Duration.ofMillis(300));
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (System.nanoTime() < end) {
+                store.addToDo(new ToDo("ToDo", null));
+                scheduler.markChanged();
+                Thread.sleep(10);
+            }
+            assertEquals(true, scheduler.getBackupCount() >= 1);
+            scheduler.close();
+            assertEquals(store.size(), Backup.restoreData(backup, null).size());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new BackupScheduler(store, Runnable::run, backup,
+                Duration.ofSeconds(2), Duration.ofSeconds(1)));
+        assertThrows(NullPointerException.class, () -> new BackupScheduler(store, null, backup,
+                Duration.ofSeconds(1), Duration.ofSeconds(1)));
+    }
+
+}
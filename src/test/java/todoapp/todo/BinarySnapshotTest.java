@@ -0,0 +1,228 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import todoapp.todo.Tag.Color;
+
+class BinarySnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test the varint encoding.
+     */
+    @Test
+    @DisplayName("Testing the varint encoding")
+    @Tag("BinarySnapshot")
+    void varintTesting() {
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        long[] values = { 0, 1, 127, 128, 300, Integer.MAX_VALUE, Long.MAX_VALUE, -1 };
+        for (long v : values) {
+            buf.clear();
+            Varint.put(buf, v);
+            assertEquals(Varint.size(v), buf.position());
+            buf.flip();
+            assertEquals(v, Varint.get(buf));
+            assertEquals(v, Varint.unZigZag(Varint.zigZag(v)));
+        }
+        assertEquals(1, Varint.size(Varint.zigZag(-1)));
+        assertEquals(Varint.MAX_SIZE, Varint.size(-1));
+
+        buf.clear();
+        Varint.put(buf, Long.MAX_VALUE);
+        buf.flip();
+        assertThrows(IllegalArgumentException.class, () -> Varint.getInt(buf));
+    }
+
+    /**
+     * Method to test that a snapshot is read back with the same ToDos, and is
+     * smaller than the JSON backup.
+     */
+    @Test
+    @DisplayName("Testing the write and the read of a snapshot")
+    @Tag("BinarySnapshot")
+    void roundTripTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("work", Color.RED);
+            todoapp.todo.Tag home = new todoapp.todo.Tag("casa \u00e8", Color.GREEN);
+            for (int i = 0; i < 5000; i++) {
+                ToDo td = new ToDo("ToDo " + i, i % 4 == 0 ? null : "Description \u20ac " + i);
+                if (i % 2 == 0) {
+                    td = td.withTag(work);
+                }
+                if (i % 3 == 0) {
+                    td = td.withTag(home);
+                }
+                tdl.addToDo(td);
+            }
+            ToDo old = new ToDo(1L << 40, "Old", "x".repeat(3 << 20), LocalDateTime.of(1960, 1, 1, 0, 0, 0, 123), List.of());
+            tdl.addToDo(old);
+
+            Path snapshot = tempDir.resolve("list.snap");
+            BinarySnapshot.write(tdl.getData(), snapshot);
+            ToDoList read = BinarySnapshot.read(snapshot);
+
+            assertEquals(tdl.size(), read.size());
+            for (ToDo td : tdl.getData()) {
+                assertEquals(td, read.get(td.getId()));
+            }
+            assertEquals(2500, read.findByTag(work).size());
+            assertEquals(old.getCreation(), read.get(old.getId()).getCreation());
+
+            tdl.removeToDo(old);
+            Path json = tempDir.resolve("list.bak");
+            Backup.backupData(tdl, json.toString());
+            BinarySnapshot.write(tdl.getData(), snapshot);
+            assertEquals(true, Files.size(snapshot) * 2 < Files.size(json));
+
+            BinarySnapshot.write(new ToDoList().getData(), snapshot);
+            assertEquals(0, BinarySnapshot.read(snapshot).size());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that the lazy descriptions of a snapshot are read when
+     * they are needed, and are kept by the changes of the other fields.
+     */
+    @Test
+    @DisplayName("Testing the lazy read of a snapshot")
+    @Tag("BinarySnapshot")
+    void lazyTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("work", Color.RED);
+            for (int i = 0; i < 1000; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, i % 3 == 0 ? null : "Description \u20ac " + i, work));
+            }
+            Path snapshot = tempDir.resolve("list.snap");
+            BinarySnapshot.write(tdl.getData(), snapshot);
+            ToDoList lazy = BinarySnapshot.readLazy(snapshot, 4);
+
+            assertEquals(tdl.size(), lazy.size());
+            for (ToDo td : tdl.getData()) {
+                ToDo read = lazy.get(td.getId());
+                assertEquals(td.getDescription(), read.getDescription());
+                assertEquals(td, read);
+            }
+
+            ToDo td = lazy.newest(1).get(0);
+            ToDo renamed = td.withTitle("Renamed").withTag(new todoapp.todo.Tag("home", Color.GREEN));
+            assertEquals(true, td.sameDescription(renamed));
+            assertEquals(List.of(Mutation.Kind.TITLE, Mutation.Kind.ADD_TAG), Mutation.between(td, renamed).stream()
+                    .map(Mutation::getKind).collect(Collectors.toList()));
+            lazy.modifyToDoTitle(td, "Renamed");
+            lazy.modifyToDoDescription(td.getId(), "Changed");
+            assertEquals("Changed", lazy.get(td.getId()).getDescription());
+            assertEquals(1, lazy.search("changed", 10).size());
+
+            Path copy = tempDir.resolve("copy.snap");
+            BinarySnapshot.write(lazy.getData(), copy);
+            ToDoList read = BinarySnapshot.read(copy);
+            for (ToDo expected : lazy.getData()) {
+                assertEquals(expected, read.get(expected.getId()));
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> BinarySnapshot.readLazy(tempDir.resolve("list.snap"), -1));
+    }
+
+    /**
+     * Method to test that a snapshot read lazily can be written back to its
+     * own file, and that its descriptions survive the file being replaced.
+     */
+    @Test
+    @DisplayName("Testing the rewrite of a lazy snapshot to its own file")
+    @Tag("BinarySnapshot")
+    void lazyRewriteTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, "Description " + i));
+            }
+            Path snapshot = tempDir.resolve("list.snap");
+            BinarySnapshot.write(tdl.getData(), snapshot);
+            ToDoList lazy = BinarySnapshot.readLazy(snapshot, 0);
+
+            lazy.modifyToDoTitle(lazy.newest(1).get(0), "Renamed");
+            BinarySnapshot.write(lazy.getData(), snapshot);
+            ToDoList read = BinarySnapshot.read(snapshot);
+            assertEquals(tdl.size(), read.size());
+            for (ToDo td : lazy.getData()) {
+                assertEquals(td, read.get(td.getId()));
+            }
+
+            ToDoList other = new ToDoList(new ToDo("Other", "Other description"));
+            BinarySnapshot.write(other.getData(), snapshot);
+            for (ToDo td : tdl.getData()) {
+                assertEquals(td.getDescription(), lazy.get(td.getId()).getDescription());
+            }
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertEquals(List.of("list.snap"),
+                        files.map(p -> p.getFileName().toString()).collect(Collectors.toList()));
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that invalid snapshots are refused.
+     */
+    @Test
+    @DisplayName("Testing the read of invalid snapshots")
+    @Tag("BinarySnapshot")
+    void invalidTesting() {
+        Path snapshot = tempDir.resolve("list.snap");
+        byte[] bytes = null;
+        try {
+            ToDoList tdl = new ToDoList();
+            tdl.addToDo(new ToDo("A", "B", new todoapp.todo.Tag("t", Color.BLUE)));
+            BinarySnapshot.write(tdl.getData(), snapshot);
+            bytes = Files.readAllBytes(snapshot);
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        byte[] valid = bytes;
+        assertThrows(IOException.class, () -> {
+            Files.write(snapshot, Arrays.copyOf(valid, valid.length - 1));
+            BinarySnapshot.read(snapshot);
+        });
+        assertThrows(IOException.class, () -> {
+            Files.write(snapshot, Arrays.copyOf(valid, valid.length + 1));
+            BinarySnapshot.read(snapshot);
+        });
+        assertThrows(IOException.class, () -> {
+            byte[] wrong = valid.clone();
+            wrong[0] = 'X';
+            Files.write(snapshot, wrong);
+            BinarySnapshot.read(snapshot);
+        });
+        assertThrows(IOException.class, () -> {
+            Files.write(snapshot, new byte[0]);
+            BinarySnapshot.read(snapshot);
+        });
+        assertThrows(IOException.class, () -> BinarySnapshot.read(tempDir.resolve("missing.snap")));
+    }
+
+}
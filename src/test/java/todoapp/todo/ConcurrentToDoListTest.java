@@ -0,0 +1,177 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import todoapp.exceptions.EmptyFieldException;
+import todoapp.exceptions.VersionConflictException;
+import todoapp.todo.Tag.Color;
+
+class ConcurrentToDoListTest {
+
+	/**
+     * Method to test the single thread contract, which is the same of
+	 * ToDoList.
+     * @param td: the ToDo to add.
+     * @param tag: the Tag to add to it.
+     */
+    @ParameterizedTest
+    @MethodSource("todoapp.todo.SourceArguments#todoAndTagProvider")
+    @DisplayName("Testing the contract shared with ToDoList")
+    @Tag("ConcurrentToDoList")
+    void contractTesting(ToDo td, todoapp.todo.Tag tag) {
+		ConcurrentToDoList tdl = new ConcurrentToDoList();
+		if (td == null) {
+			assertThrows(NullPointerException.class, () -> tdl.addToDo(td));
+			return;
+		}
+
+		try {
+			assertEquals(true, tdl.addToDo(td));
+			assertEquals(false, tdl.addToDo(td));
+			assertEquals(true, tdl.contains(td));
+			assertSame(td, tdl.get(td.getId()));
+
+			if (tag == null) {
+				assertThrows(NullPointerException.class, () -> tdl.addToDoTag(td, tag));
+			} else {
+				ToDo tagged = tdl.addToDoTag(td, tag);
+				assertEquals(true, tagged.getTags().contains(tag));
+				if (tagged != td) {
+					assertEquals(false, tdl.contains(td));
+					assertNull(tdl.modifyToDoDescription(td, "Changed"));
+					assertSame(tagged, tdl.get(td.getId()));
+					assertEquals(false, tdl.removeToDo(td));
+				}
+			}
+
+			assertThrows(EmptyFieldException.class, () -> tdl.modifyToDoTitle(td.getId(), ""));
+			assertEquals("New title", tdl.modifyToDoTitle(td.getId(), "New title").getTitle());
+			assertEquals(List.of(tdl.get(td.getId())), tdl.snapshot());
+			assertEquals(1, tdl.stream().count());
+			assertEquals(true, tdl.removeToDo(td.getId()));
+			assertEquals(0, tdl.size());
+		} catch (EmptyFieldException e) {
+			fail("Should not be thrown!");
+		}
+	}
+
+	/**
+     * Method to test that the changes of many threads on the same ToDos are
+	 * all kept.
+     */
+    @Test
+    @DisplayName("Testing the changes done by many threads together")
+    @Tag("ConcurrentToDoList")
+    void concurrentModifyTesting() {
+		int threads = 4;
+		int tagsPerThread = 50;
+		ToDo[] tds = new ToDo[8];
+		ConcurrentToDoList tdl = new ConcurrentToDoList();
+		ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+		try {
+			for (int i = 0; i < tds.length; i++) {
+				tds[i] = new ToDo("ToDo " + i, "Shared");
+				tdl.addToDo(tds[i]);
+			}
+
+			List<Future<?>> writers = new ArrayList<Future<?>>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				writers.add(pool.submit(() -> {
+					for (int j = 0; j < tagsPerThread; j++) {
+						todoapp.todo.Tag tag = new todoapp.todo.Tag("T" + thread + "-" + j, Color.BLUE);
+						for (ToDo td : tds) {
+							tdl.addToDoTag(td.getId(), tag);
+						}
+					}
+					return null;
+				}));
+			}
+			Future<?> reader = pool.submit(() -> {
+				for (int j = 0; j < 100; j++) {
+					assertEquals(tds.length, tdl.snapshot().size());
+					tdl.stream().forEach(td -> assertEquals("Shared", td.getDescription()));
+				}
+			});
+
+			for (Future<?> w : writers) {
+				w.get();
+			}
+			reader.get();
+			for (ToDo td : tds) {
+				assertEquals(threads * tagsPerThread, tdl.get(td.getId()).getTagCount());
+			}
+		} catch (Exception e) {
+			fail("Should not be thrown!", e);
+		} finally {
+			pool.shutdownNow();
+			try {
+				pool.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+     * Method to test that editors retrying on conflicts with compareAndModify
+	 * don't lose updates.
+     */
+    @Test
+    @DisplayName("Testing compareAndModify with many threads")
+    @Tag("ConcurrentToDoList")
+    void compareAndModifyTesting() {
+		int threads = 4;
+		int increments = 200;
+		ConcurrentToDoList tdl = new ConcurrentToDoList();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			ToDo td = new ToDo("0", "Counter");
+			long id = td.getId();
+			tdl.addToDo(td);
+
+			List<Future<Integer>> editors = new ArrayList<Future<Integer>>();
+			for (int t = 0; t < threads; t++) {
+				editors.add(pool.submit(() -> {
+					int conflicts = 0;
+					for (int j = 0; j < increments; j++) {
+						boolean done = false;
+						while (!done) {
+							long version = tdl.getVersion(id);
+							try {
+								tdl.compareAndModify(id, version,
+										cur -> cur.withTitle(String.valueOf(Integer.parseInt(cur.getTitle()) + 1)));
+								done = true;
+							} catch (VersionConflictException e) {
+								conflicts++;
+							}
+						}
+					}
+					return conflicts;
+				}));
+			}
+			for (Future<Integer> e : editors) {
+				e.get();
+			}
+
+			assertEquals(String.valueOf(threads * increments), tdl.get(id).getTitle());
+			assertEquals(threads * increments, tdl.getVersion(id));
+		} catch (Exception e) {
+			fail("Should not be thrown!", e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
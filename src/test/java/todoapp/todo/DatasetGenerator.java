@@ -0,0 +1,291 @@
+package todoapp.todo;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import todoapp.exceptions.EmptyFieldException;
+import todoapp.todo.Tag.Color;
+
+/**
+ * This class provide the generator of large and realistic ToDoLists for the
+ * load tests. The same seed and configuration give always the same list:
+ * - the tags are cardinality tags "tag-<rank>", whose popularity follows a
+ * Zipf law of exponent zipfExponent over their rank, and every ToDo has a
+ * number of them with a Poisson law of mean tagsPerToDo
+ * - the titles have 2 to 8 words and the descriptions, missing for a ratio
+ * of the ToDos, have a length in characters with a log-normal law, of
+ * median medianLength: the words come from a vocabulary of pseudo-words,
+ * again with a Zipf law, so that the full-text search meets common and rare
+ * words as in real text
+ * - the creations are spread over a period starting at start, in the order
+ * of the identifiers, as the ToDos created by the application
+ * The generator is immutable: the with methods return a new one.
+ */
+final class DatasetGenerator {
+
+	private static final int VOCABULARY = 5000;
+	private static final int MAX_DESCRIPTION_LENGTH = 10_000;
+	private static final String[] SYLLABLES = { "ka", "lo", "mi", "ne", "ru", "sa", "to", "vi", "ba", "de", "fo", "gu",
+			"pe", "ri", "so", "ta", "ul", "ve", "zo", "an", "el", "is", "or", "un" };
+
+	/**
+	 * The object DatasetGenerator implementation is done with:
+	 * - the seed
+	 * - the cardinality of the tags, the exponent of their Zipf law and the
+	 * mean number of tags of a ToDo
+	 * - the ratio of the ToDos without description, the median length of the
+	 * descriptions and the sigma of the log-normal law of their length
+	 * - the start and the length of the period of the creations
+	 * - the tags and the vocabulary, with the cumulative distributions of
+	 * their Zipf laws
+	 *
+	 * INVARIANT: cardinality > 0, 0 <= nullRatio <= 1, medianLength > 0,
+	 * spread not negative.
+	 */
+	private final long seed;
+	private final int cardinality;
+	private final double zipfExponent;
+	private final double tagsPerToDo;
+	private final double nullRatio;
+	private final int medianLength;
+	private final double sigma;
+	private final LocalDateTime start;
+	private final Duration spread;
+	private final Tag[] tags;
+	private final double[] tagDistribution;
+	private final String[] words;
+	private final double[] wordDistribution;
+
+	/**
+	 * Constructor that creates a generator with the seed specified and the
+	 * default configuration: 200 tags with a Zipf exponent of 1.1 and 2 tags
+	 * per ToDo on average, 30% of ToDos without description and a median
+	 * description of 120 characters, creations spread over 5 years from 2016.
+	 * @param seed: the seed of the generator.
+	 */
+	DatasetGenerator(long seed) {
+		this(seed, 200, 1.1, 2, 0.3, 120, 1.0, LocalDateTime.of(2016, 1, 1, 0, 0), Duration.ofDays(5 * 365));
+	}
+
+	private DatasetGenerator(long seed, int cardinality, double zipfExponent, double tagsPerToDo, double nullRatio,
+			int medianLength, double sigma, LocalDateTime start, Duration spread) {
+		this.seed = seed;
+		this.cardinality = cardinality;
+		this.zipfExponent = zipfExponent;
+		this.tagsPerToDo = tagsPerToDo;
+		this.nullRatio = nullRatio;
+		this.medianLength = medianLength;
+		this.sigma = sigma;
+		this.start = start;
+		this.spread = spread;
+
+		Color[] colors = Color.values();
+		this.tags = new Tag[cardinality];
+		try {
+			for (int i = 0; i < cardinality; i++) {
+				this.tags[i] = new Tag("tag-" + i, colors[i % colors.length]);
+			}
+		} catch (EmptyFieldException efe) {
+			throw new AssertionError(efe);
+		}
+		this.tagDistribution = zipf(cardinality, zipfExponent);
+
+		SplittableRandom random = new SplittableRandom(seed);
+		this.words = new String[VOCABULARY];
+		for (int i = 0; i < VOCABULARY; i++) {
+			StringBuilder word = new StringBuilder();
+			for (int s = 1 + random.nextInt(3); s > 0; s--) {
+				word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+			}
+			this.words[i] = word.toString();
+		}
+		this.wordDistribution = zipf(VOCABULARY, 1.0);
+	}
+
+	/**
+	 * RETURN a generator equal to this one but with the tags specified.
+	 * @param newCardinality: the number of distinct tags. REQUIRED positive.
+	 * @param newZipfExponent: the exponent of the Zipf law of their
+	 * popularity, 0 for a uniform one. REQUIRED not negative.
+	 * @param newTagsPerToDo: the mean number of tags of a ToDo. REQUIRED not
+	 * negative.
+	 * @return the new generator.
+	 * @throws IllegalArgumentException when an argument is out of range.
+	 */
+	DatasetGenerator withTags(int newCardinality, double newZipfExponent, double newTagsPerToDo) {
+		if (newCardinality <= 0 || newZipfExponent < 0 || newTagsPerToDo < 0) {
+			throw new IllegalArgumentException("Invalid tag configuration.");
+		}
+		return new DatasetGenerator(this.seed, newCardinality, newZipfExponent, newTagsPerToDo, this.nullRatio,
+				this.medianLength, this.sigma, this.start, this.spread);
+	}
+
+	/**
+	 * RETURN a generator equal to this one but with the descriptions
+	 * specified.
+	 * @param newNullRatio: the ratio of ToDos without description. REQUIRED
+	 * between 0 and 1.
+	 * @param newMedianLength: the median length of a description, in
+	 * characters. REQUIRED positive.
+	 * @param newSigma: the sigma of the log-normal law of the lengths, 0 for
+	 * descriptions all of the same length. REQUIRED not negative.
+	 * @return the new generator.
+	 * @throws IllegalArgumentException when an argument is out of range.
+	 */
+	DatasetGenerator withDescriptions(double newNullRatio, int newMedianLength, double newSigma) {
+		if (newNullRatio < 0 || newNullRatio > 1 || newMedianLength <= 0 || newSigma < 0) {
+			throw new IllegalArgumentException("Invalid description configuration.");
+		}
+		return new DatasetGenerator(this.seed, this.cardinality, this.zipfExponent, this.tagsPerToDo, newNullRatio,
+				newMedianLength, newSigma, this.start, this.spread);
+	}
+
+	/**
+	 * RETURN a generator equal to this one but with the creations spread
+	 * over the period specified.
+	 * @param newStart: the creation of the first ToDo. REQUIRED not null.
+	 * @param newSpread: the length of the period. REQUIRED not null and not
+	 * negative.
+	 * @return the new generator.
+	 * @throws NullPointerException when an argument is null.
+	 * @throws IllegalArgumentException when newSpread is negative.
+	 */
+	DatasetGenerator withCreations(LocalDateTime newStart, Duration newSpread) {
+		if (newStart == null || newSpread == null) {
+			throw new NullPointerException();
+		} else if (newSpread.isNegative()) {
+			throw new IllegalArgumentException("The spread of the creations can't be negative.");
+		}
+		return new DatasetGenerator(this.seed, this.cardinality, this.zipfExponent, this.tagsPerToDo, this.nullRatio,
+				this.medianLength, this.sigma, newStart, newSpread);
+	}
+
+	/**
+	 * RETURN a new list of ToDos, always the same for the same seed,
+	 * configuration and size. The identifiers go from 1 to size.
+	 * @param size: the number of ToDos. REQUIRED not negative.
+	 * @return the new list.
+	 */
+	ToDoList generate(int size) {
+		SplittableRandom random = new SplittableRandom(this.seed);
+		ToDoList res = new ToDoList(size);
+		long spreadNanos = this.spread.toNanos();
+		for (int i = 0; i < size; i++) {
+			double position = (i + random.nextDouble()) / size;
+			LocalDateTime creation = this.start.plusNanos((long) (position * spreadNanos));
+			try {
+				res.addToDo(new ToDo(i + 1, this.title(random), this.description(random), creation,
+						this.tags(random)));
+			} catch (EmptyFieldException efe) {
+				throw new AssertionError(efe);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return the tags, from the most popular to the least one.
+	 */
+	List<Tag> getTags() {
+		return Collections.unmodifiableList(Arrays.asList(this.tags));
+	}
+
+	/**
+	 * RETURN a tag drawn with its popularity.
+	 */
+	Tag tag(SplittableRandom random) {
+		return this.tags[draw(this.tagDistribution, random)];
+	}
+
+	/**
+	 * RETURN a word of the vocabulary drawn with its frequency.
+	 */
+	String word(SplittableRandom random) {
+		return this.words[draw(this.wordDistribution, random)];
+	}
+
+	/**
+	 * RETURN a title of 2 to 8 words.
+	 */
+	String title(SplittableRandom random) {
+		StringBuilder res = new StringBuilder(this.word(random));
+		for (int n = 1 + random.nextInt(7); n > 0; n--) {
+			res.append(' ').append(this.word(random));
+		}
+		return res.toString();
+	}
+
+	/**
+	 * RETURN a description with the configured law, or null.
+	 */
+	String description(SplittableRandom random) {
+		if (random.nextDouble() < this.nullRatio) {
+			return null;
+		}
+		double length = this.medianLength * Math.exp(this.sigma * gaussian(random));
+		int target = (int) Math.max(1, Math.min(MAX_DESCRIPTION_LENGTH, length));
+		StringBuilder res = new StringBuilder(target + 16);
+		while (res.length() < target) {
+			if (res.length() > 0) {
+				res.append(' ');
+			}
+			res.append(this.word(random));
+		}
+		res.setLength(target);
+		return res.toString();
+	}
+
+	/**
+	 * RETURN the tags of a ToDo: a number with a Poisson law of mean
+	 * tagsPerToDo, each one drawn with its popularity.
+	 */
+	List<Tag> tags(SplittableRandom random) {
+		int count = 0;
+		double limit = Math.exp(-this.tagsPerToDo);
+		for (double p = random.nextDouble(); p > limit; p *= random.nextDouble()) {
+			count++;
+		}
+		List<Tag> res = new ArrayList<Tag>(count);
+		for (int i = 0; i < count; i++) {
+			res.add(this.tag(random));
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN the cumulative distribution of a Zipf law over n ranks.
+	 */
+	private static double[] zipf(int n, double exponent) {
+		double[] res = new double[n];
+		double sum = 0;
+		for (int k = 0; k < n; k++) {
+			sum += 1 / Math.pow(k + 1, exponent);
+			res[k] = sum;
+		}
+		for (int k = 0; k < n; k++) {
+			res[k] /= sum;
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN a rank drawn from a cumulative distribution.
+	 */
+	private static int draw(double[] distribution, SplittableRandom random) {
+		int pos = Arrays.binarySearch(distribution, random.nextDouble());
+		return Math.min(pos >= 0 ? pos : -pos - 1, distribution.length - 1);
+	}
+
+	/**
+	 * RETURN a standard normal value, by the Box-Muller transform.
+	 */
+	private static double gaussian(SplittableRandom random) {
+		return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+	}
+
+}	// class DatasetGenerator
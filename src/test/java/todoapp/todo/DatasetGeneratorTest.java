@@ -0,0 +1,114 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+class DatasetGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test that the same seed gives the same list, a different
+     * one a different list, and that the creations follow the identifiers
+     * inside the period.
+     */
+    @Test
+    @DisplayName("Testing the determinism of the generator")
+    @Tag("DatasetGenerator")
+    void determinismTesting() {
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        DatasetGenerator generator = new DatasetGenerator(7).withCreations(start, Duration.ofDays(365));
+        List<ToDo> first = generator.generate(2000).oldest(2000);
+        List<ToDo> second = generator.generate(2000).oldest(2000);
+        List<ToDo> other = new DatasetGenerator(8).withCreations(start, Duration.ofDays(365))
+                .generate(2000).oldest(2000);
+
+        assertEquals(2000, first.size());
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(i + 1, first.get(i).getId());
+            assertEquals(false, first.get(i).getCreation().isBefore(start));
+            assertEquals(true, first.get(i).getCreation().isBefore(start.plusDays(365)));
+        }
+    }
+
+    /**
+     * Method to test the laws of the tags and of the descriptions.
+     */
+    @Test
+    @DisplayName("Testing the distributions of the generator")
+    @Tag("DatasetGenerator")
+    void distributionTesting() {
+        DatasetGenerator generator = new DatasetGenerator(11).withTags(50, 1.0, 3).withDescriptions(0.5, 100, 0);
+        ToDoList tdl = generator.generate(20_000);
+        List<todoapp.todo.Tag> tags = generator.getTags();
+
+        int tagCount = 0;
+        int described = 0;
+        for (ToDo todo : tdl.getData()) {
+            tagCount += todo.getTags().size();
+            if (todo.getDescription() != null) {
+                described++;
+                assertEquals(100, todo.getDescription().length());
+            }
+        }
+        assertEquals(true, Math.abs(described - 10_000) < 500);
+        assertEquals(true, tagCount > 2 * 20_000);
+        int top = tdl.findByTag(tags.get(0)).size();
+        int tenth = tdl.findByTag(tags.get(9)).size();
+        int last = tdl.findByTag(tags.get(49)).size();
+        assertEquals(true, top > 5 * tenth);
+        assertEquals(true, tenth > last);
+
+        assertThrows(IllegalArgumentException.class, () -> generator.withTags(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> generator.withDescriptions(1.5, 10, 1));
+        assertThrows(NullPointerException.class, () -> generator.withCreations(null, Duration.ZERO));
+    }
+
+    /**
+     * Method to test that the load harness runs every operation of the mix
+     * and reports them.
+     */
+    @Test
+    @DisplayName("Testing a short run of the load harness")
+    @Tag("LoadHarness")
+    void harnessTesting() {
+        LoadHarness harness = new LoadHarness(new DatasetGenerator(3), 5,
+                LoadHarness.parseMix("GET=10,FIND_BY_TAG=5,SEARCH=5,NEWEST=5,EDIT_TITLE=5,EDIT_DESCRIPTION=5,"
+                        + "EDIT_TAGS=5,ADD=5,REMOVE=5,BACKUP=1"));
+        try {
+            LoadHarness.Report report = harness.run(1000, 100, 5000, tempDir);
+            assertEquals(5000, report.getCount());
+            for (LoadHarness.Operation op : LoadHarness.Operation.values()) {
+                assertEquals(true, report.getCount(op) > 0);
+                assertEquals(true, report.percentile(op, 50) <= report.percentile(op, 99));
+            }
+            assertEquals(true, report.getFinalSize() > 0);
+            assertEquals(true, DifferentialBackup.restore(tempDir).size() > 0);
+            assertEquals(true, report.toString().contains("BACKUP"));
+
+            LoadHarness.Report drained = new LoadHarness(new DatasetGenerator(3), 5, LoadHarness.parseMix("REMOVE=1"))
+                    .run(10, 0, 100, tempDir.resolve("drained"));
+            assertEquals(true, drained.getCount(LoadHarness.Operation.ADD) > 0);
+            assertEquals(100, drained.getCount(LoadHarness.Operation.REMOVE)
+                    + drained.getCount(LoadHarness.Operation.ADD));
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> LoadHarness.parseMix("GET"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LoadHarness(new DatasetGenerator(3), 5, LoadHarness.parseMix("GET=0")));
+    }
+
+}
@@ -0,0 +1,184 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import todoapp.exceptions.BackupFailedException;
+import todoapp.todo.Tag.Color;
+
+class DifferentialBackupTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test that the deltas hold only the changes, that a full
+     * backup follows every chain and that the restore chains base and deltas.
+     */
+    @Test
+    @DisplayName("Testing the chain of differential backups")
+    @Tag("DifferentialBackup")
+    void chainTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("work", Color.RED);
+            for (int i = 0; i < 1000; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, "Description " + i));
+            }
+            DifferentialBackup backup = new DifferentialBackup(tdl, tempDir, 3);
+            assertEquals(true, backup.prepare().isFull());
+            backup.backup();
+            assertEquals(0, backup.getChangedCount());
+            long fullSize = Files.size(DifferentialBackup.fullFile(tempDir, 1));
+
+            for (int k = 1; k <= 3; k++) {
+                List<ToDo> oldest = tdl.oldest(100).subList(10 * k, 10 * k + 3);
+                tdl.modifyToDoTitle(oldest.get(0), "Changed " + k);
+                tdl.addToDoTag(oldest.get(1), work);
+                tdl.removeToDo(oldest.get(2));
+                tdl.addToDo(new ToDo("Added " + k, null));
+
+                DifferentialBackup.Plan plan = backup.prepare();
+                assertEquals(false, plan.isFull());
+                assertEquals(4, plan.size());
+                backup.write(plan);
+                assertEquals(true, Files.size(DifferentialBackup.deltaFile(tempDir, 1, k)) * 50 < fullSize);
+                assertSameList(tdl, DifferentialBackup.restore(tempDir));
+            }
+
+            tdl.modifyToDoDescription(tdl.newest(1).get(0), "Last");
+            assertEquals(true, backup.prepare().isFull());
+            backup.backup();
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertEquals(List.of("full-2.bak"),
+                        files.map(p -> p.getFileName().toString()).collect(Collectors.toList()));
+            }
+            assertSameList(tdl, DifferentialBackup.restore(tempDir));
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that the changes done while a backup is written are
+     * kept for the following one.
+     */
+    @Test
+    @DisplayName("Testing the changes done during a backup")
+    @Tag("DifferentialBackup")
+    void concurrentChangeTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            for (int i = 0; i < 100; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, null));
+            }
+            DifferentialBackup backup = new DifferentialBackup(tdl, tempDir, DifferentialBackup.DEFAULT_FULL_EVERY);
+            assertThrows(BackupFailedException.class, () -> DifferentialBackup.restore(tempDir));
+            backup.backup();
+
+            ToDo td = tdl.oldest(1).get(0);
+            tdl.modifyToDoTitle(td, "First");
+            DifferentialBackup.Plan plan = backup.prepare();
+            tdl.modifyToDoTitle(td.getId(), "Second");
+            backup.write(plan);
+            assertEquals(1, backup.getChangedCount());
+            assertEquals("First", DifferentialBackup.restore(tempDir).get(td.getId()).getTitle());
+
+            backup.backup();
+            assertEquals(0, backup.getChangedCount());
+            assertEquals("Second", DifferentialBackup.restore(tempDir).get(td.getId()).getTitle());
+
+            backup.stop();
+            tdl.modifyToDoTitle(td.getId(), "Third");
+            assertEquals(0, backup.getChangedCount());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that a plan written after a newer one is refused, and
+     * that the newer versions stay in the backup.
+     */
+    @Test
+    @DisplayName("Testing the plans written out of order")
+    @Tag("DifferentialBackup")
+    void outOfOrderTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            for (int i = 0; i < 100; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, null));
+            }
+            DifferentialBackup backup = new DifferentialBackup(tdl, tempDir, DifferentialBackup.DEFAULT_FULL_EVERY);
+            backup.backup();
+
+            ToDo td = tdl.oldest(1).get(0);
+            tdl.modifyToDoTitle(td, "v1");
+            DifferentialBackup.Plan older = backup.prepare();
+            tdl.modifyToDoTitle(td.getId(), "v2");
+            DifferentialBackup.Plan newer = backup.prepare();
+            backup.write(newer);
+            assertThrows(BackupFailedException.class, () -> backup.write(older));
+            assertEquals("v2", DifferentialBackup.restore(tempDir).get(td.getId()).getTitle());
+            assertEquals(0, backup.getChangedCount());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that a delta prepared before a full backup is refused
+     * once the full backup is written.
+     */
+    @Test
+    @DisplayName("Testing a delta written after a newer full backup")
+    @Tag("DifferentialBackup")
+    void staleDeltaTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            for (int i = 0; i < 100; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, null));
+            }
+            DifferentialBackup backup = new DifferentialBackup(tdl, tempDir, DifferentialBackup.DEFAULT_FULL_EVERY);
+            backup.backup();
+
+            ToDo td = tdl.oldest(1).get(0);
+            tdl.modifyToDoTitle(td, "v1");
+            backup.backup();
+            tdl.modifyToDoTitle(td.getId(), "v2");
+            DifferentialBackup.Plan delta = backup.prepare();
+            assertEquals(false, delta.isFull());
+            tdl.modifyToDoTitle(td.getId(), "v3");
+            for (ToDo other : tdl.newest(60)) {
+                tdl.modifyToDoDescription(other.getId(), "Changed");
+            }
+            DifferentialBackup.Plan full = backup.prepare();
+            assertEquals(true, full.isFull());
+            backup.write(full);
+            assertThrows(BackupFailedException.class, () -> backup.write(delta));
+            assertEquals("v3", DifferentialBackup.restore(tempDir).get(td.getId()).getTitle());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Check that two lists have the same ToDos.
+     */
+    private static void assertSameList(ToDoList expected, ToDoList actual) {
+        assertEquals(expected.size(), actual.size());
+        for (ToDo td : expected.getData()) {
+            assertEquals(td, actual.get(td.getId()));
+        }
+    }
+
+}
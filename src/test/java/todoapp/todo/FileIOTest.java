@@ -5,11 +5,22 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.io.Reader;
+import java.util.stream.Stream;
 import java.util.List;
+import java.util.Set;
 
 class FileIOTest {
     
@@ -93,4 +104,165 @@ class FileIOTest {
         }
     }
 
+    /**
+     * Method to test the saveAtomically method, and the verification of the
+     * checksum by load and newReader.
+     */
+    @Test
+    @DisplayName("Testing saveAtomically method using tempDir temporary directory")
+    @Tag("FileIO")
+    void saveAtomicallyTesting() {
+        Path path = tempDir.resolve("Test.txt");
+        file = new FileIO(path.toString());
+
+        try {
+            assertEquals(false, file.saveAtomically("Test data"));
+            assertEquals(false, file.alreadyExist());
+
+            file.create();
+            assertEquals(true, file.saveAtomically("Old data"));
+            assertEquals(true, file.saveAtomically("Test data"));
+            assertEquals("Test data", file.load());
+            assertEquals(9 + FileIO.TRAILER_SIZE, Files.size(path));
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertEquals(1, files.count());
+            }
+
+            assertThrows(IOException.class, () -> file.writeAtomically(out -> {
+                out.write("Partial data");
+                throw new IOException("Failure");
+            }));
+            assertEquals("Test data", file.load());
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertEquals(1, files.count());
+            }
+
+            file.saveAtomically("");
+            assertEquals("", file.load());
+        } catch (IOException ioe) {
+            fail("Should not be thrown!", ioe);
+        }
+
+        assertThrows(IOException.class, () -> {
+            file.saveAtomically("Test data");
+            byte[] bytes = Files.readAllBytes(path);
+            bytes[2] = 'X';
+            Files.write(path, bytes);
+            file.load();
+        });
+        assertThrows(IOException.class, () -> {
+            try (Reader in = file.newReader()) {
+                while (in.read() >= 0) {
+                }
+            }
+        });
+    }
+
+    /**
+     * Method to test that saveAtomically keeps the permissions of the file.
+     */
+    @Test
+    @DisplayName("Testing the permissions kept by saveAtomically")
+    @Tag("FileIO")
+    void permissionsTesting() {
+        Path path = tempDir.resolve("Test.txt");
+        assumeTrue(path.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        file = new FileIO(path.toString());
+
+        try {
+            file.create();
+            Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r--r--");
+            Files.setPosixFilePermissions(path, permissions);
+            assertEquals(true, file.saveAtomically("Test data"));
+            assertEquals(permissions, Files.getPosixFilePermissions(path));
+
+            permissions = PosixFilePermissions.fromString("rw-rw----");
+            Files.setPosixFilePermissions(path, permissions);
+            file.writeAtomically(out -> out.write("Other data"), true);
+            assertEquals(permissions, Files.getPosixFilePermissions(path));
+            assertEquals("Other data", file.load());
+        } catch (IOException ioe) {
+            fail("Should not be thrown!", ioe);
+        }
+    }
+
+    /**
+     * Method to test that load, lines and map keep the content exactly, in
+     * the charset specified.
+     */
+    @Test
+    @DisplayName("Testing load, lines and map methods using tempDir temporary directory")
+    @Tag("FileIO")
+    void exactContentTesting() {
+        Path path = tempDir.resolve("Test.txt");
+        file = new FileIO(path.toString());
+        String longLine = "x".repeat(200000);
+        String text = "First line\r\nSecond \u00e8 line\n\n" + longLine + "\nLast line without break";
+
+        try {
+            Files.writeString(path, text, StandardCharsets.ISO_8859_1);
+            assertEquals(text, file.load(StandardCharsets.ISO_8859_1));
+            assertThrows(IOException.class, () -> file.load());
+
+            Files.writeString(path, text, StandardCharsets.UTF_8);
+            assertEquals(text, file.load());
+
+            List<String> lines = new ArrayList<String>();
+            try (FileIO.LineIterator it = file.lines(StandardCharsets.UTF_8)) {
+                it.forEachRemaining(lines::add);
+            }
+            assertEquals(List.of("First line\r\n", "Second \u00e8 line\n", "\n", longLine + "\n",
+                    "Last line without break"), lines);
+
+            file.saveAtomically(text);
+            assertEquals(text, file.load());
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, file.dataLength());
+            ByteBuffer mapped = file.map();
+            byte[] bytes = new byte[mapped.remaining()];
+            mapped.get(bytes);
+            assertEquals(text, new String(bytes, StandardCharsets.UTF_8));
+            try (FileIO.LineIterator it = file.lines(StandardCharsets.UTF_8)) {
+                StringBuilder joined = new StringBuilder();
+                it.forEachRemaining(joined::append);
+                assertEquals(text, joined.toString());
+            }
+
+            Files.writeString(path, "");
+            assertEquals("", file.load());
+            try (FileIO.LineIterator it = file.lines(StandardCharsets.UTF_8)) {
+                assertEquals(false, it.hasNext());
+            }
+        } catch (IOException ioe) {
+            fail("Should not be thrown!", ioe);
+        }
+    }
+
+    /**
+     * Method to test the files larger than 2 GB, written sparse so that they
+     * don't take the space.
+     */
+    @Test
+    @DisplayName("Testing the methods on a file larger than 2 GB")
+    @Tag("FileIO")
+    void largeFileTesting() {
+        Path path = tempDir.resolve("Large.txt");
+        file = new FileIO(path.toString());
+        long size = (3L << 30) + 10;
+
+        try {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                    StandardOpenOption.SPARSE)) {
+                ch.write(ByteBuffer.wrap("last line\n".getBytes(StandardCharsets.UTF_8)), size - 10);
+            }
+            assertEquals(size, file.dataLength());
+            ByteBuffer tail = file.map(size - 10, 10);
+            assertEquals('l', tail.get(0));
+            assertEquals('\n', tail.get(9));
+            assertThrows(IOException.class, () -> file.map());
+            assertThrows(IOException.class, () -> file.load());
+        } catch (IOException ioe) {
+            fail("Should not be thrown!", ioe);
+        }
+    }
+
 }
@@ -0,0 +1,240 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import todoapp.todo.Tag.Color;
+
+class JournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test that every kind of change is replayed when the journal
+     * is opened again, and that a change costs a small record.
+     */
+    @Test
+    @DisplayName("Testing the replay of the journal")
+    @Tag("Journal")
+    void replayTesting() {
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("work", Color.RED);
+            todoapp.todo.Tag home = new todoapp.todo.Tag("casa \u00e8", Color.GREEN);
+            List<ToDo> expected;
+            ToDo first;
+            try (Journal journal = Journal.open(tempDir)) {
+                ToDoList tdl = journal.getList();
+                for (int i = 0; i < 100; i++) {
+                    tdl.addToDo(new ToDo("ToDo " + i, i % 2 == 0 ? null : "Description " + i, work));
+                }
+                first = tdl.newest(100).get(99);
+                ToDo second = tdl.newest(100).get(98);
+                tdl.removeToDo(tdl.newest(1).get(0));
+                tdl.addToDoTag(first.getId(), home);
+                tdl.deleteToDoTag(first.getId(), work);
+                tdl.modifyToDoDescription(first.getId(), null);
+
+                journal.sync();
+                long size = Files.size(Journal.journalFile(tempDir, 0));
+                tdl.modifyToDoTitle(first.getId(), "New title");
+                journal.sync();
+                assertEquals(true, Files.size(Journal.journalFile(tempDir, 0)) - size < 24);
+
+                tdl.applyBatch(List.of(Mutation.description(second.getId(), "Batch"), Mutation.remove(first.getId()),
+                        Mutation.add(first)));
+                expected = tdl.snapshot();
+            }
+
+            try (Journal journal = Journal.open(tempDir)) {
+                ToDoList tdl = journal.getList();
+                assertEquals(expected.size(), tdl.size());
+                for (ToDo td : expected) {
+                    assertEquals(td, tdl.get(td.getId()));
+                    assertEquals(td.getCreation(), tdl.get(td.getId()).getCreation());
+                }
+                assertEquals(99, tdl.findByTag(work).size());
+                assertEquals("ToDo 0", tdl.get(first.getId()).getTitle());
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that a record cut by a crash at the end of the journal
+     * is dropped, and that a corrupted journal is refused.
+     */
+    @Test
+    @DisplayName("Testing the open of a damaged journal")
+    @Tag("Journal")
+    void damagedTesting() {
+        Path file = Journal.journalFile(tempDir, 0);
+        try {
+            long size;
+            try (Journal journal = Journal.open(tempDir)) {
+                journal.getList().addToDo(new ToDo("Kept", null));
+                journal.sync();
+                size = Files.size(file);
+                journal.getList().addToDo(new ToDo("Cut", null));
+            }
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(Files.size(file) - 3);
+            }
+
+            try (Journal journal = Journal.open(tempDir)) {
+                assertEquals(1, journal.getList().size());
+                assertEquals("Kept", journal.getList().newest(1).get(0).getTitle());
+                assertEquals(size, Files.size(file));
+                journal.getList().addToDo(new ToDo("After", null));
+            }
+            try (Journal journal = Journal.open(tempDir)) {
+                assertEquals(2, journal.getList().size());
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        assertThrows(IOException.class, () -> {
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[0] = 'X';
+            Files.write(file, bytes);
+            Journal.open(tempDir);
+        });
+    }
+
+    /**
+     * Method to test that the compaction writes a snapshot, deletes the
+     * older files and keeps the list.
+     */
+    @Test
+    @DisplayName("Testing the compaction of the journal")
+    @Tag("Journal")
+    void compactionTesting() {
+        try {
+            List<ToDo> expected;
+            try (Journal journal = Journal.open(tempDir, 4096)) {
+                ToDoList tdl = journal.getList();
+                for (int i = 0; i < 1000; i++) {
+                    tdl.addToDo(new ToDo("ToDo " + i, "Description " + i));
+                }
+                assertEquals(true, journal.getGeneration() > 0);
+                journal.compact().get();
+                tdl.modifyToDoTitle(tdl.newest(1).get(0), "After the compaction");
+                expected = tdl.snapshot();
+
+                long generation = journal.getGeneration();
+                try (Stream<Path> files = Files.list(tempDir)) {
+                    assertEquals(List.of("journal-" + generation + ".tdj", "snapshot-" + generation + ".tdsn"),
+                            files.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList()));
+                }
+                assertEquals(true, Files.size(Journal.journalFile(tempDir, generation)) < 64);
+            }
+
+            try (Journal journal = Journal.open(tempDir)) {
+                assertEquals(expected.size(), journal.getList().size());
+                for (ToDo td : expected) {
+                    assertEquals(td, journal.getList().get(td.getId()));
+                }
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that with every durability the records reach the disk
+     * by sync(), and the forces are counted.
+     */
+    @ParameterizedTest
+    @EnumSource(Journal.Durability.class)
+    @DisplayName("Testing the durability modes of the journal")
+    @Tag("Journal")
+    void durabilityTesting(Journal.Durability durability) {
+        try {
+            try (Journal journal = Journal.open(tempDir, durability, Duration.ofMillis(50),
+                    Journal.DEFAULT_COMPACTION_THRESHOLD)) {
+                assertEquals(durability, journal.getDurability());
+                for (int i = 0; i < 200; i++) {
+                    journal.getList().addToDo(new ToDo("ToDo " + i, null));
+                }
+                journal.sync();
+
+                Journal.Metrics metrics = journal.getMetrics();
+                assertEquals(200, metrics.getRecords());
+                assertEquals(true, metrics.getMaxSyncLatency().compareTo(metrics.getAverageSyncLatency()) >= 0);
+                switch (durability) {
+                    case SYNC:
+                        assertEquals(200, metrics.getSyncs());
+                        assertEquals(1, metrics.getMaxBatchSize());
+                        break;
+                    case GROUP_COMMIT:
+                        assertEquals(true, metrics.getSyncs() < 200);
+                        assertEquals(true, metrics.getMaxBatchSize() > 1);
+                        break;
+                    default:
+                        assertEquals(1, metrics.getSyncs());
+                        assertEquals(200.0, metrics.getAverageBatchSize());
+                }
+
+                journal.sync();
+                assertEquals(metrics.getSyncs(), journal.getMetrics().getSyncs());
+            }
+
+            try (Journal journal = Journal.open(tempDir)) {
+                assertEquals(200, journal.getList().size());
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that an interruption of the writer thread stops the
+     * journal with an error, instead of leaving sync() and close() waiting.
+     */
+    @Test
+    @DisplayName("Testing the interruption of the journal writer")
+    @Tag("Journal")
+    void interruptedWriterTesting() {
+        try {
+            Journal journal = Journal.open(tempDir, Journal.Durability.GROUP_COMMIT, Duration.ofSeconds(30),
+                    Journal.DEFAULT_COMPACTION_THRESHOLD);
+            journal.getList().addToDo(new ToDo("Forced", null));
+            journal.sync();
+            for (Thread t : Thread.getAllStackTraces().keySet()) {
+                if (t.getName().equals("journal-writer") && t.isAlive()) {
+                    while (t.getState() != Thread.State.WAITING) {
+                        Thread.sleep(1);
+                    }
+                    t.interrupt();
+                    t.join();
+                }
+            }
+            journal.getList().addToDo(new ToDo("Pending", null));
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                assertThrows(IOException.class, () -> journal.sync());
+                assertThrows(IOException.class, () -> journal.close());
+            });
+            assertEquals(true, journal.getFailure() != null);
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+}
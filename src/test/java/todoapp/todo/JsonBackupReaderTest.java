@@ -0,0 +1,140 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import todoapp.exceptions.BackupFailedException;
+import todoapp.todo.Tag.Color;
+
+class JsonBackupReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test that a backup is restored with the same ToDos.
+     */
+    @Test
+    @DisplayName("Testing the restore of a backup written by JsonBackupWriter")
+    @Tag("JsonBackupReader")
+    void roundTripTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("work \"now\"", Color.RED);
+            todoapp.todo.Tag home = new todoapp.todo.Tag("home", Color.GREEN);
+            String longText = "x\"\\\n\u00e8".repeat(20000);
+            for (int i = 0; i < 3000; i++) {
+                ToDo td = new ToDo("ToDo " + i, i == 7 ? longText : (i % 3 == 0 ? null : "Line 1\nLine 2 " + i));
+                if (i % 2 == 0) {
+                    td = td.withTag(work);
+                }
+                if (i % 5 == 0) {
+                    td = td.withTag(home);
+                }
+                tdl.addToDo(td);
+            }
+            Path file = tempDir.resolve("backup.bak");
+            Backup.backupData(tdl, file.toString());
+
+            List<Integer> steps = new ArrayList<Integer>();
+            ToDoList restored = Backup.restoreData(file.toString(), (done, total) -> {
+                assertEquals(3000, total);
+                steps.add(done);
+            });
+            assertEquals(List.of(1024, 2048, 3000), steps);
+            assertEquals(tdl.size(), restored.size());
+            for (ToDo td : tdl.getData()) {
+                assertEquals(td, restored.get(td.getId()));
+            }
+            assertEquals(1500, restored.findByTag(work).size());
+
+            Path plain = tempDir.resolve("plain.json");
+            try (FileChannel ch = FileChannel.open(plain, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                new JsonBackupWriter(ch).write(tdl.getData());
+            }
+            try (FileChannel ch = FileChannel.open(plain)) {
+                assertEquals(3000, new JsonBackupReader(ch).read(null).size());
+            }
+
+            long maxId = tdl.stream().mapToLong(ToDo::getId).max().getAsLong();
+            assertEquals(true, new ToDo("After the restore", null).getId() > maxId);
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that invalid documents are refused.
+     */
+    @Test
+    @DisplayName("Testing the restore of invalid backups")
+    @Tag("JsonBackupReader")
+    void invalidTesting() {
+        String header = "{\"format\":\"todoapp-backup\",\"version\":1,";
+        String todo = "{\"id\":5,\"title\":\"T\",\"description\":null,\"date\":\"2021-01-31T10:00\",\"tags\":[]}";
+
+        try {
+            ToDoList tdl = read(header + "\"extra\":{\"a\":[1,-2.5e3,true,null]},\"todos\":[\n" + todo + "\n]}\n");
+            assertEquals(1, tdl.size());
+            assertEquals("2021-01-31T10:00", tdl.get(5).getCreation().toString());
+            assertEquals(0, read(header + "\"count\":0,\"todos\":[]}").size());
+        } catch (IOException ioe) {
+            fail("Should not be thrown!", ioe);
+        }
+
+        assertThrows(IOException.class, () -> read(header + "\"count\":2,\"todos\":[" + todo + "]}"));
+        assertThrows(IOException.class, () -> read(header + "\"todos\":[" + todo + "," + todo + "]}"));
+        assertThrows(IOException.class, () -> read(header + "\"todos\":[" + todo));
+        assertThrows(IOException.class, () -> read(header + "\"todos\":[" + todo.replace("\"T\"", "\"\"") + "]}"));
+        assertThrows(IOException.class, () -> read(header + "\"todos\":[" + todo.replace("[]", "[{\"text\":\"a\",\"color\":\"PINK\"}]") + "]}"));
+        assertThrows(IOException.class, () -> read("{\"format\":\"other\",\"todos\":[]}"));
+        assertThrows(IOException.class, () -> read(header + "\"version\":2,\"todos\":[]}"));
+        assertThrows(IOException.class, () -> read(header + "\"todos\":[]} trailing"));
+        IOException ioe = assertThrows(IOException.class, () -> read(header + "\"todos\":[\n\n" + todo.replace("2021", "20x1") + "]}"));
+        assertEquals(true, ioe.getMessage().contains("line 3"));
+
+        Path empty = tempDir.resolve("empty.bak");
+        assertThrows(BackupFailedException.class, () -> Backup.restoreData(empty.toString(), null));
+        assertThrows(BackupFailedException.class, () -> {
+            Files.writeString(empty, "");
+            Backup.restoreData(empty.toString(), null);
+        });
+    }
+
+    /**
+     * RETURN the list restored from a document.
+     */
+    private static ToDoList read(String document) throws IOException {
+        return new JsonBackupReader(new StringReader(document)).read(null);
+    }
+
+    /**
+     * Method to test that an empty list is restored.
+     */
+    @Test
+    @DisplayName("Testing the restore of an empty list")
+    @Tag("JsonBackupReader")
+    void emptyListTesting() {
+        try {
+            StringWriter out = new StringWriter();
+            new JsonBackupWriter(out).write(new ToDoList().getData());
+            assertEquals(0, read(out.toString()).size());
+        } catch (IOException ioe) {
+            fail("Should not be thrown!", ioe);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import todoapp.todo.Tag.Color;
+
+class JsonBackupWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test the escaping of the strings.
+     */
+    @Test
+    @DisplayName("Testing the escaping of titles, descriptions and tags")
+    @Tag("JsonBackupWriter")
+    void escapeTesting() {
+        StringWriter out = new StringWriter();
+        try {
+            ToDo td = new ToDo("Say \"hi\"", "Line 1\nLine 2\t\\ \u0001 \u2028 \u00e8",
+                    new todoapp.todo.Tag("a\"b", Color.PURPLE));
+            new JsonBackupWriter(out).write(List.of(td));
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        String json = out.toString();
+        assertEquals(true, json.startsWith("{\"format\":\"todoapp-backup\",\"version\":1,\"count\":1,\"todos\":[\n"));
+        assertEquals(true, json.contains("\"title\":\"Say \\\"hi\\\"\""));
+        assertEquals(true, json.contains("\"description\":\"Line 1\\nLine 2\\t\\\\ \\u0001 \\u2028 \u00e8\""));
+        assertEquals(true, json.contains("\"tags\":[{\"text\":\"a\\\"b\",\"color\":\"PURPLE\"}]"));
+        assertEquals(true, json.endsWith("\n]}\n"));
+        assertEquals(3, json.split("\n").length);
+    }
+
+    /**
+     * Method to test the backup of a whole list through a file channel and
+     * through Backup.
+     */
+    @Test
+    @DisplayName("Testing the backup of a list to a channel and to a file")
+    @Tag("JsonBackupWriter")
+    void listTesting() {
+        ToDoList tdl = new ToDoList();
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("work", Color.RED);
+            for (int i = 0; i < 1000; i++) {
+                ToDo td = new ToDo("ToDo " + i, i % 3 == 0 ? null : "Description " + i);
+                tdl.addToDo(i % 2 == 0 ? td.withTag(work) : td);
+            }
+
+            Path channelFile = tempDir.resolve("channel.bak");
+            try (FileChannel ch = FileChannel.open(channelFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                new JsonBackupWriter(ch).write(tdl.getData());
+            }
+            Path backupFile = tempDir.resolve("backup.bak");
+            Backup.backupData(tdl, backupFile.toString());
+
+            List<String> lines = Files.readAllLines(channelFile, StandardCharsets.UTF_8);
+            try (BufferedReader in = new BufferedReader(new FileIO(backupFile.toString()).newReader())) {
+                assertEquals(lines, in.lines().collect(Collectors.toList()));
+            }
+            assertEquals(Files.size(channelFile) + FileIO.TRAILER_SIZE, Files.size(backupFile));
+            assertEquals(1002, lines.size());
+            assertEquals(true, lines.get(0).contains("\"count\":1000"));
+            assertEquals(500, lines.stream().filter(l -> l.contains("{\"text\":\"work\",\"color\":\"RED\"}")).count());
+            assertEquals(334, lines.stream().filter(l -> l.contains("\"description\":null")).count());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+        assertThrows(IllegalArgumentException.class, () -> Backup.backupData(null));
+        assertThrows(NullPointerException.class, () -> new JsonBackupWriter(new StringWriter()).write(null));
+    }
+
+}
@@ -0,0 +1,412 @@
+package todoapp.todo;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import todoapp.exceptions.BackupFailedException;
+import todoapp.exceptions.EmptyFieldException;
+
+/**
+ * This class provide the end-to-end load test of a ToDoList: it replays on a
+ * list made by a DatasetGenerator a random sequence of operations, drawn
+ * with the weights of a mix, and measures the latency of every one. The
+ * reads and the edits go through the public methods of ToDoList, the
+ * backups are the differential backups of the list, in a directory. The
+ * sequence depends only on the seed, so two runs with the same seed and
+ * mix replay the same operations and can be compared.
+ */
+final class LoadHarness {
+
+	/**
+	 * The operations of a load test, with their default weight.
+	 */
+	enum Operation {
+		GET(300),
+		FIND_BY_TAG(100),
+		SEARCH(100),
+		NEWEST(100),
+		EDIT_TITLE(100),
+		EDIT_DESCRIPTION(100),
+		EDIT_TAGS(100),
+		ADD(50),
+		REMOVE(49),
+		BACKUP(1);
+
+		private final int defaultWeight;
+
+		Operation(int defaultWeight) {
+			this.defaultWeight = defaultWeight;
+		}
+
+		/**
+		 * @return the weight of the operation in the default mix.
+		 */
+		int getDefaultWeight() {
+			return this.defaultWeight;
+		}
+	}
+
+	private static final int RESULTS = 20;
+
+	/**
+	 * The object LoadHarness implementation is done with:
+	 * - the generator of the list and of the arguments of the operations
+	 * - the seed of the sequence of operations
+	 * - the operations of the mix and the cumulative sums of their weights
+	 *
+	 * INVARIANT: operations and cumulative have the same length, cumulative
+	 * is strictly increasing and its last value is the total weight.
+	 */
+	private final DatasetGenerator generator;
+	private final long seed;
+	private final Operation[] operations;
+	private final int[] cumulative;
+
+	/**
+	 * Constructor that creates a load test with the generator, the seed and
+	 * the mix specified.
+	 * @param generator: the generator of the list. REQUIRED not null.
+	 * @param seed: the seed of the sequence of operations.
+	 * @param mix: the weight of every operation, a missing one has weight 0.
+	 * REQUIRED not null, with weights not negative and not all 0.
+	 * @throws NullPointerException when generator or mix is null.
+	 * @throws IllegalArgumentException when a weight is negative or all are
+	 * 0.
+	 */
+	LoadHarness(DatasetGenerator generator, long seed, Map<Operation, Integer> mix) {
+		if (generator == null || mix == null) {
+			throw new NullPointerException();
+		}
+
+		this.generator = generator;
+		this.seed = seed;
+		int n = 0;
+		Operation[] ops = new Operation[Operation.values().length];
+		int[] sums = new int[ops.length];
+		int total = 0;
+		for (Operation op : Operation.values()) {
+			int weight = mix.getOrDefault(op, 0);
+			if (weight < 0) {
+				throw new IllegalArgumentException("The weight of " + op + " can't be negative.");
+			} else if (weight > 0) {
+				total += weight;
+				ops[n] = op;
+				sums[n] = total;
+				n++;
+			}
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("The mix needs at least one operation.");
+		}
+		this.operations = Arrays.copyOf(ops, n);
+		this.cumulative = Arrays.copyOf(sums, n);
+	}
+
+	/**
+	 * RETURN the default mix: mostly reads, a third of edits and a backup
+	 * every thousand operations.
+	 */
+	static Map<Operation, Integer> defaultMix() {
+		Map<Operation, Integer> res = new EnumMap<Operation, Integer>(Operation.class);
+		for (Operation op : Operation.values()) {
+			res.put(op, op.getDefaultWeight());
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN the mix written as "OPERATION=weight,...", e.g. "GET=9,BACKUP=1".
+	 * @param mix: the mix. REQUIRED not null.
+	 * @throws NullPointerException when mix is null.
+	 * @throws IllegalArgumentException when mix is malformed.
+	 */
+	static Map<Operation, Integer> parseMix(String mix) {
+		if (mix == null) {
+			throw new NullPointerException();
+		}
+		Map<Operation, Integer> res = new EnumMap<Operation, Integer>(Operation.class);
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split("=");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Malformed mix entry: " + entry);
+			}
+			res.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+		}
+		return res;
+	}
+
+	/**
+	 * RETURN the report of a load test: generates a list of size ToDos,
+	 * writes its first full backup in directory, then runs warmup operations
+	 * without measuring them and operations measured ones.
+	 * @param size: the size of the list. REQUIRED not negative.
+	 * @param warmup: the number of operations not measured. REQUIRED not
+	 * negative.
+	 * @param operationCount: the number of operations measured. REQUIRED
+	 * not negative.
+	 * @param directory: the directory of the backups. REQUIRED not null.
+	 * @return the report of the operations measured.
+	 * @throws NullPointerException when directory is null.
+	 * @throws BackupFailedException when a backup fails.
+	 */
+	Report run(int size, int warmup, int operationCount, Path directory) throws BackupFailedException {
+		if (directory == null) {
+			throw new NullPointerException();
+		}
+
+		long start = System.nanoTime();
+		ToDoList list = this.generator.generate(size);
+		long generation = System.nanoTime() - start;
+
+		DifferentialBackup backup = new DifferentialBackup(list, directory, DifferentialBackup.DEFAULT_FULL_EVERY);
+		start = System.nanoTime();
+		backup.backup();
+		long firstBackup = System.nanoTime() - start;
+
+		Run run = new Run(list, backup, new SplittableRandom(this.seed));
+		for (int i = 0; i < warmup; i++) {
+			run.execute(this.next(run.random));
+		}
+
+		long[][] latencies = new long[Operation.values().length][];
+		int[] counts = new int[latencies.length];
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new long[16];
+		}
+		start = System.nanoTime();
+		for (int i = 0; i < operationCount; i++) {
+			Operation drawn = this.next(run.random);
+			long t = System.nanoTime();
+			Operation op = run.execute(drawn);
+			long latency = System.nanoTime() - t;
+			int k = op.ordinal();
+			if (counts[k] == latencies[k].length) {
+				latencies[k] = Arrays.copyOf(latencies[k], 2 * counts[k]);
+			}
+			latencies[k][counts[k]++] = latency;
+		}
+		long elapsed = System.nanoTime() - start;
+		backup.stop();
+
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = Arrays.copyOf(latencies[i], counts[i]);
+		}
+		return new Report(size, list.size(), generation, firstBackup, elapsed, latencies);
+	}
+
+	/**
+	 * RETURN an operation drawn with the weights of the mix.
+	 */
+	private Operation next(SplittableRandom random) {
+		int pos = Arrays.binarySearch(this.cumulative, random.nextInt(this.cumulative[this.cumulative.length - 1]) + 1);
+		return this.operations[pos >= 0 ? pos : -pos - 1];
+	}
+
+	/**
+	 * This class holds the state of a load test while it runs: the list, its
+	 * backups, the random source and the identifiers in the list, to pick a
+	 * ToDo in constant time. A removal swaps the last identifier in place of
+	 * the one removed.
+	 */
+	private final class Run {
+
+		private final ToDoList list;
+		private final DifferentialBackup backup;
+		private final SplittableRandom random;
+		private long[] ids;
+		private int count;
+
+		private Run(ToDoList list, DifferentialBackup backup, SplittableRandom random) {
+			this.list = list;
+			this.backup = backup;
+			this.random = random;
+			this.ids = new long[Math.max(16, list.size())];
+			for (ToDo todo : list.getData()) {
+				this.ids[this.count++] = todo.getId();
+			}
+		}
+
+		/**
+		 * MODIFY the list by executing the operation op on it, or by adding
+		 * a ToDo when op needs one and the list is empty.
+		 * @return the operation executed.
+		 */
+		private Operation execute(Operation op) throws BackupFailedException {
+			DatasetGenerator gen = LoadHarness.this.generator;
+			if (this.count == 0 && op != Operation.BACKUP && op != Operation.NEWEST && op != Operation.SEARCH
+					&& op != Operation.FIND_BY_TAG) {
+				op = Operation.ADD;
+			}
+			try {
+				switch (op) {
+				case GET:
+					this.list.get(this.pick());
+					break;
+				case FIND_BY_TAG:
+					this.list.findByTag(gen.tag(this.random));
+					break;
+				case SEARCH:
+					this.list.search(gen.word(this.random), RESULTS);
+					break;
+				case NEWEST:
+					this.list.newest(RESULTS);
+					break;
+				case EDIT_TITLE:
+					this.list.modifyToDoTitle(this.pick(), gen.title(this.random));
+					break;
+				case EDIT_DESCRIPTION:
+					this.list.modifyToDoDescription(this.pick(), gen.description(this.random));
+					break;
+				case EDIT_TAGS:
+					long id = this.pick();
+					Tag tag = gen.tag(this.random);
+					if (this.list.get(id).getTags().contains(tag)) {
+						this.list.deleteToDoTag(id, tag);
+					} else {
+						this.list.addToDoTag(id, tag);
+					}
+					break;
+				case ADD:
+					ToDo todo = new ToDo(gen.title(this.random), gen.description(this.random),
+							gen.tags(this.random));
+					this.list.addToDo(todo);
+					if (this.count == this.ids.length) {
+						this.ids = Arrays.copyOf(this.ids, 2 * this.count);
+					}
+					this.ids[this.count++] = todo.getId();
+					break;
+				case REMOVE:
+					int pos = this.random.nextInt(this.count);
+					long removed = this.ids[pos];
+					this.ids[pos] = this.ids[--this.count];
+					this.list.removeToDo(removed);
+					break;
+				case BACKUP:
+					this.backup.backup();
+					break;
+				}
+			} catch (EmptyFieldException efe) {
+				throw new AssertionError(efe);
+			}
+			return op;
+		}
+
+		/**
+		 * RETURN the identifier of a ToDo of the list, drawn uniformly.
+		 */
+		private long pick() {
+			return this.ids[this.random.nextInt(this.count)];
+		}
+	}
+
+	/**
+	 * This class holds the results of a load test: the time to generate the
+	 * list and to write its first backup, the throughput, and the latencies
+	 * of every operation, sorted, in nanoseconds.
+	 */
+	static final class Report {
+
+		private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+		private final int initialSize;
+		private final int finalSize;
+		private final long generation;
+		private final long firstBackup;
+		private final long elapsed;
+		private final long[][] latencies;
+
+		private Report(int initialSize, int finalSize, long generation, long firstBackup, long elapsed,
+				long[][] latencies) {
+			this.initialSize = initialSize;
+			this.finalSize = finalSize;
+			this.generation = generation;
+			this.firstBackup = firstBackup;
+			this.elapsed = elapsed;
+			this.latencies = latencies;
+			for (long[] l : latencies) {
+				Arrays.sort(l);
+			}
+		}
+
+		/**
+		 * @return the size of the list at the end of the test.
+		 */
+		int getFinalSize() {
+			return this.finalSize;
+		}
+
+		/**
+		 * @return the number of operations measured.
+		 */
+		int getCount() {
+			int res = 0;
+			for (long[] l : this.latencies) {
+				res += l.length;
+			}
+			return res;
+		}
+
+		/**
+		 * @return the number of operations op measured.
+		 */
+		int getCount(Operation op) {
+			return this.latencies[op.ordinal()].length;
+		}
+
+		/**
+		 * @return the number of operations per second.
+		 */
+		double getThroughput() {
+			return this.elapsed == 0 ? 0 : this.getCount() * 1e9 / this.elapsed;
+		}
+
+		/**
+		 * RETURN the latency of op, in nanoseconds, under which fall the
+		 * percentile p of its executions, by the nearest rank.
+		 * @param p: the percentile. REQUIRED between 0 and 100.
+		 * @return the latency, 0 if op never ran.
+		 * @throws IllegalArgumentException when p is out of range.
+		 */
+		long percentile(Operation op, double p) {
+			if (p < 0 || p > 100) {
+				throw new IllegalArgumentException("A percentile is between 0 and 100.");
+			}
+			long[] l = this.latencies[op.ordinal()];
+			if (l.length == 0) {
+				return 0;
+			}
+			int rank = (int) Math.ceil(p / 100 * l.length);
+			return l[Math.max(0, rank - 1)];
+		}
+
+		/**
+		 * @return the table of the results, with latencies in microseconds.
+		 */
+		@Override
+		public String toString() {
+			StringBuilder res = new StringBuilder();
+			res.append(String.format("%,d ToDos (%,d at the end): generated in %,d ms, first backup in %,d ms%n",
+					this.initialSize, this.finalSize, this.generation / 1_000_000, this.firstBackup / 1_000_000));
+			res.append(String.format("%,d operations in %,d ms: %,.0f ops/s%n", this.getCount(),
+					this.elapsed / 1_000_000, this.getThroughput()));
+			res.append(String.format("%-16s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "p50 us",
+					"p90 us", "p99 us", "p99.9 us", "max us"));
+			for (Operation op : Operation.values()) {
+				long[] l = this.latencies[op.ordinal()];
+				if (l.length == 0) {
+					continue;
+				}
+				res.append(String.format("%-16s %10d", op, l.length));
+				for (double p : PERCENTILES) {
+					res.append(String.format(" %10.1f", this.percentile(op, p) / 1e3));
+				}
+				res.append(String.format(" %10.1f%n", l[l.length - 1] / 1e3));
+			}
+			return res.toString();
+		}
+	}
+
+}	// class LoadHarness
@@ -0,0 +1,66 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The end-to-end load tests, excluded from the default build: they run with
+ * the load profile, "mvn -B test -Pload". They are configured by the system
+ * properties:
+ * - load.sizes: the sizes of the lists, e.g. "1000,1000000"
+ * - load.seed: the seed of the lists and of the operations
+ * - load.operations, load.warmup: the operations measured and not
+ * - load.mix: the mix of operations, e.g. "GET=9,EDIT_TITLE=1"
+ * - load.tags, load.zipf, load.tagsPerToDo: the tags of the lists
+ * - load.nullDescriptions, load.descriptionLength, load.descriptionSigma:
+ * the descriptions of the lists
+ */
+@Tag("load")
+class LoadTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test the throughput and the latencies of a mixed workload
+     * on lists of growing size, printing a report for each one.
+     */
+    @Test
+    @DisplayName("Load testing of a mixed workload")
+    @Tag("LoadHarness")
+    void mixedWorkloadTesting() {
+        long seed = Long.getLong("load.seed", 42);
+        int operations = Integer.getInteger("load.operations", 100_000);
+        int warmup = Integer.getInteger("load.warmup", operations / 10);
+        String mix = System.getProperty("load.mix");
+        DatasetGenerator generator = new DatasetGenerator(seed)
+                .withTags(Integer.getInteger("load.tags", 200),
+                        Double.parseDouble(System.getProperty("load.zipf", "1.1")),
+                        Double.parseDouble(System.getProperty("load.tagsPerToDo", "2")))
+                .withDescriptions(Double.parseDouble(System.getProperty("load.nullDescriptions", "0.3")),
+                        Integer.getInteger("load.descriptionLength", 120),
+                        Double.parseDouble(System.getProperty("load.descriptionSigma", "1.0")));
+        LoadHarness harness = new LoadHarness(generator, seed,
+                mix == null ? LoadHarness.defaultMix() : LoadHarness.parseMix(mix));
+
+        try {
+            for (String size : System.getProperty("load.sizes", "1000,10000,100000").split(",")) {
+                Path directory = Files.createDirectory(tempDir.resolve("backups-" + size.trim()));
+                LoadHarness.Report report = harness.run(Integer.parseInt(size.trim()), warmup, operations,
+                        directory);
+                System.out.println(report);
+                assertEquals(operations, report.getCount());
+                assertEquals(true, report.getThroughput() > 0 || operations == 0);
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import static todoapp.todo.Query.*;
+
+import java.util.List;
+
+import todoapp.todo.Query.Order;
+import todoapp.todo.Tag.Color;
+
+class QueryTest {
+
+	private ToDoList tdl;
+	private ToDo[] tds;
+
+	/**
+	 * Create a list where the even ToDos have the tag "work", the ToDos
+	 * multiple of 3 have the tag "home" and the ToDos multiple of 5 talk about
+	 * an invoice.
+	 */
+	@BeforeEach
+	void createList() {
+		tdl = new ToDoList();
+		tds = new ToDo[30];
+		try {
+			todoapp.todo.Tag work = new todoapp.todo.Tag("work", Color.RED);
+			todoapp.todo.Tag home = new todoapp.todo.Tag("home", Color.GREEN);
+			for (int i = 0; i < tds.length; i++) {
+				ToDo td = new ToDo("ToDo " + i, i % 5 == 0 ? "Pay the invoice" : "Nothing to pay");
+				if (i % 2 == 0) {
+					td = td.withTag(work);
+				}
+				if (i % 3 == 0) {
+					td = td.withTag(home);
+				}
+				tds[i] = td;
+				tdl.addToDo(td);
+			}
+		} catch (Exception e) {
+			fail("Should not be thrown!", e);
+		}
+	}
+
+	/**
+	 * Method to test a query answered by the tag index.
+	 */
+	@Test
+	@DisplayName("Testing a query answered by the indexes")
+	@Tag("Query")
+	void indexedQueryTesting() {
+		Query q = where(tag("work")).and(color(Color.GREEN)).and(text("invoice")).orderBy(Order.CREATION_DESC);
+
+		assertEquals(List.of(tds[0]), q.run(tdl));
+		assertEquals(true, q.explain(tdl).startsWith("INDEX "));
+		assertEquals(true, q.explain(tdl).contains("FILTER text \"invoice\""));
+
+		assertEquals(List.of(tds[28], tds[26]), where(tag("work")).orderBy(Order.CREATION_DESC).limit(2).run(tdl));
+		assertEquals(List.of(tds[0], tds[6], tds[12]), where(tag("home")).and(tag("work")).orderBy(Order.CREATION_ASC).limit(3).run(tdl));
+		assertEquals(true, where(tag("missing")).run(tdl).isEmpty());
+	}
+
+	/**
+	 * Method to test the queries that need a scan, and the same queries once
+	 * the full-text index is built.
+	 */
+	@Test
+	@DisplayName("Testing the fall back to a scan")
+	@Tag("Query")
+	void scanQueryTesting() {
+		Query q = where(text("INVOICE pay")).orderBy(Order.CREATION_ASC).limit(3);
+
+		assertEquals(List.of(tds[0], tds[5], tds[10]), q.run(tdl));
+		assertEquals(true, q.explain(tdl).startsWith("SCAN creation index ascending"));
+
+		tdl.search("invoice", 1);
+		assertEquals(List.of(tds[0], tds[5], tds[10]), q.run(tdl));
+		assertEquals(true, q.explain(tdl).startsWith("INDEX text"));
+
+		Query range = where(createdAfter(tds[9].getCreation().minusNanos(1))).and(createdBefore(tds[12].getCreation()))
+				.orderBy(Order.CREATION_ASC);
+		List<ToDo> res = range.run(tdl);
+		assertEquals(true, res.contains(tds[9]) && res.contains(tds[11]) && !res.contains(tds[12]));
+		assertEquals(tds.length, Query.all().run(tdl).size());
+		assertThrows(IllegalArgumentException.class, () -> Query.all().limit(-1));
+		assertThrows(NullPointerException.class, () -> Query.where(null));
+	}
+}
@@ -0,0 +1,113 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import todoapp.todo.Tag.Color;
+
+class SegmentedStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Method to test that the segments are split by month, that a save
+     * rewrites only the segments touched and that they are read back in
+     * parallel.
+     */
+    @Test
+    @DisplayName("Testing the save and the load of the segments")
+    @Tag("SegmentedStore")
+    void segmentsTesting() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("work", Color.RED);
+            SegmentedStore store = SegmentedStore.open(tempDir, pool);
+            ToDoList tdl = store.getList();
+            assertEquals(0, tdl.size());
+            for (int i = 0; i < 2400; i++) {
+                tdl.addToDo(new ToDo((1L << 41) + i, "ToDo " + i, "Description " + i,
+                        LocalDateTime.of(2019, 1, 1, 12, 0).plusMonths(i / 100).plusMinutes(i), List.of(work)));
+            }
+            assertEquals(24, store.getDirtySegments().size());
+            assertEquals(24, store.save());
+            assertEquals(0, store.save());
+            assertEquals(true, Files.exists(SegmentedStore.segmentFile(tempDir, YearMonth.of(2020, 12))));
+
+            Path untouched = SegmentedStore.segmentFile(tempDir, YearMonth.of(2019, 5));
+            Path modified = SegmentedStore.segmentFile(tempDir, YearMonth.of(2019, 2));
+            Object untouchedKey = Files.readAttributes(untouched, BasicFileAttributes.class).fileKey();
+            Object modifiedKey = Files.readAttributes(modified, BasicFileAttributes.class).fileKey();
+
+            tdl.modifyToDoTitle((1L << 41) + 150, "Changed");
+            tdl.removeToDo((1L << 41) + 1000);
+            tdl.addToDo(new ToDo("New", null));
+            tdl.applyBatch(List.of(Mutation.add(new ToDo((1L << 41) + 5000, "Added", null,
+                    LocalDateTime.of(2018, 6, 1, 0, 0), List.of())), Mutation.remove((1L << 41) + 5000)));
+            assertEquals(Set.of(YearMonth.of(2019, 2), YearMonth.of(2019, 11), YearMonth.now(), YearMonth.of(2018, 6)),
+                    store.getDirtySegments());
+            assertEquals(4, store.save());
+            assertEquals(false, Files.exists(SegmentedStore.segmentFile(tempDir, YearMonth.of(2018, 6))));
+            if (untouchedKey != null) {
+                assertEquals(untouchedKey, Files.readAttributes(untouched, BasicFileAttributes.class).fileKey());
+                assertNotEquals(modifiedKey, Files.readAttributes(modified, BasicFileAttributes.class).fileKey());
+            }
+            store.stop();
+
+            ToDoList read = SegmentedStore.open(tempDir, pool).getList();
+            assertEquals(tdl.size(), read.size());
+            for (ToDo td : tdl.getData()) {
+                assertEquals(td, read.get(td.getId()));
+                assertEquals(td.getCreation(), read.get(td.getId()).getCreation());
+            }
+            assertEquals(2399, read.findByTag(work).size());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Method to test that a damaged segment is refused.
+     */
+    @Test
+    @DisplayName("Testing the load of a damaged segment")
+    @Tag("SegmentedStore")
+    void damagedTesting() {
+        Path file = SegmentedStore.segmentFile(tempDir, YearMonth.now());
+        try {
+            SegmentedStore store = SegmentedStore.open(tempDir);
+            for (int i = 0; i < 100; i++) {
+                store.getList().addToDo(new ToDo("ToDo " + i, null));
+            }
+            store.save();
+            Files.write(tempDir.resolve(file.getFileName() + ".tmp"), new byte[] { 1, 2, 3 });
+            assertEquals(100, SegmentedStore.open(tempDir).getList().size());
+            assertEquals(false, Files.exists(tempDir.resolve(file.getFileName() + ".tmp")));
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        assertThrows(IOException.class, () -> {
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(file, bytes);
+            SegmentedStore.open(tempDir);
+        });
+    }
+
+}
@@ -0,0 +1,54 @@
+package todoapp.todo;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import todoapp.todo.Tag.Color;
+
+class TagRegistryTest {
+
+	private TagRegistry registry = TagRegistry.getInstance();
+
+	/**
+     * Method to test the intern method.
+     * @param tag: the Tag to intern.
+     */
+    @ParameterizedTest
+    @MethodSource("todoapp.todo.SourceArguments#tagProvider")
+    @DisplayName("Testing the intern method with both null and valid Tag")
+    @Tag("TagRegistry")
+    void internTesting(todoapp.todo.Tag tag) {
+		if (tag == null) {
+			assertThrows(NullPointerException.class, () -> registry.intern(tag));
+		} else {
+			todoapp.todo.Tag shared = registry.intern(tag);
+			assertEquals(tag, shared);
+			assertSame(shared, registry.intern(new todoapp.todo.Tag(tag)));
+			assertSame(shared, registry.intern(tag.getText(), tag.getColor()));
+			assertSame(shared, registry.get(shared.getId()));
+			assertEquals(shared.getId(), registry.idOf(tag));
+			assertEquals(true, shared.getId() < registry.size());
+		}
+	}
+
+	/**
+     * Method to test the idOf method with a Tag never interned.
+     */
+    @Test
+    @DisplayName("Testing the idOf method with a Tag never interned")
+    @Tag("TagRegistry")
+    void idOfTesting() {
+		try {
+			todoapp.todo.Tag t = new todoapp.todo.Tag("Never interned " + System.nanoTime(), Color.GRAY);
+			int size = registry.size();
+			assertEquals(-1, registry.idOf(t));
+			assertEquals(size, registry.size());
+		} catch (Exception e) {
+			fail("Should not be thrown!");
+		}
+	}
+}
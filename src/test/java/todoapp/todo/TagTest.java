@@ -43,14 +43,14 @@ class TagTest {
 	}
 
 	/**
-     * Method to test the changeText method.
+     * Method to test the withText method.
      * @param text: the new text for the Tag.
      */
     @ParameterizedTest
     @MethodSource("todoapp.todo.SourceArguments#stringProvider")
-    @DisplayName("Testing the changeText method with both empty and filled text")
+    @DisplayName("Testing the withText method with both empty and filled text")
     @Tag("Tag")
-    void changeTextTagTesting(String text) {
+    void withTextTagTesting(String text) {
 		try {
 			t = new todoapp.todo.Tag("Before");
 		} catch (Exception e) {
@@ -58,22 +58,24 @@ class TagTest {
 		}
 
         if (text == null || text.isEmpty()) {
-            assertThrows(AssertionError.class, () -> t.changeText(text));
+            assertThrows(AssertionError.class, () -> t.withText(text));
         } else {	
-			t.changeText(text);
-			assertEquals(text, t.getText());
+			todoapp.todo.Tag mod = t.withText(text);
+			assertEquals(text, mod.getText());
+			assertEquals(t.getColor(), mod.getColor());
+			assertEquals("Before", t.getText());
         }
 	}
 
 	/**
-     * Method to test the changeColor method.
+     * Method to test the withColor method.
      * @param color: the new color for the Tag.
      */
     @ParameterizedTest
     @MethodSource("todoapp.todo.SourceArguments#colorProvider")
-    @DisplayName("Testing the changeColor method with both null and valid color")
+    @DisplayName("Testing the withColor method with both null and valid color")
     @Tag("Tag")
-    void changeColorTagTesting(Color color) {
+    void withColorTagTesting(Color color) {
 		try {
 			t = new todoapp.todo.Tag("Test", Color.BLACK);
 		} catch (Exception e) {
@@ -81,10 +83,12 @@ class TagTest {
 		}
 
         if (color == null) {
-            assertThrows(AssertionError.class, () -> t.changeColor(color));
+            assertThrows(AssertionError.class, () -> t.withColor(color));
         } else {
-			t.changeColor(color);
-			assertEquals(color, t.getColor());
+			todoapp.todo.Tag mod = t.withColor(color);
+			assertEquals(color, mod.getColor());
+			assertEquals(t.getText(), mod.getText());
+			assertEquals(Color.BLACK, t.getColor());
         }
 	}
 }
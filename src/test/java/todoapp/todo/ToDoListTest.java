@@ -1,13 +1,25 @@
 package todoapp.todo;
 
 import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
 import todoapp.exceptions.EmptyFieldException;
+import todoapp.exceptions.VersionConflictException;
+import todoapp.todo.Tag.Color;
 
 class ToDoListTest {
 
@@ -183,4 +195,337 @@ class ToDoListTest {
         }
     }
 
+    /**
+     * Method to test the id-based lookup and edit methods.
+     * @param newTitle: the new title for the ToDo.
+     */
+    @ParameterizedTest
+    @MethodSource("todoapp.todo.SourceArguments#stringProvider")
+    @DisplayName("Testing get and modifyToDoTitle methods by identifier")
+    @Tag("ToDoList")
+    void modifyToDoTitleByIdTesting(String newTitle) {
+        tdl = new ToDoList();
+        ToDo td = null;
+        try {
+            td = new ToDo("Before", "...");
+        } catch (Exception e) {
+            fail("Should not be thrown!");
+        }
+        tdl.addToDo(td);
+        long id = td.getId();
+
+        if (newTitle == null) {
+            assertThrows(NullPointerException.class, () -> tdl.modifyToDoTitle(id, newTitle));
+        } else if (newTitle.isEmpty()) {
+            assertThrows(EmptyFieldException.class, () -> tdl.modifyToDoTitle(id, newTitle));
+        } else {
+            try {
+                ToDo mod = tdl.modifyToDoTitle(id, newTitle);
+                assertEquals(id, mod.getId());
+                assertEquals(newTitle, tdl.get(id).getTitle());
+                assertEquals(1, tdl.size());
+                assertEquals(null, tdl.modifyToDoTitle(id + 1, newTitle));
+            } catch (Exception e) {
+                fail("Should not be thrown!");
+            }
+        }
+        assertEquals(true, tdl.removeToDo(id));
+        assertEquals(false, tdl.contains(id));
+        assertEquals(null, tdl.get(id));
+    }
+
+    /**
+     * Method to test the findByTag, findByAllTags, findByAnyTag and 
+     * findByColor methods while the list changes.
+     */
+    @Test
+    @DisplayName("Testing the tag and color queries")
+    @Tag("ToDoList")
+    void findByTagTesting() {
+        tdl = new ToDoList();
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("Work", Color.RED);
+            todoapp.todo.Tag home = new todoapp.todo.Tag("Home", Color.GREEN);
+            todoapp.todo.Tag urgent = new todoapp.todo.Tag("Urgent", Color.RED);
+            ToDo first = new ToDo("First", null, work);
+            ToDo second = new ToDo("Second", null, List.of(work, home));
+            ToDo third = new ToDo("Third", null, home);
+            tdl.addToDo(first);
+            tdl.addToDo(second);
+            tdl.addToDo(third);
+
+            assertEquals(Set.of(first, second), Set.copyOf(tdl.findByTag(work)));
+            assertEquals(Set.of(second), Set.copyOf(tdl.findByAllTags(List.of(work, home))));
+            assertEquals(Set.of(first, second, third), Set.copyOf(tdl.findByAnyTag(List.of(work, home))));
+            assertEquals(Set.of(first, second), Set.copyOf(tdl.findByColor(Color.RED)));
+            assertEquals(true, tdl.findByTag(urgent).isEmpty());
+
+            tdl.removeToDo(first);
+            ToDo thirdWork = tdl.addToDoTag(third.getId(), work);
+            assertEquals(Set.of(second, thirdWork), Set.copyOf(tdl.findByTag(work)));
+            assertEquals(Set.of(second, thirdWork), Set.copyOf(tdl.findByAllTags(List.of(work, home))));
+
+            ToDo secondUrgent = tdl.addToDoTag(second.getId(), urgent);
+            ToDo secondNoWork = tdl.deleteToDoTag(second.getId(), work);
+            assertEquals(false, secondUrgent.equals(secondNoWork));
+            assertEquals(Set.of(secondNoWork, thirdWork), Set.copyOf(tdl.findByColor(Color.RED)));
+            tdl.deleteToDoTag(second.getId(), urgent);
+            assertEquals(Set.of(thirdWork), Set.copyOf(tdl.findByColor(Color.RED)));
+            assertEquals(true, tdl.findByColor(Color.BLUE).isEmpty());
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test the search method while the list changes.
+     */
+    @Test
+    @DisplayName("Testing the ranked full-text search")
+    @Tag("ToDoList")
+    void searchTesting() {
+        tdl = new ToDoList();
+        try {
+            ToDo invoice = new ToDo("Pay invoice", "The invoice of the plumber");
+            ToDo mail = new ToDo("Send mail", "Attach the invoice");
+            ToDo shopping = new ToDo("Shopping", "Milk, bread");
+            tdl.addToDo(invoice);
+            tdl.addToDo(mail);
+
+            assertThrows(NullPointerException.class, () -> tdl.search(null, 1));
+            assertThrows(IllegalArgumentException.class, () -> tdl.search("invoice", -1));
+            assertEquals(List.of(invoice, mail), tdl.search("INVOICE", 10));
+            assertEquals(List.of(invoice), tdl.search("invoice", 1));
+            assertEquals(true, tdl.search("milk", 10).isEmpty());
+
+            tdl.addToDo(shopping);
+            assertEquals(List.of(shopping), tdl.search("milk", 10));
+            ToDo renamed = tdl.modifyToDoTitle(mail.getId(), "Send the invoice by mail");
+            assertEquals(List.of(renamed, invoice), tdl.search("mail invoice", 10));
+            tdl.modifyToDoDescription(shopping.getId(), null);
+            tdl.removeToDo(invoice.getId());
+            assertEquals(List.of(renamed), tdl.search("invoice milk", 10));
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test the creation order queries and the pagination.
+     */
+    @Test
+    @DisplayName("Testing the creation order queries")
+    @Tag("ToDoList")
+    void creationOrderTesting() {
+        tdl = new ToDoList();
+        ToDo[] tds = new ToDo[5];
+        try {
+            for (int i = 0; i < tds.length; i++) {
+                tds[i] = new ToDo("ToDo " + i, null);
+                tdl.addToDo(tds[i]);
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        assertEquals(List.of(tds[0], tds[1]), tdl.oldest(2));
+        assertEquals(List.of(tds[2], tds[3]), tdl.newerThan(tds[1], 2));
+        assertEquals(List.of(tds[4], tds[3]), tdl.newest(2));
+        assertEquals(List.of(tds[2], tds[1], tds[0]), tdl.olderThan(tds[3], 10));
+        assertEquals(true, tdl.newerThan(tds[4], 10).isEmpty());
+        assertThrows(NullPointerException.class, () -> tdl.olderThan(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> tdl.newest(-1));
+
+        tdl.removeToDo(tds[2]);
+        assertEquals(List.of(tds[1], tds[0]), tdl.olderThan(tds[3], 10));
+        assertEquals(List.of(tds[3], tds[4]), tdl.newerThan(tds[2], 10));
+
+        LocalDateTime first = tds[0].getCreation();
+        LocalDateTime last = tds[4].getCreation();
+        assertEquals(List.of(tds[0], tds[1], tds[3], tds[4]), tdl.findByCreation(first, last.plusNanos(1)));
+        assertEquals(true, tdl.findByCreation(last, first).isEmpty());
+    }
+
+    /**
+     * Method to test the stream and parallelStream methods.
+     */
+    @Test
+    @DisplayName("Testing the sequential and parallel streams")
+    @Tag("ToDoList")
+    void streamTesting() {
+        tdl = new ToDoList();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                tdl.addToDo(new ToDo("ToDo " + i, i % 2 == 0 ? "even" : "odd"));
+            }
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+
+        Spliterator<ToDo> split = tdl.stream().spliterator();
+        assertEquals(true, split.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(false, split.hasCharacteristics(Spliterator.IMMUTABLE));
+        Spliterator<ToDo> prefix = split.trySplit();
+        assertEquals(500, prefix.getExactSizeIfKnown());
+        assertEquals(500, split.getExactSizeIfKnown());
+
+        assertEquals(1000, tdl.stream().count());
+        assertEquals(500, tdl.parallelStream().filter(td -> "even".equals(td.getDescription())).count());
+        assertEquals(10, tdl.parallelStream().limit(10).count());
+        assertEquals(Set.copyOf(tdl.getData()), tdl.parallelStream().collect(Collectors.toSet()));
+
+        Iterator<ToDo> it = tdl.stream().iterator();
+        it.next();
+        tdl.removeToDo(it.next());
+        assertThrows(ConcurrentModificationException.class, () -> it.next());
+
+        assertThrows(ConcurrentModificationException.class,
+                () -> tdl.stream().forEach(td -> tdl.removeToDo(td.getId())));
+        assertEquals(998, tdl.size());
+    }
+
+    /**
+     * Method to test the versions and the compareAndModify method.
+     */
+    @Test
+    @DisplayName("Testing the optimistic updates with compareAndModify")
+    @Tag("ToDoList")
+    void compareAndModifyTesting() {
+        tdl = new ToDoList();
+        try {
+            todoapp.todo.Tag work = new todoapp.todo.Tag("work", Color.RED);
+            ToDo td = new ToDo("Title", "Description");
+            long id = td.getId();
+            tdl.addToDo(td);
+            assertEquals(0, tdl.getVersion(id));
+            assertEquals(-1, tdl.getVersion(id + 1));
+
+            ToDo tagged = tdl.compareAndModify(id, 0, t -> t.withTag(work).withTitle("Tagged"));
+            assertEquals(1, tdl.getVersion(id));
+            assertSame(tagged, tdl.get(id));
+            assertEquals(List.of(tagged), List.copyOf(tdl.findByTag(work)));
+            assertEquals(List.of(tagged), List.copyOf(tdl.findByColor(Color.RED)));
+
+            VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                    () -> tdl.compareAndModify(id, 0, t -> t.withTitle("Lost")));
+            assertEquals(0, conflict.getExpectedVersion());
+            assertEquals(1, conflict.getActualVersion());
+            assertEquals("Tagged", tdl.get(id).getTitle());
+
+            tdl.modifyToDoDescription(id, "Changed");
+            assertEquals(2, tdl.getVersion(id));
+            tdl.addToDoTag(id, work);
+            assertEquals(2, tdl.getVersion(id));
+
+            assertSame(tdl.get(id), tdl.compareAndModify(id, 2, t -> t));
+            assertEquals(2, tdl.getVersion(id));
+            tdl.compareAndModify(id, 2, t -> t.withoutTag(work));
+            assertEquals(true, tdl.findByTag(work).isEmpty());
+            assertEquals(true, tdl.findByColor(Color.RED).isEmpty());
+
+            ToDo other = new ToDo("Other", "...");
+            assertThrows(IllegalArgumentException.class, () -> tdl.compareAndModify(id, 3, t -> other));
+            assertThrows(NullPointerException.class, () -> tdl.compareAndModify(id, 3, t -> null));
+            assertThrows(NullPointerException.class, () -> tdl.compareAndModify(id, 3, null));
+            assertEquals(null, tdl.compareAndModify(id + 1, 0, t -> t));
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test the applyBatch method and the notifications of the
+     * listeners.
+     */
+    @Test
+    @DisplayName("Testing applyBatch and the listeners")
+    @Tag("ToDoList")
+    void applyBatchTesting() {
+        tdl = new ToDoList();
+        List<List<Mutation>> notified = new ArrayList<List<Mutation>>();
+        tdl.addListener((list, mutations) -> notified.add(List.copyOf(mutations)));
+        try {
+            todoapp.todo.Tag done = new todoapp.todo.Tag("done", Color.GREEN);
+            ToDo kept = new ToDo("Kept", "Water the plants");
+            tdl.addToDo(kept);
+            tdl.search("plants", 1);
+            assertEquals(1, notified.size());
+
+            List<Mutation> batch = new ArrayList<Mutation>();
+            List<ToDo> added = new ArrayList<ToDo>();
+            for (int i = 0; i < 100; i++) {
+                ToDo td = new ToDo("ToDo " + i, "Batch");
+                added.add(td);
+                batch.add(Mutation.add(td));
+                if (i % 2 == 0) {
+                    batch.add(Mutation.addTag(td.getId(), done));
+                }
+            }
+            batch.add(Mutation.addTag(kept.getId(), done));
+            batch.add(Mutation.description(kept.getId(), "Water the garden"));
+            batch.add(Mutation.remove(added.get(0).getId()));
+            tdl.applyBatch(batch);
+
+            assertEquals(2, notified.size());
+            assertEquals(batch, notified.get(1));
+            assertEquals(100, tdl.size());
+            assertEquals(50, tdl.findByTag(done).size());
+            assertEquals(true, tdl.findByTag(done).contains(tdl.get(kept.getId())));
+            assertEquals(false, tdl.contains(added.get(0).getId()));
+            assertEquals(List.of(tdl.get(kept.getId())), tdl.search("garden", 10));
+            assertEquals(true, tdl.search("plants", 10).isEmpty());
+            assertEquals(2, tdl.getVersion(kept.getId()));
+            assertEquals(99, tdl.findByCreation(added.get(1).getCreation(), LocalDateTime.MAX).size());
+
+            ToDo other = new ToDo("Other", "...");
+            assertThrows(IllegalArgumentException.class, () -> tdl.applyBatch(
+                    List.of(Mutation.add(other), Mutation.remove(kept.getId()), Mutation.addTag(kept.getId(), done))));
+            assertThrows(IllegalArgumentException.class, () -> tdl.applyBatch(List.of(Mutation.add(kept))));
+            assertThrows(NullPointerException.class, () -> tdl.applyBatch(null));
+            assertThrows(EmptyFieldException.class, () -> Mutation.title(kept.getId(), ""));
+            assertEquals(false, tdl.contains(other.getId()));
+            assertEquals(100, tdl.size());
+            assertEquals(2, notified.size());
+
+            tdl.compareAndModify(kept.getId(), 2, t -> t.withoutTag(done).withTitle("Renamed"));
+            assertEquals(List.of(Mutation.Kind.TITLE, Mutation.Kind.DELETE_TAG),
+                    notified.get(2).stream().map(Mutation::getKind).collect(Collectors.toList()));
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
+    /**
+     * Method to test that the mutations of a batch that change nothing are
+     * not notified, as the same changes done one at a time.
+     */
+    @Test
+    @DisplayName("Testing applyBatch with mutations that change nothing")
+    @Tag("ToDoList")
+    void noOpBatchTesting() {
+        tdl = new ToDoList();
+        List<List<Mutation>> notified = new ArrayList<List<Mutation>>();
+        try {
+            todoapp.todo.Tag done = new todoapp.todo.Tag("done", Color.GREEN);
+            ToDo td = new ToDo("Kept", "Water the plants");
+            tdl.addToDo(td);
+            tdl.addListener((list, mutations) -> notified.add(List.copyOf(mutations)));
+
+            tdl.modifyToDoDescription(td.getId(), "Water the plants");
+            tdl.applyBatch(List.of(Mutation.description(td.getId(), "Water the plants"),
+                    Mutation.deleteTag(td.getId(), done)));
+            assertEquals(0, notified.size());
+            assertEquals(0, tdl.getVersion(td.getId()));
+
+            Mutation changed = Mutation.addTag(td.getId(), done);
+            List<Mutation> batch = new ArrayList<Mutation>(List.of(Mutation.description(td.getId(),
+                    "Water the plants"), changed));
+            tdl.applyBatch(batch);
+            batch.clear();
+            assertEquals(List.of(List.of(changed)), notified);
+        } catch (Exception e) {
+            fail("Should not be thrown!", e);
+        }
+    }
+
 }   // ToDoListTest class
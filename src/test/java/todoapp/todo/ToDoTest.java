@@ -41,14 +41,14 @@ class ToDoTest {
 	}
 
 	/**
-	 * Method to test the setTitle method.
+	 * Method to test the withTitle method.
 	 * @param newTitle: the new title of the ToDo.
 	 */
 	@ParameterizedTest
 	@MethodSource("todoapp.todo.SourceArguments#stringProvider")
-	@DisplayName("Testing the setTitle method")
+	@DisplayName("Testing the withTitle method")
 	@Tag("ToDo")
-	void setTitleTest(String newTitle) {
+	void withTitleTest(String newTitle) {
 		try {
 			td = new ToDo("Before", "...");
 		} catch (Exception e) {
@@ -56,32 +56,37 @@ class ToDoTest {
 		}
 
 		if (newTitle == null || newTitle.isEmpty()) {
-			assertThrows(AssertionError.class, () -> td.setTitle(newTitle));
+			assertThrows(AssertionError.class, () -> td.withTitle(newTitle));
 		} else {
-			td.setTitle(newTitle);
-			assertEquals(newTitle, td.getTitle());
+			ToDo mod = td.withTitle(newTitle);
+			assertEquals(newTitle, mod.getTitle());
+			assertEquals(td.getId(), mod.getId());
+			assertEquals(td.getCreation(), mod.getCreation());
+			assertEquals("Before", td.getTitle());
 		}
 	}
 
 	/**
-     * Method to test the addTag method.
+     * Method to test the withTag method.
      * @param tag: the new Tag to add.
      */
     @ParameterizedTest
     @MethodSource("todoapp.todo.SourceArguments#tagProvider")
-    @DisplayName("Testing the addTag method")
+    @DisplayName("Testing the withTag method")
     @Tag("ToDo")
-	void addTagTest(todoapp.todo.Tag tag) {
+	void withTagTest(todoapp.todo.Tag tag) {
 		try {
 			td = new ToDo("New Todo", null, new todoapp.todo.Tag("Test"));
 			if (tag == null) {
-				assertThrows(AssertionError.class, () -> td.addTag(tag));
+				assertThrows(AssertionError.class, () -> td.withTag(tag));
 			} else {
 				todoapp.todo.Tag test = new todoapp.todo.Tag(tag);
 				
 				assertEquals(false, td.getTags().contains(test));
-				assertEquals(true, td.addTag(tag));
-				assertEquals(true, td.getTags().contains(test));
+				ToDo mod = td.withTag(tag);
+				assertEquals(true, mod.getTags().contains(test));
+				assertEquals(false, td.getTags().contains(test));
+				assertSame(mod, mod.withTag(test));
 			}
 		} catch (Exception e) {
 			fail("Should not be thrown!");
@@ -89,14 +94,14 @@ class ToDoTest {
 	}
 
 	/**
-     * Method to test the deleteTag method.
+     * Method to test the withoutTag method.
      * @param tag: the Tag to delete.
      */
     @ParameterizedTest
     @MethodSource("todoapp.todo.SourceArguments#tagProvider")
-    @DisplayName("Testing the deleteTag method")
+    @DisplayName("Testing the withoutTag method")
     @Tag("ToDo")
-	void deleteTagTest(todoapp.todo.Tag tag) {
+	void withoutTagTest(todoapp.todo.Tag tag) {
 		try {
 			td = new ToDo("New Todo", null, new todoapp.todo.Tag("Test"));
 		} catch (Exception e) {
@@ -104,7 +109,7 @@ class ToDoTest {
 		}
 
 		if (tag == null) {
-			assertThrows(AssertionError.class, () -> td.deleteTag(tag));
+			assertThrows(AssertionError.class, () -> td.withoutTag(tag));
 		} else {
 			todoapp.todo.Tag test = null;
 			try {
@@ -113,8 +118,10 @@ class ToDoTest {
 				fail("Should not be thrown!");
 			}
 			assertEquals(false, td.getTags().contains(test));
-			assertEquals(false, td.deleteTag(tag));
-			assertEquals(false, td.getTags().contains(test));
+			assertSame(td, td.withoutTag(tag));
+			ToDo mod = td.withTag(tag).withoutTag(test);
+			assertEquals(false, mod.getTags().contains(test));
+			assertEquals(td, mod);
 		}
 	}
 }